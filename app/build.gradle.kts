@@ -28,6 +28,17 @@ android {
         versionName = "0.0.1"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Схемы Room хранятся в репозитории, по ним проверяются миграции
+        javaCompileOptions {
+            annotationProcessorOptions {
+                arguments += mapOf("room.schemaLocation" to "$projectDir/schemas")
+            }
+        }
+    }
+
+    sourceSets {
+        getByName("androidTest").assets.srcDir("$projectDir/schemas")
     }
 
     buildTypes {
@@ -38,6 +49,18 @@ android {
                 "proguard-rules.pro"
             )
         }
+        // Сборка для замеров :benchmark: код как в release, но подписана
+        // debug-ключом. Замеры на debuggable-сборке androidx.benchmark отклоняет
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+            isDebuggable = false
+        }
+    }
+    // Robolectric читает ресурсы и манифест приложения
+    testOptions {
+        unitTests.isIncludeAndroidResources = true
     }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
@@ -55,8 +78,12 @@ dependencies {
 
     // Testing
     testImplementation(libs.junit)
+    testImplementation("org.robolectric:robolectric:4.11.1")
+    testImplementation("androidx.test:core:1.5.0")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation("androidx.work:work-testing:2.7.1")
+    androidTestImplementation("androidx.room:room-testing:2.6.1")
 
     // Firebase dependencies
     implementation(platform("com.google.firebase:firebase-bom:32.7.0"))
@@ -78,6 +105,7 @@ dependencies {
     implementation("androidx.activity:activity:1.9.2")
     implementation("androidx.annotation:annotation:1.6.0")
     implementation("androidx.biometric:biometric:1.2.0-alpha05")
+    implementation("androidx.core:core-splashscreen:1.0.1")
     implementation("androidx.work:work-runtime:2.7.1")
     implementation("com.google.android.material:material")
 
@@ -85,7 +113,9 @@ dependencies {
     implementation("com.google.android.gms:play-services-base:18.1.0")
 
     implementation("androidx.room:room-runtime:2.6.1")
+    implementation("androidx.room:room-paging:2.6.1")
     annotationProcessor("androidx.room:room-compiler:2.6.1")
+    implementation("androidx.paging:paging-runtime:3.2.1")
     implementation("com.github.bumptech.glide:glide:4.12.0")
     implementation("com.squareup.okhttp3:okhttp:4.9.1")
     implementation("com.google.code.gson:gson:2.8.8")
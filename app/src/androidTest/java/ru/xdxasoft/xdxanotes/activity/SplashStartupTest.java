@@ -0,0 +1,41 @@
+package ru.xdxasoft.xdxanotes.activity;
+
+import android.util.Log;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Map;
+
+import ru.xdxasoft.xdxanotes.utils.StartupTrace;
+
+import static org.junit.Assert.*;
+
+/**
+ * Заставка не держит запуск: переход на следующий экран происходит сразу
+ * после создания SplashActivity, без прежней фиксированной задержки в 2 секунды.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SplashStartupTest {
+
+    private static final String TAG = "SplashStartupTest";
+    private static final long MAX_SPLASH_MS = 2000;
+
+    @Test
+    public void splash_navigatesWithoutFixedDelay() {
+        try (ActivityScenario<SplashActivity> ignored = ActivityScenario.launch(SplashActivity.class)) {
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+            Map<String, Long> marks = StartupTrace.snapshot();
+            Log.i(TAG, (StartupTrace.isColdStart() ? "cold" : "warm") + " start marks: " + marks);
+            assertTrue(marks.containsKey(StartupTrace.SPLASH_CREATED));
+            assertTrue(marks.containsKey(StartupTrace.SPLASH_DONE));
+            long splashMs = marks.get(StartupTrace.SPLASH_DONE) - marks.get(StartupTrace.SPLASH_CREATED);
+            assertTrue("Splash took " + splashMs + " ms", splashMs < MAX_SPLASH_MS);
+        }
+    }
+}
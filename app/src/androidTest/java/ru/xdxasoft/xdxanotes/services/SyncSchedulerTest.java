@@ -0,0 +1,86 @@
+package ru.xdxasoft.xdxanotes.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.work.Configuration;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class SyncSchedulerTest {
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Configuration config = new Configuration.Builder()
+                .setMinimumLoggingLevel(Log.DEBUG)
+                .setExecutor(new SynchronousExecutor())
+                .build();
+        WorkManagerTestInitHelper.initializeTestWorkManager(context, config);
+    }
+
+    @Test
+    public void repeatedRequestsAreCoalesced() throws Exception {
+        SyncScheduler.enqueueSync(context, SyncScheduler.SyncType.NOTES).get();
+        SyncScheduler.enqueueSync(context, SyncScheduler.SyncType.NOTES).get();
+        SyncScheduler.enqueueSync(context, SyncScheduler.SyncType.NOTES).get();
+
+        List<WorkInfo> infos = WorkManager.getInstance(context)
+                .getWorkInfosForUniqueWork(SyncScheduler.uniqueName(SyncScheduler.SyncType.NOTES)).get();
+        assertEquals(1, infos.size());
+        // Без сети задача ждет выполнения ограничений
+        assertEquals(WorkInfo.State.ENQUEUED, infos.get(0).getState());
+    }
+
+    @Test
+    public void typesAreQueuedSeparately() throws Exception {
+        SyncScheduler.enqueueSync(context, SyncScheduler.SyncType.NOTES).get();
+        SyncScheduler.enqueueSync(context, SyncScheduler.SyncType.CALENDAR).get();
+
+        WorkManager workManager = WorkManager.getInstance(context);
+        assertEquals(1, workManager.getWorkInfosForUniqueWork(
+                SyncScheduler.uniqueName(SyncScheduler.SyncType.NOTES)).get().size());
+        assertEquals(1, workManager.getWorkInfosForUniqueWork(
+                SyncScheduler.uniqueName(SyncScheduler.SyncType.CALENDAR)).get().size());
+    }
+
+    // Отмененная цепочка заменяется, иначе новый запуск отменился бы вместе с ней
+    @Test
+    public void requestAfterCancelledSync_startsNewRun() throws Exception {
+        SyncScheduler.enqueueSync(context, SyncScheduler.SyncType.NOTES).get();
+        WorkManager workManager = WorkManager.getInstance(context);
+        String name = SyncScheduler.uniqueName(SyncScheduler.SyncType.NOTES);
+        workManager.cancelUniqueWork(name).getResult().get();
+
+        SyncScheduler.enqueueSync(context, SyncScheduler.SyncType.NOTES).get();
+
+        List<WorkInfo> infos = workManager.getWorkInfosForUniqueWork(name).get();
+        assertEquals(1, infos.size());
+        assertEquals(WorkInfo.State.ENQUEUED, infos.get(0).getState());
+    }
+
+    @Test
+    public void periodicSyncIsScheduledOnce() throws Exception {
+        SyncScheduler.schedulePeriodicSync(context);
+        SyncScheduler.schedulePeriodicSync(context);
+
+        List<WorkInfo> infos = WorkManager.getInstance(context)
+                .getWorkInfosForUniqueWork("sync_periodic").get();
+        assertEquals(1, infos.size());
+    }
+}
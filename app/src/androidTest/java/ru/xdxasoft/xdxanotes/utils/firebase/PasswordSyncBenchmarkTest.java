@@ -0,0 +1,147 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ru.xdxasoft.xdxanotes.models.Password;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.PasswordDao;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+
+import static org.junit.Assert.*;
+
+/**
+ * Синхронизация хранилища из 5000 паролей, в котором с прошлого раза на
+ * сервере изменилось 1% записей, 1% добавилось и 1% удалилось. Сравнивается
+ * прежняя схема (удалить все и вставить каждую строку отдельно, без общей
+ * транзакции) и применение разницы одной транзакцией. БД файловая, чтобы в
+ * замер попадала стоимость фиксации на диск.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PasswordSyncBenchmarkTest {
+
+    private static final String TAG = "PasswordSyncBenchmark";
+    private static final String TEST_DB = "password-sync-benchmark";
+    private static final String USER = "user";
+    private static final int VAULT_SIZE = 5000;
+    private static final int CHANGED = VAULT_SIZE / 100;
+
+    private Context context;
+    private RoomDB database;
+    private PasswordDao dao;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        database = Room.databaseBuilder(context, RoomDB.class, TEST_DB)
+                .allowMainThreadQueries()
+                .build();
+        dao = database.passwordDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void diffSync_of5000Entries_isFasterThanDeleteAllAndReinsert() {
+        List<Password> remote = remoteSnapshot();
+
+        dao.upsertAll(vault());
+        long legacyNanos = System.nanoTime();
+        dao.deleteAllForUser(USER);
+        for (Password password : remote) {
+            dao.upsert(password);
+        }
+        legacyNanos = System.nanoTime() - legacyNanos;
+        assertMatches(remote);
+
+        dao.deleteAllForUser(USER);
+        dao.upsertAll(vault());
+        long diffNanos = System.nanoTime();
+        PasswordReconciler.Diff diff = PasswordReconciler.diff(dao.getForUser(USER), remote, Collections.emptySet());
+        dao.applyChanges(USER, diff.upserts, diff.deletedIds);
+        diffNanos = System.nanoTime() - diffNanos;
+        assertMatches(remote);
+
+        Log.i(TAG, "Delete all + per-row insert: " + legacyNanos / 1_000_000 + " ms, "
+                + "diff (" + diff + "): " + diffNanos / 1_000_000 + " ms");
+        assertEquals(CHANGED, diff.inserted);
+        assertEquals(CHANGED, diff.updated);
+        assertEquals(CHANGED, diff.deletedIds.size());
+        assertTrue(diffNanos < legacyNanos);
+    }
+
+    @Test
+    public void repeatedSync_withoutChanges_writesNothing() {
+        List<Password> remote = remoteSnapshot();
+        dao.upsertAll(remote);
+
+        PasswordReconciler.Diff diff = PasswordReconciler.diff(dao.getForUser(USER), remote, Collections.emptySet());
+
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void passwordWithPendingLocalWrite_isKept() {
+        List<Password> local = vault();
+        dao.upsertAll(local);
+        Password unsent = local.get(0);
+        List<Password> remote = new ArrayList<>(local.subList(1, local.size()));
+
+        PasswordReconciler.Diff diff = PasswordReconciler.diff(dao.getForUser(USER), remote,
+                Collections.singleton(unsent.getId()));
+
+        assertTrue(diff.isEmpty());
+    }
+
+    // Локальное состояние после прошлой синхронизации
+    private static List<Password> vault() {
+        List<Password> passwords = new ArrayList<>(VAULT_SIZE);
+        for (int i = 0; i < VAULT_SIZE; i++) {
+            passwords.add(new Password("p" + i, "site " + i, "login" + i, "secret" + i, USER));
+        }
+        return passwords;
+    }
+
+    // Первые CHANGED записей удалены, следующие CHANGED изменены, в конец добавлено CHANGED новых
+    private static List<Password> remoteSnapshot() {
+        List<Password> passwords = new ArrayList<>(VAULT_SIZE);
+        for (int i = CHANGED; i < VAULT_SIZE + CHANGED; i++) {
+            String secret = i < CHANGED * 2 ? "changed" + i : "secret" + i;
+            passwords.add(new Password("p" + i, "site " + i, "login" + i, secret, USER));
+        }
+        return passwords;
+    }
+
+    private void assertMatches(List<Password> expected) {
+        List<Password> actual = dao.getForUser(USER);
+        assertEquals(expected.size(), actual.size());
+        Map<String, Password> byId = new HashMap<>();
+        for (Password password : actual) {
+            byId.put(password.getId(), password);
+        }
+        for (Password password : expected) {
+            Password stored = byId.get(password.getId());
+            assertNotNull(stored);
+            assertTrue(stored.sameContent(password));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.room.RoomDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Задержка чтения во время синхронизации 10 000 заметок. Писатель вставляет
+ * заметки пачками по транзакции, как NotesSyncEngine, читатель в это время
+ * непрерывно выбирает заметку по id. Сравниваются прежний журнал TRUNCATE, где
+ * читатель ждет окончания каждой транзакции записи, и настройки по умолчанию
+ * (WAL, synchronous=NORMAL, кеш страниц и mmap).
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseConcurrencyBenchmarkTest {
+
+    private static final String TAG = "DbConcurrencyBenchmark";
+    private static final String TEST_DB = "concurrency-benchmark";
+    private static final int SYNC_ROWS = 10_000;
+    private static final int SYNC_BATCH = 500;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void defaultOptions_enableWalAndTuning() {
+        RoomDB database = open(RoomDB.Options.DEFAULT);
+        try {
+            assertEquals("wal", writerPragma(database, "PRAGMA journal_mode"));
+            // NORMAL = 1
+            assertEquals("1", writerPragma(database, "PRAGMA synchronous"));
+            assertEquals("-8192", writerPragma(database, "PRAGMA cache_size"));
+        } finally {
+            database.close();
+        }
+    }
+
+    @Test
+    public void defaultOptions_applyToReadConnections() {
+        // До API 30 настройки получает только соединение записи
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.R);
+        RoomDB database = open(RoomDB.Options.DEFAULT);
+        try {
+            assertEquals("1", readerPragma(database, "PRAGMA synchronous"));
+            assertEquals("-8192", readerPragma(database, "PRAGMA cache_size"));
+        } finally {
+            database.close();
+        }
+    }
+
+    @Test
+    public void readerLatencyDuringSync_isLowerWithWal() throws Exception {
+        RoomDB.Options truncate = new RoomDB.Options.Builder()
+                .setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+                .build();
+        long[] truncateLatency = measureReaderLatency(truncate);
+        context.deleteDatabase(TEST_DB);
+        long[] walLatency = measureReaderLatency(RoomDB.Options.DEFAULT);
+
+        Log.i(TAG, "Reader latency during " + SYNC_ROWS + "-row sync, us (p50/p95/max): "
+                + "TRUNCATE " + format(truncateLatency) + ", WAL " + format(walLatency));
+        assertTrue(walLatency[1] < truncateLatency[1]);
+    }
+
+    /**
+     * @return задержки чтения в микросекундах: медиана, 95-й перцентиль, максимум
+     */
+    private long[] measureReaderLatency(RoomDB.Options options) throws Exception {
+        RoomDB database = open(options);
+        try {
+            MainDAO dao = database.mainDao();
+            // Читаемая заметка есть до начала синхронизации
+            dao.insertAll(Collections.singletonList(note(1)));
+
+            AtomicBoolean syncing = new AtomicBoolean(true);
+            List<Long> latencies = new ArrayList<>();
+            Thread reader = new Thread(() -> {
+                while (syncing.get()) {
+                    long start = System.nanoTime();
+                    assertNotNull(dao.getById(1));
+                    latencies.add((System.nanoTime() - start) / 1000);
+                }
+            });
+            reader.start();
+
+            for (int from = 2; from < SYNC_ROWS + 2; from += SYNC_BATCH) {
+                List<Notes> batch = new ArrayList<>(SYNC_BATCH);
+                for (int id = from; id < from + SYNC_BATCH; id++) {
+                    batch.add(note(id));
+                }
+                dao.applyChanges(batch, Collections.emptyList());
+            }
+            syncing.set(false);
+            reader.join();
+
+            assertEquals(SYNC_ROWS + 1, dao.getAll().size());
+            Collections.sort(latencies);
+            return new long[]{
+                    latencies.get(latencies.size() / 2),
+                    latencies.get(latencies.size() * 95 / 100),
+                    latencies.get(latencies.size() - 1)
+            };
+        } finally {
+            database.close();
+        }
+    }
+
+    private RoomDB open(RoomDB.Options options) {
+        return RoomDB.builder(context, TEST_DB, options)
+                .allowMainThreadQueries()
+                .build();
+    }
+
+    // В транзакции запрос идет через соединение записи
+    private static String writerPragma(RoomDB database, String sql) {
+        return database.runInTransaction(() -> pragma(database, sql));
+    }
+
+    // Вне транзакции пул в режиме WAL отдает запрос соединению чтения
+    private static String readerPragma(RoomDB database, String sql) {
+        return pragma(database, sql);
+    }
+
+    private static String pragma(RoomDB database, String sql) {
+        try (Cursor cursor = database.query(sql, null)) {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getString(0);
+        }
+    }
+
+    private static Notes note(int id) {
+        Notes note = new Notes();
+        note.setID(id);
+        note.setTitle("Заметка " + id);
+        note.setNotes("Текст заметки номер " + id);
+        note.setUserId("user");
+        note.setLastModified(id);
+        return note;
+    }
+
+    private static String format(long[] latency) {
+        return latency[0] + "/" + latency[1] + "/" + latency[2];
+    }
+}
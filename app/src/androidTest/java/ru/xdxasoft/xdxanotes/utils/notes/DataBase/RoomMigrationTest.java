@@ -0,0 +1,145 @@
+package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.room.Room;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.List;
+
+import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+import static org.junit.Assert.*;
+
+/**
+ * Обновление БД со схемы 7 до текущей без потери данных. Схема 7 создается
+ * вручную: JSON-схемы Room экспортируются только начиная с текущей версии,
+ * с ней и сверяется результат миграций.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RoomMigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(),
+            RoomDB.class.getCanonicalName(),
+            new FrameworkSQLiteOpenHelperFactory());
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        createVersion7();
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void migrate7ToLatest_matchesExportedSchemaAndKeepsData() throws Exception {
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 13, true, RoomDB.MIGRATIONS);
+
+        try (Cursor cursor = db.query("SELECT title, notes, pinned, lastModified, version FROM notes WHERE ID = 42")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("Список покупок", cursor.getString(0));
+            assertEquals("молоко и хлеб", cursor.getString(1));
+            assertEquals(1, cursor.getInt(2));
+            assertEquals(0, cursor.getLong(3));
+            assertEquals(0, cursor.getInt(4));
+        }
+
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM calendar_events")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(2, cursor.getInt(0));
+        }
+
+        // Существующие заметки попали в полнотекстовый индекс
+        try (Cursor cursor = db.query("SELECT rowid FROM notes_fts WHERE notes_fts MATCH 'хлеб*'")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(42, cursor.getInt(0));
+        }
+
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM sync_outbox")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(0, cursor.getInt(0));
+        }
+
+        // Выборка паролей пользователя идет по составному индексу
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN SELECT * FROM passwords WHERE userId = 'user' ORDER BY title")) {
+            assertTrue(cursor.moveToFirst());
+            assertTrue(cursor.getString(3).contains("index_passwords_userId_title"));
+        }
+    }
+
+    @Test
+    public void migratedDatabase_opensWithRoomAndServesQueries() {
+        RoomDB database = Room.databaseBuilder(context, RoomDB.class, TEST_DB)
+                .addMigrations(RoomDB.MIGRATIONS)
+                .allowMainThreadQueries()
+                .build();
+        try {
+            Notes note = database.mainDao().getById(42);
+            assertNotNull(note);
+            assertEquals("Список покупок", note.getTitle());
+
+            List<CalendarEvent> events = database.calendarDao().getEventsBetween("2024-05-01", "2024-05-31");
+            assertEquals(2, events.size());
+            assertEquals("evt-1", events.get(0).getEventId());
+
+            // Триггеры FTS работают и для новых строк
+            note.setNotes("кефир");
+            database.mainDao().insert(note);
+            try (Cursor cursor = database.query("SELECT rowid FROM notes_fts WHERE notes_fts MATCH 'кефир'", null)) {
+                assertTrue(cursor.moveToFirst());
+                assertEquals(42, cursor.getInt(0));
+            }
+        } finally {
+            database.close();
+        }
+    }
+
+    // Схема версии 7 в том виде, в каком ее создавал Room
+    private void createVersion7() {
+        File file = context.getDatabasePath(TEST_DB);
+        file.getParentFile().mkdirs();
+
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        db.execSQL("CREATE TABLE IF NOT EXISTS `notes` (`ID` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                + "`title` TEXT, `notes` TEXT, `date` TEXT, `pinned` INTEGER NOT NULL, `userId` TEXT)");
+        db.execSQL("CREATE TABLE IF NOT EXISTS `calendar_events` (`ID` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                + "`eventId` TEXT, `title` TEXT, `description` TEXT, `date` TEXT, `time` TEXT, "
+                + "`completed` INTEGER NOT NULL, `userId` TEXT, `lastModified` INTEGER NOT NULL, "
+                + "`notificationType` INTEGER NOT NULL, `notificationTime` TEXT)");
+
+        db.execSQL("INSERT INTO notes (ID, title, notes, date, pinned, userId) "
+                + "VALUES (42, 'Список покупок', 'молоко и хлеб', '01 мая 2024 10:00', 1, 'user')");
+        db.execSQL("INSERT INTO calendar_events (eventId, title, description, date, time, completed, userId, "
+                + "lastModified, notificationType, notificationTime) "
+                + "VALUES ('evt-1', 'Врач', '', '2024-05-02', '09:30', 0, 'user', 1714600000000, 1, '')");
+        db.execSQL("INSERT INTO calendar_events (eventId, title, description, date, time, completed, userId, "
+                + "lastModified, notificationType, notificationTime) "
+                + "VALUES ('evt-2', 'Отпуск', '', '2024-05-20', '', 0, 'user', 1714600000000, 2, '')");
+        db.setVersion(7);
+        db.close();
+    }
+}
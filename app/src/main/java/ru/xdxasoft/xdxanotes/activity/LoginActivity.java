@@ -39,12 +39,6 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.auth.OAuthProvider;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.Query;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -54,9 +48,9 @@ import ru.xdxasoft.xdxanotes.services.PasswordValidationService;
 import ru.xdxasoft.xdxanotes.utils.AuthManager;
 import ru.xdxasoft.xdxanotes.utils.CustomDialogHelper;
 import ru.xdxasoft.xdxanotes.utils.LocaleHelper;
+import ru.xdxasoft.xdxanotes.utils.PrivacyAcceptanceChecker;
 import ru.xdxasoft.xdxanotes.utils.SessionManager;
 import ru.xdxasoft.xdxanotes.utils.ToastManager;
-import ru.xdxasoft.xdxanotes.utils.User;
 
 public class LoginActivity extends AppCompatActivity {
 
@@ -254,37 +248,21 @@ public class LoginActivity extends AppCompatActivity {
                 .addOnSuccessListener(authResult -> {
                     FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
                     if (user != null) {
-                        DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("Users");
-                        Query query = usersRef.orderByChild("email").equalTo(user.getEmail());
-
-                        query.addListenerForSingleValueEvent(new ValueEventListener() {
+                        PrivacyAcceptanceChecker.lookup(LoginActivity.this, user, new PrivacyAcceptanceChecker.Callback() {
                             @Override
-                            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                                if (dataSnapshot.exists()) {
-                                    boolean privacyAccepted = false;
-                                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                                        User existingUser = snapshot.getValue(User.class);
-                                        if (existingUser != null && existingUser.isPrivacyAccepted()) {
-                                            privacyAccepted = true;
-                                            break;
-                                        }
-                                    }
-
-                                    if (privacyAccepted) {
-                                        navigateToMainActivity(user.getEmail(), true);
-                                    } else {
-                                        showPrivacyTermsDialogForService(user, "github");
-                                    }
+                            public void onResult(boolean accepted) {
+                                if (accepted) {
+                                    navigateToMainActivity(user.getEmail(), true);
                                 } else {
                                     showPrivacyTermsDialogForService(user, "github");
                                 }
                             }
 
                             @Override
-                            public void onCancelled(@NonNull DatabaseError databaseError) {
-                                Log.e("GITHUB_AUTH", "Ошибка проверки пользователя: " + databaseError.getMessage());
+                            public void onError(String message) {
+                                Log.e("GITHUB_AUTH", "Ошибка проверки пользователя: " + message);
                                 ToastManager.showToast(LoginActivity.this,
-                                        getString(R.string.User_verification_error) + databaseError.getMessage(),
+                                        getString(R.string.User_verification_error) + message,
                                         R.drawable.ic_error,
                                         ContextCompat.getColor(LoginActivity.this, R.color.error_red),
                                         ContextCompat.getColor(LoginActivity.this, R.color.black),
@@ -313,38 +291,21 @@ public class LoginActivity extends AppCompatActivity {
                 .addOnSuccessListener(authResult -> {
                     FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
                     if (user != null) {
-                        DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("Users");
-                        Query query = usersRef.orderByChild("email").equalTo(user.getEmail());
-
-                        query.addListenerForSingleValueEvent(new ValueEventListener() {
+                        PrivacyAcceptanceChecker.lookup(LoginActivity.this, user, new PrivacyAcceptanceChecker.Callback() {
                             @Override
-                            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                                if (dataSnapshot.exists()) {
-                                    boolean privacyAccepted = false;
-                                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                                        User existingUser = snapshot.getValue(User.class);
-                                        if (existingUser != null && existingUser.isPrivacyAccepted()) {
-                                            privacyAccepted = true;
-                                            break;
-                                        }
-                                    }
-
-                                    if (privacyAccepted) {
-                                        navigateToMainActivity(user.getEmail(), true);
-                                    } else {
-                                        showPrivacyTermsDialogForService(user, "google");
-                                    }
+                            public void onResult(boolean accepted) {
+                                if (accepted) {
+                                    navigateToMainActivity(user.getEmail(), true);
                                 } else {
-
                                     showPrivacyTermsDialogForService(user, "google");
                                 }
                             }
 
                             @Override
-                            public void onCancelled(@NonNull DatabaseError databaseError) {
-                                Log.e("GOOGLE_AUTH", "Ошибка проверки пользователя: " + databaseError.getMessage());
+                            public void onError(String message) {
+                                Log.e("GOOGLE_AUTH", "Ошибка проверки пользователя: " + message);
                                 ToastManager.showToast(LoginActivity.this,
-                                        getString(R.string.User_verification_error) + databaseError.getMessage(),
+                                        getString(R.string.User_verification_error) + message,
                                         R.drawable.ic_error,
                                         ContextCompat.getColor(LoginActivity.this, R.color.error_red),
                                         ContextCompat.getColor(LoginActivity.this, R.color.black),
@@ -397,53 +358,24 @@ public class LoginActivity extends AppCompatActivity {
 
         continueButton.setOnClickListener(v -> {
             dialog.dismiss();
-            DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("Users");
-            Query query = usersRef.orderByChild("email").equalTo(user.getEmail());
-
-            query.addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                    if (!dataSnapshot.exists()) {
-                        User newUser = new User(user.getEmail(), service, true);
-                        usersRef.push().setValue(newUser)
-                                .addOnSuccessListener(aVoid -> {
-                                    ToastManager.showToast(LoginActivity.this,
-                                            getString(R.string.Registration_successful),
-                                            R.drawable.ic_galohca_black,
-                                            ContextCompat.getColor(LoginActivity.this, R.color.success_green),
-                                            ContextCompat.getColor(LoginActivity.this, R.color.black),
-                                            ContextCompat.getColor(LoginActivity.this, R.color.black));
-                                    navigateToMainActivity(user.getEmail(), true);
-                                })
-                                .addOnFailureListener(e -> {
-                                    ToastManager.showToast(LoginActivity.this,
-                                            getString(R.string.Error_creating_profile) + e.getMessage(),
-                                            R.drawable.ic_error,
-                                            ContextCompat.getColor(LoginActivity.this, R.color.error_red),
-                                            ContextCompat.getColor(LoginActivity.this, R.color.black),
-                                            ContextCompat.getColor(LoginActivity.this, R.color.black));
-                                });
-                    } else {
-                        for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                            String userKey = snapshot.getKey();
-                            if (userKey != null) {
-                                usersRef.child(userKey).child("privacyAccepted").setValue(true);
-                            }
-                        }
+            PrivacyAcceptanceChecker.accept(LoginActivity.this, user, service)
+                    .addOnSuccessListener(aVoid -> {
+                        ToastManager.showToast(LoginActivity.this,
+                                getString(R.string.Registration_successful),
+                                R.drawable.ic_galohca_black,
+                                ContextCompat.getColor(LoginActivity.this, R.color.success_green),
+                                ContextCompat.getColor(LoginActivity.this, R.color.black),
+                                ContextCompat.getColor(LoginActivity.this, R.color.black));
                         navigateToMainActivity(user.getEmail(), true);
-                    }
-                }
-
-                @Override
-                public void onCancelled(@NonNull DatabaseError databaseError) {
-                    ToastManager.showToast(LoginActivity.this,
-                            getString(R.string.User_verification_error) + databaseError.getMessage(),
-                            R.drawable.ic_error,
-                            ContextCompat.getColor(LoginActivity.this, R.color.error_red),
-                            ContextCompat.getColor(LoginActivity.this, R.color.black),
-                            ContextCompat.getColor(LoginActivity.this, R.color.black));
-                }
-            });
+                    })
+                    .addOnFailureListener(e -> {
+                        ToastManager.showToast(LoginActivity.this,
+                                getString(R.string.Error_creating_profile) + e.getMessage(),
+                                R.drawable.ic_error,
+                                ContextCompat.getColor(LoginActivity.this, R.color.error_red),
+                                ContextCompat.getColor(LoginActivity.this, R.color.black),
+                                ContextCompat.getColor(LoginActivity.this, R.color.black));
+                    });
         });
 
         cancelButton.setOnClickListener(v -> {
@@ -47,11 +47,13 @@ import ru.xdxasoft.xdxanotes.utils.DialogLauncher;
 import ru.xdxasoft.xdxanotes.utils.FcmTopicManager;
 import ru.xdxasoft.xdxanotes.utils.LinkApprovalChecker;
 import ru.xdxasoft.xdxanotes.utils.LocaleHelper;
+import ru.xdxasoft.xdxanotes.utils.StartupTrace;
 import ru.xdxasoft.xdxanotes.utils.ThemeManager;
 import ru.xdxasoft.xdxanotes.utils.ToastManager;
 import ru.xdxasoft.xdxanotes.utils.User;
 import ru.xdxasoft.xdxanotes.utils.firebase.FirebaseManager;
-import ru.xdxasoft.xdxanotes.services.CalendarReminderService;
+import ru.xdxasoft.xdxanotes.services.ReminderScheduler;
+import ru.xdxasoft.xdxanotes.services.SyncScheduler;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -90,15 +92,16 @@ public class MainActivity extends AppCompatActivity {
         checkSystemLanguage();
 
         setContentView(R.layout.activity_main);
+        StartupTrace.mark(StartupTrace.MAIN_CREATED);
 
-        // Запускаем сервис напоминаний о событиях
-        startCalendarReminderService();
+        // Ставим синхронизацию и напоминания о событиях
+        startCalendarSync();
 
         FirebaseUser currentUser = mAuth.getCurrentUser();
         if (currentUser == null) {
             signInAnonymously();
         } else {
-            FirebaseManager.getInstance(this);
+            FirebaseManager.preload(this);
         }
 
         String _android_id = Settings.Secure.getString(getContentResolver(), Settings.Secure.ANDROID_ID);
@@ -220,7 +223,7 @@ public class MainActivity extends AppCompatActivity {
                     if (task.isSuccessful()) {
                         FirebaseUser user = mAuth.getCurrentUser();
                         if (user != null) {
-                            FirebaseManager.getInstance(this);
+                            FirebaseManager.preload(this);
                         }
                     } else {
                         ToastManager.showToast(this,
@@ -274,15 +277,22 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Запускает сервис напоминаний о событиях календаря
+     * Ставит синхронизацию календаря в очередь WorkManager, включает
+     * периодическую фоновую синхронизацию и переставляет будильники напоминаний
      */
-    private void startCalendarReminderService() {
+    private void startCalendarSync() {
         try {
-            Intent serviceIntent = new Intent(this, CalendarReminderService.class);
-            startService(serviceIntent);
-            Log.d(TAG, "Сервис календарных напоминаний запущен");
+            SyncScheduler.requestSync(this, SyncScheduler.SyncType.CALENDAR);
+            // В живом режиме изменения приходят сами, периодический опрос не нужен
+            FirebaseManager.whenReady(this, manager -> {
+                if (!manager.isLiveSyncEnabled()) {
+                    SyncScheduler.schedulePeriodicSync(this);
+                }
+            });
+            ReminderScheduler.reschedule(this);
+            Log.d(TAG, "Синхронизация календаря поставлена в очередь");
         } catch (Exception e) {
-            Log.e(TAG, "Ошибка при запуске сервиса календарных напоминаний", e);
+            Log.e(TAG, "Ошибка при запуске синхронизации календаря", e);
         }
     }
 
@@ -29,14 +29,8 @@ import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.AuthResult;
 import com.google.firebase.auth.OAuthProvider;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.Query;
-import com.google.firebase.database.ValueEventListener;
 import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.util.ArrayList;
@@ -44,8 +38,8 @@ import java.util.List;
 
 import ru.xdxasoft.xdxanotes.R;
 import ru.xdxasoft.xdxanotes.utils.LocaleHelper;
+import ru.xdxasoft.xdxanotes.utils.PrivacyAcceptanceChecker;
 import ru.xdxasoft.xdxanotes.utils.ToastManager;
-import ru.xdxasoft.xdxanotes.utils.User;
 import ru.xdxasoft.xdxanotes.utils.AuthManager;
 
 public class RegActivity extends AppCompatActivity {
@@ -239,36 +233,21 @@ public class RegActivity extends AppCompatActivity {
                 .addOnSuccessListener(authResult -> {
                     FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
                     if (user != null) {
-                        DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("Users");
-                        Query query = usersRef.orderByChild("email").equalTo(user.getEmail());
-
-                        query.addListenerForSingleValueEvent(new ValueEventListener() {
+                        PrivacyAcceptanceChecker.lookup(RegActivity.this, user, new PrivacyAcceptanceChecker.Callback() {
                             @Override
-                            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                                if (dataSnapshot.exists()) {
-                                    boolean privacyAccepted = false;
-                                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                                        User existingUser = snapshot.getValue(User.class);
-                                        if (existingUser != null && existingUser.isPrivacyAccepted()) {
-                                            privacyAccepted = true;
-                                            break;
-                                        }
-                                    }
-                                    if (privacyAccepted) {
-                                        navigateToMainActivity(user.getEmail(), true);
-                                    } else {
-                                        showPrivacyTermsDialogForService(user, "github");
-                                    }
+                            public void onResult(boolean accepted) {
+                                if (accepted) {
+                                    navigateToMainActivity(user.getEmail(), true);
                                 } else {
                                     showPrivacyTermsDialogForService(user, "github");
                                 }
                             }
 
                             @Override
-                            public void onCancelled(@NonNull DatabaseError databaseError) {
-                                Log.e("GITHUB_AUTH", "Ошибка проверки пользователя: " + databaseError.getMessage());
+                            public void onError(String message) {
+                                Log.e("GITHUB_AUTH", "Ошибка проверки пользователя: " + message);
                                 ToastManager.showToast(RegActivity.this,
-                                        getString(R.string.User_verification_error) + databaseError.getMessage(),
+                                        getString(R.string.User_verification_error) + message,
                                         R.drawable.ic_error,
                                         ContextCompat.getColor(RegActivity.this, R.color.error_red),
                                         ContextCompat.getColor(RegActivity.this, R.color.black),
@@ -301,36 +280,21 @@ public class RegActivity extends AppCompatActivity {
                 .addOnSuccessListener(authResult -> {
                     FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
                     if (user != null) {
-                        DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("Users");
-                        Query query = usersRef.orderByChild("email").equalTo(user.getEmail());
-
-                        query.addListenerForSingleValueEvent(new ValueEventListener() {
+                        PrivacyAcceptanceChecker.lookup(RegActivity.this, user, new PrivacyAcceptanceChecker.Callback() {
                             @Override
-                            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                                if (dataSnapshot.exists()) {
-                                    boolean privacyAccepted = false;
-                                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                                        User existingUser = snapshot.getValue(User.class);
-                                        if (existingUser != null && existingUser.isPrivacyAccepted()) {
-                                            privacyAccepted = true;
-                                            break;
-                                        }
-                                    }
-                                    if (privacyAccepted) {
-                                        navigateToMainActivity(user.getEmail(), true);
-                                    } else {
-                                        showPrivacyTermsDialogForService(user, "google");
-                                    }
+                            public void onResult(boolean accepted) {
+                                if (accepted) {
+                                    navigateToMainActivity(user.getEmail(), true);
                                 } else {
                                     showPrivacyTermsDialogForService(user, "google");
                                 }
                             }
 
                             @Override
-                            public void onCancelled(@NonNull DatabaseError databaseError) {
-                                Log.e("GOOGLE_AUTH", "Ошибка проверки пользователя: " + databaseError.getMessage());
+                            public void onError(String message) {
+                                Log.e("GOOGLE_AUTH", "Ошибка проверки пользователя: " + message);
                                 ToastManager.showToast(RegActivity.this,
-                                        getString(R.string.User_verification_error) + databaseError.getMessage(),
+                                        getString(R.string.User_verification_error) + message,
                                         R.drawable.ic_error,
                                         ContextCompat.getColor(RegActivity.this, R.color.error_red),
                                         ContextCompat.getColor(RegActivity.this, R.color.black),
@@ -387,53 +351,24 @@ public class RegActivity extends AppCompatActivity {
 
         continueButton.setOnClickListener(v -> {
             dialog.dismiss();
-            DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("Users");
-            Query query = usersRef.orderByChild("email").equalTo(user.getEmail());
-
-            query.addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                    if (!dataSnapshot.exists()) {
-                        User newUser = new User(user.getEmail(), service, true);
-                        usersRef.push().setValue(newUser)
-                                .addOnSuccessListener(aVoid -> {
-                                    ToastManager.showToast(RegActivity.this,
-                                            getString(R.string.Registration_successful),
-                                            R.drawable.ic_galohca_black,
-                                            ContextCompat.getColor(RegActivity.this, R.color.success_green),
-                                            ContextCompat.getColor(RegActivity.this, R.color.black),
-                                            ContextCompat.getColor(RegActivity.this, R.color.black));
-                                    navigateToMainActivity(user.getEmail(), true);
-                                })
-                                .addOnFailureListener(e -> {
-                                    ToastManager.showToast(RegActivity.this,
-                                            getString(R.string.Error_creating_profile) + e.getMessage(),
-                                            R.drawable.ic_error,
-                                            ContextCompat.getColor(RegActivity.this, R.color.error_red),
-                                            ContextCompat.getColor(RegActivity.this, R.color.black),
-                                            ContextCompat.getColor(RegActivity.this, R.color.black));
-                                });
-                    } else {
-                        for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                            String userKey = snapshot.getKey();
-                            if (userKey != null) {
-                                usersRef.child(userKey).child("privacyAccepted").setValue(true);
-                            }
-                        }
+            PrivacyAcceptanceChecker.accept(RegActivity.this, user, service)
+                    .addOnSuccessListener(aVoid -> {
+                        ToastManager.showToast(RegActivity.this,
+                                getString(R.string.Registration_successful),
+                                R.drawable.ic_galohca_black,
+                                ContextCompat.getColor(RegActivity.this, R.color.success_green),
+                                ContextCompat.getColor(RegActivity.this, R.color.black),
+                                ContextCompat.getColor(RegActivity.this, R.color.black));
                         navigateToMainActivity(user.getEmail(), true);
-                    }
-                }
-
-                @Override
-                public void onCancelled(@NonNull DatabaseError databaseError) {
-                    ToastManager.showToast(RegActivity.this,
-                            getString(R.string.User_verification_error) + databaseError.getMessage(),
-                            R.drawable.ic_error,
-                            ContextCompat.getColor(RegActivity.this, R.color.error_red),
-                            ContextCompat.getColor(RegActivity.this, R.color.black),
-                            ContextCompat.getColor(RegActivity.this, R.color.black));
-                }
-            });
+                    })
+                    .addOnFailureListener(e -> {
+                        ToastManager.showToast(RegActivity.this,
+                                getString(R.string.Error_creating_profile) + e.getMessage(),
+                                R.drawable.ic_error,
+                                ContextCompat.getColor(RegActivity.this, R.color.error_red),
+                                ContextCompat.getColor(RegActivity.this, R.color.black),
+                                ContextCompat.getColor(RegActivity.this, R.color.black));
+                    });
         });
 
         cancelButton.setOnClickListener(v -> {
@@ -3,35 +3,35 @@ package ru.xdxasoft.xdxanotes.activity;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
 import android.util.Log;
 
-import androidx.activity.EdgeToEdge;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.core.graphics.Insets;
-import androidx.core.view.ViewCompat;
-import androidx.core.view.WindowInsetsCompat;
+import androidx.core.splashscreen.SplashScreen;
 
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
-import ru.xdxasoft.xdxanotes.R;
+import ru.xdxasoft.xdxanotes.services.SyncScheduler;
 import ru.xdxasoft.xdxanotes.utils.LocaleHelper;
-import ru.xdxasoft.xdxanotes.utils.User;
+import ru.xdxasoft.xdxanotes.utils.PrivacyAcceptanceChecker;
+import ru.xdxasoft.xdxanotes.utils.StartupTrace;
 import ru.xdxasoft.xdxanotes.utils.firebase.FirebaseManager;
-
+import ru.xdxasoft.xdxanotes.utils.perf.PerfSinks;
+
+/**
+ * Точка входа. Собственной разметки нет: системная заставка (SplashScreen API)
+ * держится, пока не нарисован следующий экран. Если политика уже принята на этом
+ * устройстве, главный экран открывается сразу и показывает данные из Room, а
+ * сервер перепроверяется в фоне. Иначе заставка ждет ответа сервера, и до
+ * согласия синхронизация не запускается.
+ */
 public class SplashActivity extends AppCompatActivity {
 
     private static final String TAG = "SplashActivity";
+
     private FirebaseAuth mAuth;
-    private FirebaseManager firebaseManager;
+    private boolean waitingForPrivacy;
 
     @Override
     protected void attachBaseContext(Context newBase) {
@@ -40,104 +40,77 @@ public class SplashActivity extends AppCompatActivity {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        SplashScreen splashScreen = SplashScreen.installSplashScreen(this);
         super.onCreate(savedInstanceState);
+        splashScreen.setKeepOnScreenCondition(() -> waitingForPrivacy);
+        PerfSinks.installDefaults(this);
+        StartupTrace.begin();
+        StartupTrace.mark(StartupTrace.SPLASH_CREATED);
         LocaleHelper.applyLanguage(this);
-        setContentView(R.layout.activity_splash);
 
         FirebaseApp.initializeApp(this);
         mAuth = FirebaseAuth.getInstance();
-        firebaseManager = FirebaseManager.getInstance(this);
+        // Менеджер и его хранилища создаются в фоне, пока рисуется следующий экран
+        FirebaseManager.preload(this);
 
-        new Handler().postDelayed(this::checkUserAndNavigate, 2000);
+        checkUserAndNavigate();
     }
 
     private void checkUserAndNavigate() {
         FirebaseUser currentUser = mAuth.getCurrentUser();
         if (currentUser == null) {
             navigateToLogin(false);
-        } else {
-            checkPrivacyAcceptanceFromDatabase();
+            return;
         }
-    }
 
-    private void checkPrivacyAcceptanceFromDatabase() {
-        FirebaseUser currentUser = mAuth.getCurrentUser();
-        if (currentUser != null) {
-            DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("Users");
-            usersRef.orderByChild("email").equalTo(currentUser.getEmail())
-                    .addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                            boolean privacyAccepted = false;
-
-                            if (dataSnapshot.exists()) {
-                                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                                    User user = snapshot.getValue(User.class);
-                                    if (user != null && user.isPrivacyAccepted()) {
-                                        privacyAccepted = true;
-                                        break;
-                                    }
-                                }
-                            }
-
-                            if (privacyAccepted) {
-                                syncDataAndNavigate();
-                            } else {
-                                FirebaseAuth.getInstance().signOut();
-                                navigateToLogin(true);
-                            }
-                        }
-
-                        @Override
-                        public void onCancelled(@NonNull DatabaseError databaseError) {
-                            Log.e(TAG, "Ошибка при проверке принятия политики: " + databaseError.getMessage());
-                            FirebaseAuth.getInstance().signOut();
-                            navigateToLogin(false);
-                        }
-                    });
+        if (PrivacyAcceptanceChecker.isAcceptedLocally(this, currentUser)) {
+            PrivacyAcceptanceChecker.checkInBackground(this, currentUser);
+            syncAndNavigateToMain();
+            return;
         }
-    }
 
-    // Метод для синхронизации данных перед переходом на MainActivity
-    private void syncDataAndNavigate() {
-        // Синхронизируем события календаря
-        firebaseManager.syncCalendarEventsWithFirebase(success -> {
-            if (success) {
-                Log.d(TAG, "Синхронизация календарных событий успешно завершена");
-            } else {
-                Log.e(TAG, "Ошибка при синхронизации календарных событий");
-            }
-
-            // Синхронизируем заметки
-            firebaseManager.syncNotesWithFirebase(notesSuccess -> {
-                if (notesSuccess) {
-                    Log.d(TAG, "Синхронизация заметок успешно завершена");
+        waitingForPrivacy = true;
+        PrivacyAcceptanceChecker.lookup(this, currentUser, new PrivacyAcceptanceChecker.Callback() {
+            @Override
+            public void onResult(boolean accepted) {
+                waitingForPrivacy = false;
+                StartupTrace.mark(StartupTrace.PRIVACY_CHECKED);
+                if (accepted) {
+                    syncAndNavigateToMain();
                 } else {
-                    Log.e(TAG, "Ошибка при синхронизации заметок");
+                    mAuth.signOut();
+                    navigateToLogin(true);
                 }
+            }
 
-                // Синхронизируем пароли
-                firebaseManager.syncPasswordsWithFirebase(passwordsSuccess -> {
-                    if (passwordsSuccess) {
-                        Log.d(TAG, "Синхронизация паролей успешно завершена");
-                    } else {
-                        Log.e(TAG, "Ошибка при синхронизации паролей");
-                    }
-
-                    // Переходим к главному экрану после всех синхронизаций
-                    navigateToMain();
-                });
-            });
+            @Override
+            public void onError(String message) {
+                waitingForPrivacy = false;
+                Log.e(TAG, "Error checking privacy acceptance: " + message);
+                mAuth.signOut();
+                navigateToLogin(false);
+            }
         });
     }
 
+    // Синхронизация ставится в очередь WorkManager, экраны обновятся по ее завершении
+    private void syncAndNavigateToMain() {
+        SyncScheduler.requestSync(this, SyncScheduler.SyncType.CALENDAR);
+        SyncScheduler.requestSync(this, SyncScheduler.SyncType.NOTES);
+        SyncScheduler.requestSync(this, SyncScheduler.SyncType.PASSWORDS);
+        navigateToMain();
+    }
+
     private void navigateToMain() {
+        StartupTrace.mark(StartupTrace.SPLASH_DONE);
         Intent intent = new Intent(SplashActivity.this, MainActivity.class);
         startActivity(intent);
         finish();
     }
 
     private void navigateToLogin(boolean privacyNotAccepted) {
+        StartupTrace.mark(StartupTrace.SPLASH_DONE);
+        StartupTrace.finish("login");
         Intent intent = new Intent(SplashActivity.this, LoginActivity.class);
         if (privacyNotAccepted) {
             intent.putExtra("PRIVACY_NOT_ACCEPTED", true);
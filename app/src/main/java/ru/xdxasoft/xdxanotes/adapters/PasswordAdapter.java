@@ -7,32 +7,54 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 import ru.xdxasoft.xdxanotes.R;
 import ru.xdxasoft.xdxanotes.models.Password;
 
-public class PasswordAdapter extends RecyclerView.Adapter<PasswordAdapter.PasswordViewHolder> {
+public class PasswordAdapter extends ListAdapter<Password, PasswordAdapter.PasswordViewHolder> {
 
     private static final String TAG = "PasswordAdapter";
 
-    private List<Password> passwords;
+    private static final DiffUtil.ItemCallback<Password> DIFF_CALLBACK = new DiffUtil.ItemCallback<Password>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Password oldItem, @NonNull Password newItem) {
+            return oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Password oldItem, @NonNull Password newItem) {
+            return oldItem.getTitle().equals(newItem.getTitle())
+                    && oldItem.getUsername().equals(newItem.getUsername())
+                    && oldItem.getPassword().equals(newItem.getPassword());
+        }
+    };
+
+    // Строковый id записи -> числовой id для RecyclerView, живет вместе с адаптером
+    private final Map<String, Long> stableIds = new HashMap<>();
+
     private OnCopyClickListener copyListener;
+    private OnCopyPasswordClickListener copyPasswordListener;
     private OnDeleteClickListener deleteListener;
     private OnEditClickListener editListener;
     private OnShowPasswordClickListener showPasswordListener;
 
-    public PasswordAdapter(List<Password> passwords,
-                           OnCopyClickListener copyListener,
+    public PasswordAdapter(OnCopyClickListener copyListener,
+                           OnCopyPasswordClickListener copyPasswordListener,
                            OnDeleteClickListener deleteListener,
                            OnEditClickListener editListener,
                            OnShowPasswordClickListener showPasswordListener) {
-        this.passwords = passwords;
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
         this.copyListener = copyListener;
+        this.copyPasswordListener = copyPasswordListener;
         this.deleteListener = deleteListener;
         this.editListener = editListener;
         this.showPasswordListener = showPasswordListener;
@@ -55,8 +77,8 @@ public class PasswordAdapter extends RecyclerView.Adapter<PasswordAdapter.Passwo
     @Override
     public void onBindViewHolder(@NonNull PasswordViewHolder holder, int position) {
         try {
-            if (position >= 0 && position < passwords.size()) {
-                Password password = passwords.get(position);
+            if (position >= 0 && position < getItemCount()) {
+                Password password = getItem(position);
 
                 if (holder.tvTitle != null) {
                     holder.tvTitle.setText(password.getTitle());
@@ -78,10 +100,11 @@ public class PasswordAdapter extends RecyclerView.Adapter<PasswordAdapter.Passwo
                     });
                 }
 
+                // Пароль в записи зашифрован, расшифровывает его обработчик и только по нажатию
                 if (holder.btnCopyPassword != null) {
                     holder.btnCopyPassword.setOnClickListener(v -> {
-                        if (copyListener != null) {
-                            copyListener.onCopyClick(password.getPassword());
+                        if (copyPasswordListener != null) {
+                            copyPasswordListener.onCopyPasswordClick(password);
                         }
                     });
                 }
@@ -124,8 +147,14 @@ public class PasswordAdapter extends RecyclerView.Adapter<PasswordAdapter.Passwo
     }
 
     @Override
-    public int getItemCount() {
-        return passwords != null ? passwords.size() : 0;
+    public long getItemId(int position) {
+        String id = getItem(position).getId();
+        Long stableId = stableIds.get(id);
+        if (stableId == null) {
+            stableId = (long) stableIds.size();
+            stableIds.put(id, stableId);
+        }
+        return stableId;
     }
 
     public static class PasswordViewHolder extends RecyclerView.ViewHolder {
@@ -154,6 +183,10 @@ public class PasswordAdapter extends RecyclerView.Adapter<PasswordAdapter.Passwo
         void onCopyClick(String text);
     }
 
+    public interface OnCopyPasswordClickListener {
+        void onCopyPasswordClick(Password password);
+    }
+
     public interface OnDeleteClickListener {
         void onDeleteClick(String id);
     }
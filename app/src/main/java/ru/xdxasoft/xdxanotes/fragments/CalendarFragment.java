@@ -7,14 +7,17 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.cardview.widget.CardView;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -24,17 +27,21 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import ru.xdxasoft.xdxanotes.R;
 import ru.xdxasoft.xdxanotes.utils.ToastManager;
 import ru.xdxasoft.xdxanotes.utils.firebase.FirebaseManager;
+import ru.xdxasoft.xdxanotes.utils.notes.Adapter.CalendarDaysAdapter;
 import ru.xdxasoft.xdxanotes.utils.notes.CalendarEventTakerActivity;
-import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.CalendarRepository;
 import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.DayEventCount;
+import ru.xdxasoft.xdxanotes.utils.perf.PerfTracer;
 
 /**
  * A simple {@link Fragment} subclass. Use the
@@ -58,21 +65,24 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
 
     private View rootView;
     private TextView textViewMonthYear;
-    private LinearLayout daysContainer;
+    private RecyclerView recyclerViewDays;
     private RecyclerView recyclerViewEvents;
     private FloatingActionButton fabAddEvent;
 
     private Calendar currentCalendar;
     private Calendar selectedDateCalendar;
-    private List<CalendarEvent> allEvents;
     private List<CalendarEvent> selectedDateEvents;
+    private LiveData<List<CalendarEvent>> selectedDateEventsLive;
+    private LiveData<List<DayEventCount>> eventCounts;
     private EventsAdapter eventsAdapter;
+    private CalendarDaysAdapter daysAdapter;
 
-    private RoomDB database;
-    private FirebaseManager firebaseManager;
+    private CalendarRepository calendarRepository;
 
-    private Map<String, List<CalendarEvent>> eventsByDateMap;
-    private List<CardView> dateCards;
+    // Форматы используются только в главном потоке, создаются один раз
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+    private final SimpleDateFormat monthYearFormat = new SimpleDateFormat("MMMM yyyy", new Locale("ru"));
+    private final SimpleDateFormat displayFormat = new SimpleDateFormat("dd MMMM", new Locale("ru"));
 
     public CalendarFragment() {
         // Required empty public constructor
@@ -105,12 +115,8 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
         }
         currentCalendar = Calendar.getInstance();
         selectedDateCalendar = Calendar.getInstance();
-        database = RoomDB.getInstance(getActivity());
-        firebaseManager = FirebaseManager.getInstance(getActivity());
-        allEvents = new ArrayList<>();
+        calendarRepository = CalendarRepository.getInstance(getActivity());
         selectedDateEvents = new ArrayList<>();
-        eventsByDateMap = new HashMap<>();
-        dateCards = new ArrayList<>();
     }
 
     @Override
@@ -119,21 +125,35 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
         rootView = inflater.inflate(R.layout.fragment_calendar, container, false);
         initViews();
         setupCalendar();
-        loadEvents();
         setupListeners();
         return rootView;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        // Данные перечитываются в фоне после любой записи в таблицу
+        observeMonthWindow();
+        loadEventsForSelectedDate();
+    }
+
     private void initViews() {
         textViewMonthYear = rootView.findViewById(R.id.textViewMonthYear);
-        daysContainer = rootView.findViewById(R.id.daysContainer);
+        recyclerViewDays = rootView.findViewById(R.id.recyclerViewDays);
         recyclerViewEvents = rootView.findViewById(R.id.recyclerViewEvents);
         fabAddEvent = rootView.findViewById(R.id.fabAddEvent);
 
         // Настройка RecyclerView
         recyclerViewEvents.setLayoutManager(new LinearLayoutManager(getActivity()));
-        eventsAdapter = new EventsAdapter(selectedDateEvents);
+        eventsAdapter = new EventsAdapter();
         recyclerViewEvents.setAdapter(eventsAdapter);
+
+        // Сетка месяца: 7 колонок, ячейки переиспользуются при листании
+        recyclerViewDays.setLayoutManager(new GridLayoutManager(getActivity(), CalendarDaysAdapter.DAYS_IN_WEEK));
+        recyclerViewDays.setItemAnimator(null);
+        daysAdapter = new CalendarDaysAdapter(requireContext(), this::onDayClick);
+        daysAdapter.setSelectedDate(dateFormat.format(selectedDateCalendar.getTime()));
+        recyclerViewDays.setAdapter(daysAdapter);
     }
 
     private void setupListeners() {
@@ -144,162 +164,26 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
 
     private void setupCalendar() {
         updateMonthYearText();
-        generateCalendarDays();
+        try (PerfTracer.Span span = PerfTracer.start("calendar_generate_days")) {
+            daysAdapter.setMonth(currentCalendar);
+            span.putMetric("days", daysAdapter.getItemCount());
+        }
     }
 
     private void updateMonthYearText() {
-        SimpleDateFormat sdf = new SimpleDateFormat("MMMM yyyy", new Locale("ru"));
-        textViewMonthYear.setText(sdf.format(currentCalendar.getTime()));
+        textViewMonthYear.setText(monthYearFormat.format(currentCalendar.getTime()));
     }
 
-    private void generateCalendarDays() {
-        dateCards.clear();
-        daysContainer.removeAllViews();
-
-        // Сохраняем текущую дату
-        Date currentDate = currentCalendar.getTime();
-
-        // Клонируем календарь для работы с датами
-        Calendar calendar = (Calendar) currentCalendar.clone();
-
-        // Устанавливаем 1 число месяца
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-
-        // Определяем день недели для 1 числа (1 = Понедельник в русской локализации)
-        int firstDayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-        if (firstDayOfWeek == Calendar.SUNDAY) {
-            firstDayOfWeek = 7; // Воскресенье - седьмой день в русской локализации
-        } else {
-            firstDayOfWeek -= 1; // Преобразование к русской локализации
-        }
-
-        // Отступаем назад, чтобы начать с понедельника предыдущей недели
-        calendar.add(Calendar.DAY_OF_MONTH, -(firstDayOfWeek - 1));
-
-        // Создаем строки для календаря (6 недель максимум)
-        for (int week = 0; week < 6; week++) {
-            LinearLayout weekRow = new LinearLayout(getActivity());
-            weekRow.setLayoutParams(new LinearLayout.LayoutParams(
-                    LinearLayout.LayoutParams.MATCH_PARENT,
-                    LinearLayout.LayoutParams.WRAP_CONTENT
-            ));
-            weekRow.setOrientation(LinearLayout.HORIZONTAL);
-            weekRow.setWeightSum(7); // Устанавливаем сумму весов для равномерного распределения
-
-            // Добавляем 7 дней в неделю
-            for (int day = 0; day < 7; day++) {
-                CardView dayCard = createDayView(calendar);
-                weekRow.addView(dayCard);
-                dateCards.add(dayCard);
-
-                // Переходим к следующему дню
-                calendar.add(Calendar.DAY_OF_MONTH, 1);
-            }
-
-            daysContainer.addView(weekRow);
-
-            // Проверка, перешли ли мы уже в следующий месяц
-            if (calendar.get(Calendar.MONTH) != currentCalendar.get(Calendar.MONTH) && week >= 3) {
-                break; // Выходим, если уже отобразили текущий месяц и хотя бы 4 недели
+    private void onDayClick(String dateString) {
+        try {
+            Date date = dateFormat.parse(dateString);
+            if (date != null) {
+                selectedDateCalendar.setTime(date);
+                updateSelectedDate();
             }
+        } catch (ParseException e) {
+            e.printStackTrace();
         }
-
-        // Восстанавливаем дату
-        currentCalendar.setTime(currentDate);
-    }
-
-    private CardView createDayView(Calendar calendar) {
-        boolean isCurrentMonth = calendar.get(Calendar.MONTH) == currentCalendar.get(Calendar.MONTH);
-        boolean isToday = isDateToday(calendar);
-        boolean isSelected = isDateSelected(calendar);
-
-        // Создаем CardView для дня
-        CardView cardView = new CardView(getActivity());
-        int cardSize = getResources().getDimensionPixelSize(R.dimen.day_card_size);
-        // Используем layout_weight вместо фиксированной ширины для равномерного распределения
-        LinearLayout.LayoutParams cardParams = new LinearLayout.LayoutParams(
-                0, // Ширина будет определяться layout_weight
-                cardSize);
-        cardParams.weight = 1; // Одинаковый вес для всех карточек
-        cardParams.setMargins(2, 5, 2, 5); // Уменьшаем отступы по горизонтали
-        cardView.setLayoutParams(cardParams);
-        cardView.setRadius(getResources().getDimensionPixelSize(R.dimen.day_card_radius));
-        cardView.setCardElevation(getResources().getDimensionPixelSize(R.dimen.day_card_elevation));
-
-        // Устанавливаем фон в зависимости от состояния
-        if (isSelected) {
-            cardView.setCardBackgroundColor(getResources().getColor(R.color.selected_day));
-        } else if (isToday) {
-            cardView.setCardBackgroundColor(getResources().getColor(R.color.today));
-        } else if (isCurrentMonth) {
-            cardView.setCardBackgroundColor(getResources().getColor(R.color.current_month_day));
-        } else {
-            cardView.setCardBackgroundColor(getResources().getColor(R.color.other_month_day));
-        }
-
-        // Создаем TextView для числа
-        TextView textViewDay = new TextView(getActivity());
-        textViewDay.setLayoutParams(new ViewGroup.LayoutParams(
-                ViewGroup.LayoutParams.MATCH_PARENT,
-                ViewGroup.LayoutParams.MATCH_PARENT
-        ));
-        textViewDay.setText(String.valueOf(calendar.get(Calendar.DAY_OF_MONTH)));
-        textViewDay.setTextSize(16);
-        textViewDay.setGravity(android.view.Gravity.CENTER);
-
-        // Цвет текста в зависимости от состояния
-        if (isCurrentMonth) {
-            textViewDay.setTextColor(getResources().getColor(R.color.white));
-        } else {
-            textViewDay.setTextColor(getResources().getColor(R.color.gray_text));
-        }
-
-        // Отмечаем день с событиями (если они есть)
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        String dateString = dateFormat.format(calendar.getTime());
-        if (eventsByDateMap.containsKey(dateString) && !eventsByDateMap.get(dateString).isEmpty()) {
-            // Добавляем индикатор событий
-            LinearLayout dayLayout = new LinearLayout(getActivity());
-            dayLayout.setLayoutParams(new ViewGroup.LayoutParams(
-                    ViewGroup.LayoutParams.MATCH_PARENT,
-                    ViewGroup.LayoutParams.MATCH_PARENT
-            ));
-            dayLayout.setOrientation(LinearLayout.VERTICAL);
-            dayLayout.setGravity(android.view.Gravity.CENTER);
-
-            dayLayout.addView(textViewDay);
-
-            View indicator = new View(getActivity());
-            LinearLayout.LayoutParams indicatorParams = new LinearLayout.LayoutParams(
-                    8, 8
-            );
-            indicatorParams.topMargin = 4;
-            indicator.setLayoutParams(indicatorParams);
-            indicator.setBackgroundResource(R.drawable.event_indicator);
-            dayLayout.addView(indicator);
-
-            cardView.addView(dayLayout);
-        } else {
-            cardView.addView(textViewDay);
-        }
-
-        // Сохраняем дату как тег
-        cardView.setTag(dateString);
-
-        // Устанавливаем обработчик нажатия
-        cardView.setOnClickListener(v -> {
-            try {
-                Date date = dateFormat.parse((String) v.getTag());
-                if (date != null) {
-                    selectedDateCalendar.setTime(date);
-                    updateSelectedDate();
-                }
-            } catch (ParseException e) {
-                e.printStackTrace();
-            }
-        });
-
-        return cardView;
     }
 
     private boolean isDateToday(Calendar calendar) {
@@ -309,86 +193,51 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 && calendar.get(Calendar.DAY_OF_MONTH) == today.get(Calendar.DAY_OF_MONTH);
     }
 
-    private boolean isDateSelected(Calendar calendar) {
-        return calendar.get(Calendar.YEAR) == selectedDateCalendar.get(Calendar.YEAR)
-                && calendar.get(Calendar.MONTH) == selectedDateCalendar.get(Calendar.MONTH)
-                && calendar.get(Calendar.DAY_OF_MONTH) == selectedDateCalendar.get(Calendar.DAY_OF_MONTH);
-    }
-
     private void updateSelectedDate() {
-        // Обновляем визуальное отображение выбранной даты
-        for (CardView cardView : dateCards) {
-            String dateString = (String) cardView.getTag();
-            try {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                Date date = dateFormat.parse(dateString);
-                Calendar cardCalendar = Calendar.getInstance();
-                if (date != null) {
-                    cardCalendar.setTime(date);
-                    if (isDateSelected(cardCalendar)) {
-                        cardView.setCardBackgroundColor(getResources().getColor(R.color.selected_day));
-                    } else if (isDateToday(cardCalendar)) {
-                        cardView.setCardBackgroundColor(getResources().getColor(R.color.today));
-                    } else if (cardCalendar.get(Calendar.MONTH) == currentCalendar.get(Calendar.MONTH)) {
-                        cardView.setCardBackgroundColor(getResources().getColor(R.color.current_month_day));
-                    } else {
-                        cardView.setCardBackgroundColor(getResources().getColor(R.color.other_month_day));
-                    }
-                }
-            } catch (ParseException e) {
-                e.printStackTrace();
-            }
-        }
+        // Перепривязываются только ячейки старой и новой выбранной даты
+        daysAdapter.setSelectedDate(dateFormat.format(selectedDateCalendar.getTime()));
 
         // Загружаем события для выбранной даты
         loadEventsForSelectedDate();
     }
 
-    private void loadEvents() {
-        allEvents.clear();
-        eventsByDateMap.clear();
+    // Индикаторы грузятся для видимого месяца и соседних: при листании на месяц
+    // точки уже есть, пока в фоне выполняется запрос для нового окна
+    private void observeMonthWindow() {
+        if (eventCounts != null) {
+            eventCounts.removeObservers(getViewLifecycleOwner());
+        }
 
-        // Загружаем все события из базы данных
-        allEvents.addAll(database.calendarDao().getAll());
+        Calendar start = (Calendar) currentCalendar.clone();
+        start.set(Calendar.DAY_OF_MONTH, 1);
+        start.add(Calendar.MONTH, -1);
 
-        // Группируем события по датам
-        for (CalendarEvent event : allEvents) {
-            String date = event.getDate();
-            if (!eventsByDateMap.containsKey(date)) {
-                eventsByDateMap.put(date, new ArrayList<>());
+        Calendar end = (Calendar) currentCalendar.clone();
+        end.set(Calendar.DAY_OF_MONTH, 1);
+        end.add(Calendar.MONTH, 2);
+        end.add(Calendar.DAY_OF_MONTH, -1);
+
+        eventCounts = calendarRepository.getEventCountsBetween(
+                dateFormat.format(start.getTime()), dateFormat.format(end.getTime()));
+        eventCounts.observe(getViewLifecycleOwner(), this::onEventCountsLoaded);
+    }
+
+    private void onEventCountsLoaded(List<DayEventCount> counts) {
+        Set<String> dates = new HashSet<>();
+        for (DayEventCount count : counts) {
+            if (count.getCount() > 0) {
+                dates.add(count.getDate());
             }
-            eventsByDateMap.get(date).add(event);
         }
 
-        // Обновляем календарь с новыми данными о событиях
-        setupCalendar();
-
-        // Загружаем события для выбранной даты
-        loadEventsForSelectedDate();
+        // Обновляем индикаторы событий в сетке
+        daysAdapter.setEventDates(dates);
     }
 
+    // Список событий выбранного дня, Room перечитывает его после записей в таблицу
     private void loadEventsForSelectedDate() {
-        selectedDateEvents.clear();
-
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        String selectedDateString = dateFormat.format(selectedDateCalendar.getTime());
-
-        // Получаем события для выбранной даты
-        if (eventsByDateMap.containsKey(selectedDateString)) {
-            selectedDateEvents.addAll(eventsByDateMap.get(selectedDateString));
-
-            // Сортируем события: сначала весь день, потом по времени
-            selectedDateEvents.sort((event1, event2) -> {
-                // Если оба события "весь день" или оба НЕ "весь день", сортируем по времени
-                if (event1.getNotificationType() == 2 && event2.getNotificationType() != 2) {
-                    return -1; // event1 (весь день) идет перед event2
-                } else if (event1.getNotificationType() != 2 && event2.getNotificationType() == 2) {
-                    return 1; // event2 (весь день) идет перед event1
-                } else {
-                    // Оба события одного типа, сортируем по времени
-                    return event1.getTime().compareTo(event2.getTime());
-                }
-            });
+        if (selectedDateEventsLive != null) {
+            selectedDateEventsLive.removeObservers(getViewLifecycleOwner());
         }
 
         // Обновляем заголовок сегодняшних событий
@@ -396,12 +245,20 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
         if (isDateToday(selectedDateCalendar)) {
             todayHeader.setText("Сегодня");
         } else {
-            SimpleDateFormat displayFormat = new SimpleDateFormat("dd MMMM", new Locale("ru"));
             todayHeader.setText(displayFormat.format(selectedDateCalendar.getTime()));
         }
 
-        // Обновляем список событий
-        eventsAdapter.notifyDataSetChanged();
+        // Сортировка (сначала весь день, потом по времени) выполняется в запросе
+        selectedDateEventsLive = calendarRepository.observeEventsByDate(
+                dateFormat.format(selectedDateCalendar.getTime()));
+        selectedDateEventsLive.observe(getViewLifecycleOwner(), this::onSelectedDateEventsLoaded);
+    }
+
+    private void onSelectedDateEventsLoaded(List<CalendarEvent> events) {
+        selectedDateEvents = events;
+
+        // Обновляем список событий, разница считается в фоне
+        eventsAdapter.submitList(selectedDateEvents);
 
         // Показываем сообщение, если нет событий
         View emptyView = rootView.findViewById(R.id.emptyEventsView);
@@ -421,13 +278,14 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
         if (id == R.id.imageButtonPrevMonth) {
             currentCalendar.add(Calendar.MONTH, -1);
             setupCalendar();
+            observeMonthWindow();
         } else if (id == R.id.imageButtonNextMonth) {
             currentCalendar.add(Calendar.MONTH, 1);
             setupCalendar();
+            observeMonthWindow();
         } else if (id == R.id.fabAddEvent) {
             // Открываем экран добавления события с выбранной датой
             Intent intent = new Intent(getActivity(), CalendarEventTakerActivity.class);
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
             intent.putExtra("date", dateFormat.format(selectedDateCalendar.getTime()));
             startActivityForResult(intent, REQUEST_CODE_ADD_EVENT);
         }
@@ -443,46 +301,41 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 if (event != null) {
                     if (requestCode == REQUEST_CODE_ADD_EVENT) {
                         // Добавляем новое событие
-                        database.calendarDao().insert(event);
+                        calendarRepository.insert(event);
 
                         // Синхронизируем с Firebase, если пользователь авторизован
-                        if (firebaseManager.isUserLoggedIn()) {
-                            firebaseManager.saveCalendarEventToFirebase(event, success -> {
-                                if (success) {
-                                    showToast("Событие сохранено и синхронизировано");
-                                } else {
-                                    showToast("Событие сохранено локально");
-                                }
-                            });
-                        } else {
-                            showToast("Событие сохранено локально");
-                        }
+                        FirebaseManager.whenReady(requireContext(), manager -> {
+                            if (manager.isUserLoggedIn()) {
+                                manager.saveCalendarEventToFirebase(event, success -> {
+                                    if (success) {
+                                        showToast("Событие сохранено и синхронизировано");
+                                    } else {
+                                        showToast("Событие сохранено локально");
+                                    }
+                                });
+                            } else {
+                                showToast("Событие сохранено локально");
+                            }
+                        });
                     } else {
                         // Обновляем существующее событие
-                        database.calendarDao().update(
-                                event.getID(),
-                                event.getTitle(),
-                                event.getDescription(),
-                                event.getDate(),
-                                event.getTime()
-                        );
+                        calendarRepository.update(event);
 
                         // Синхронизируем с Firebase, если пользователь авторизован
-                        if (firebaseManager.isUserLoggedIn()) {
-                            firebaseManager.saveCalendarEventToFirebase(event, success -> {
-                                if (success) {
-                                    showToast("Событие обновлено и синхронизировано");
-                                } else {
-                                    showToast("Событие обновлено локально");
-                                }
-                            });
-                        } else {
-                            showToast("Событие обновлено локально");
-                        }
+                        FirebaseManager.whenReady(requireContext(), manager -> {
+                            if (manager.isUserLoggedIn()) {
+                                manager.saveCalendarEventToFirebase(event, success -> {
+                                    if (success) {
+                                        showToast("Событие обновлено и синхронизировано");
+                                    } else {
+                                        showToast("Событие обновлено локально");
+                                    }
+                                });
+                            } else {
+                                showToast("Событие обновлено локально");
+                            }
+                        });
                     }
-
-                    // Перезагружаем события
-                    loadEvents();
                 }
             }
         }
@@ -502,13 +355,34 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
         }
     }
 
+    private static final DiffUtil.ItemCallback<CalendarEvent> EVENT_DIFF_CALLBACK = new DiffUtil.ItemCallback<CalendarEvent>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull CalendarEvent oldItem, @NonNull CalendarEvent newItem) {
+            return oldItem.getID() == newItem.getID();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull CalendarEvent oldItem, @NonNull CalendarEvent newItem) {
+            return oldItem.isCompleted() == newItem.isCompleted()
+                    && oldItem.getNotificationType() == newItem.getNotificationType()
+                    && Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getTime(), newItem.getTime())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && Objects.equals(oldItem.getDate(), newItem.getDate());
+        }
+    };
+
     // Адаптер для списка событий
-    private class EventsAdapter extends RecyclerView.Adapter<EventsAdapter.EventViewHolder> {
+    private class EventsAdapter extends ListAdapter<CalendarEvent, EventsAdapter.EventViewHolder> {
 
-        private List<CalendarEvent> events;
+        public EventsAdapter() {
+            super(EVENT_DIFF_CALLBACK);
+            setHasStableIds(true);
+        }
 
-        public EventsAdapter(List<CalendarEvent> events) {
-            this.events = events;
+        @Override
+        public long getItemId(int position) {
+            return getItem(position).getID();
         }
 
         @NonNull
@@ -521,7 +395,7 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
 
         @Override
         public void onBindViewHolder(@NonNull EventViewHolder holder, int position) {
-            CalendarEvent event = events.get(position);
+            CalendarEvent event = getItem(position);
 
             // Отображаем время события по-разному в зависимости от типа
             if (event.getNotificationType() == 2) {
@@ -564,39 +438,38 @@ public class CalendarFragment extends Fragment implements View.OnClickListener {
                 event.setCompleted(newStatus);
 
                 // Обновляем статус в базе данных
-                database.calendarDao().updateCompletionStatus(event.getID(), newStatus);
+                calendarRepository.updateCompletionStatus(event.getID(), newStatus);
 
                 // Синхронизируем с Firebase, если пользователь авторизован
-                if (firebaseManager.isUserLoggedIn()) {
-                    firebaseManager.saveCalendarEventToFirebase(event, null);
-                }
+                FirebaseManager.whenReady(requireContext(), manager -> {
+                    if (manager.isUserLoggedIn()) {
+                        manager.saveCalendarEventToFirebase(event, null);
+                    }
+                });
 
-                notifyItemChanged(position);
+                int adapterPosition = holder.getBindingAdapterPosition();
+                if (adapterPosition != RecyclerView.NO_POSITION) {
+                    notifyItemChanged(adapterPosition);
+                }
             });
 
             // Обработчик долгого нажатия для удаления события
             holder.cardView.setOnLongClickListener(v -> {
                 // Удаляем событие из базы данных
-                database.calendarDao().delete(event);
+                calendarRepository.delete(event);
 
                 // Удаляем из Firebase, если пользователь авторизован
-                if (firebaseManager.isUserLoggedIn()) {
-                    firebaseManager.deleteCalendarEventFromFirebase(event, null);
-                }
-
-                // Перезагружаем события
-                loadEvents();
+                FirebaseManager.whenReady(requireContext(), manager -> {
+                    if (manager.isUserLoggedIn()) {
+                        manager.deleteCalendarEventFromFirebase(event, null);
+                    }
+                });
 
                 showToast("Событие удалено");
                 return true;
             });
         }
 
-        @Override
-        public int getItemCount() {
-            return events.size();
-        }
-
         class EventViewHolder extends RecyclerView.ViewHolder {
 
             CardView cardView;
@@ -1,9 +1,12 @@
 package ru.xdxasoft.xdxanotes.fragments;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
@@ -17,6 +20,9 @@ import androidx.appcompat.widget.PopupMenu;
 import androidx.appcompat.widget.SearchView;
 import androidx.cardview.widget.CardView;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LiveData;
+import androidx.paging.PagingData;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.StaggeredGridLayoutManager;
@@ -25,15 +31,18 @@ import androidx.core.content.ContextCompat;
 import com.google.android.material.color.ColorRoles;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.util.ArrayList;
-import java.util.List;
+import kotlin.Unit;
 
 import ru.xdxasoft.xdxanotes.R;
 import ru.xdxasoft.xdxanotes.activity.MainActivity;
+import ru.xdxasoft.xdxanotes.services.SyncScheduler;
+import ru.xdxasoft.xdxanotes.utils.StartupTrace;
+import ru.xdxasoft.xdxanotes.utils.perf.PerfTracer;
 import ru.xdxasoft.xdxanotes.utils.ToastManager;
 import ru.xdxasoft.xdxanotes.utils.firebase.FirebaseManager;
 import ru.xdxasoft.xdxanotes.utils.notes.Adapter.NotesListAdapter;
-import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.NotesRepository;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSummary;
 import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
 import ru.xdxasoft.xdxanotes.utils.notes.NotesClickListener;
 import ru.xdxasoft.xdxanotes.utils.notes.NotesTakerActivity;
@@ -41,15 +50,19 @@ import ru.xdxasoft.xdxanotes.utils.notes.NotesTakerActivity;
 public class NotesFragment extends Fragment implements PopupMenu.OnMenuItemClickListener {
 
     private static final String TAG = "NotesFragment";
+    private static final long SEARCH_DEBOUNCE_MS = 300;
 
     private RecyclerView recyclerView;
     private FloatingActionButton fabAdd;
     private NotesListAdapter notesListAdapter;
-    private RoomDB database;
-    private List<Notes> notes = new ArrayList<>();
+    private NotesRepository notesRepository;
+    private LiveData<PagingData<NoteSummary>> pagedNotes;
     private SearchView searchViewHome;
-    private Notes selectedNote;
-    private FirebaseManager firebaseManager;
+    private NoteSummary selectedNote;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSearch;
+    // Замер поиска: от запроса до показа первой страницы результатов
+    private PerfTracer.Span filterSpan;
 
     @Nullable
     @Override
@@ -73,30 +86,17 @@ public class NotesFragment extends Fragment implements PopupMenu.OnMenuItemClick
         }
 
         try {
-            database = RoomDB.getInstance(requireContext());
-            firebaseManager = FirebaseManager.getInstance(requireContext());
-
-            notes = database.mainDao().getAll();
-            updateRecycler(notes);
-
-            if (firebaseManager.isUserLoggedIn()) {
-                firebaseManager.syncNotesWithFirebase(success -> {
-                    if (success) {
-                        try {
-                            notes.clear();
-                            notes.addAll(database.mainDao().getAll());
-                            if (notesListAdapter != null) {
-                                notesListAdapter.notifyDataSetChanged();
-                            }
-                            Log.d(TAG, "Notes synced successfully, count: " + notes.size());
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error updating notes after sync", e);
-                        }
-                    } else {
-                        Log.e(TAG, "Failed to sync notes with Firebase");
-                    }
-                });
-            }
+            notesRepository = NotesRepository.getInstance(requireContext());
+
+            updateRecycler();
+
+            // Список наблюдает за Room и обновится сам после синхронизации
+            Context appContext = requireContext().getApplicationContext();
+            FirebaseManager.whenReady(appContext, manager -> {
+                if (manager.isUserLoggedIn()) {
+                    SyncScheduler.requestSync(appContext, SyncScheduler.SyncType.NOTES);
+                }
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error initializing database or Firebase", e);
 
@@ -133,21 +133,64 @@ public class NotesFragment extends Fragment implements PopupMenu.OnMenuItemClick
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        if (notesRepository != null) {
+            observeNotes(null);
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        if (pendingSearch != null) {
+            searchHandler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+        cancelFilterSpan();
+        super.onDestroyView();
+    }
+
+    // Запрос к индексу уходит только после паузы в наборе, а не на каждый символ
     private void filter(String newText) {
-        try {
-            List<Notes> filteredList = new ArrayList<>();
-            for (Notes singleNote : notes) {
-                if (singleNote.getTitle().toLowerCase().contains(newText.toLowerCase())
-                        || singleNote.getNotes().toLowerCase().contains(newText.toLowerCase())) {
-                    filteredList.add(singleNote);
-                }
+        if (pendingSearch != null) {
+            searchHandler.removeCallbacks(pendingSearch);
+        }
+        pendingSearch = () -> {
+            pendingSearch = null;
+            try {
+                // Прошлый поиск не дождался своей страницы, его замер не нужен
+                cancelFilterSpan();
+                filterSpan = PerfTracer.start("notes_filter")
+                        .putMetric("query_length", newText.length());
+                observeNotes(newText);
+            } catch (Exception e) {
+                Log.e(TAG, "Error filtering notes", e);
             }
+        };
+        searchHandler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MS);
+    }
+
+    private void cancelFilterSpan() {
+        if (filterSpan != null) {
+            filterSpan.cancel();
+            filterSpan = null;
+        }
+    }
+
+    // Подписка на постраничный список, Room сам обновляет его после записей в таблицу notes
+    private void observeNotes(String query) {
+        if (pagedNotes != null) {
+            pagedNotes.removeObservers(getViewLifecycleOwner());
+        }
+        Lifecycle lifecycle = getViewLifecycleOwner().getLifecycle();
+        pagedNotes = notesRepository.getPaged(query, lifecycle);
+        pagedNotes.observe(getViewLifecycleOwner(), pagingData -> {
             if (notesListAdapter != null) {
-                notesListAdapter.filterList(filteredList);
+                notesListAdapter.submitData(lifecycle, pagingData);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error filtering notes", e);
-        }
+        });
     }
 
     @Override
@@ -158,46 +201,38 @@ public class NotesFragment extends Fragment implements PopupMenu.OnMenuItemClick
             if (requestCode == 101 && resultCode == Activity.RESULT_OK && data != null) {
                 Notes newNote = (Notes) data.getSerializableExtra("note");
                 if (newNote != null) {
-                    database.mainDao().insert(newNote);
+                    notesRepository.insert(newNote);
                     Log.d(TAG, "New note saved locally: " + newNote.getTitle());
 
-                    notes.clear();
-                    notes.addAll(database.mainDao().getAll());
-                    if (notesListAdapter != null) {
-                        notesListAdapter.notifyDataSetChanged();
-                    }
-
-                    if (firebaseManager.isUserLoggedIn()) {
-                        firebaseManager.saveNoteToFirebase(newNote, success -> {
-                            if (success) {
-                                Log.d(TAG, "Note saved to Firebase: " + newNote.getTitle());
-                            } else {
-                                Log.e(TAG, "Failed to save note to Firebase: " + newNote.getTitle());
-                            }
-                        });
-                    }
+                    FirebaseManager.whenReady(requireContext(), manager -> {
+                        if (manager.isUserLoggedIn()) {
+                            manager.saveNoteToFirebase(newNote, success -> {
+                                if (success) {
+                                    Log.d(TAG, "Note saved to Firebase: " + newNote.getTitle());
+                                } else {
+                                    Log.e(TAG, "Failed to save note to Firebase: " + newNote.getTitle());
+                                }
+                            });
+                        }
+                    });
                 }
             } else if (requestCode == 102 && resultCode == Activity.RESULT_OK && data != null) {
                 Notes updatedNote = (Notes) data.getSerializableExtra("note");
                 if (updatedNote != null) {
-                    database.mainDao().update(updatedNote.getID(), updatedNote.getTitle(), updatedNote.getNotes());
+                    notesRepository.update(updatedNote);
                     Log.d(TAG, "Note updated locally: " + updatedNote.getTitle());
 
-                    notes.clear();
-                    notes.addAll(database.mainDao().getAll());
-                    if (notesListAdapter != null) {
-                        notesListAdapter.notifyDataSetChanged();
-                    }
-
-                    if (firebaseManager.isUserLoggedIn()) {
-                        firebaseManager.saveNoteToFirebase(updatedNote, success -> {
-                            if (success) {
-                                Log.d(TAG, "Note updated in Firebase: " + updatedNote.getTitle());
-                            } else {
-                                Log.e(TAG, "Failed to update note in Firebase: " + updatedNote.getTitle());
-                            }
-                        });
-                    }
+                    FirebaseManager.whenReady(requireContext(), manager -> {
+                        if (manager.isUserLoggedIn()) {
+                            manager.saveNoteToFirebase(updatedNote, success -> {
+                                if (success) {
+                                    Log.d(TAG, "Note updated in Firebase: " + updatedNote.getTitle());
+                                } else {
+                                    Log.e(TAG, "Failed to update note in Firebase: " + updatedNote.getTitle());
+                                }
+                            });
+                        }
+                    });
                 }
             }
         } catch (Exception e) {
@@ -217,13 +252,30 @@ public class NotesFragment extends Fragment implements PopupMenu.OnMenuItemClick
         }
     }
 
-    private void updateRecycler(List<Notes> notes) {
+    private void updateRecycler() {
         try {
             recyclerView.setHasFixedSize(true);
             recyclerView.setLayoutManager(new StaggeredGridLayoutManager(2, LinearLayoutManager.VERTICAL));
-            notesListAdapter = new NotesListAdapter(requireContext(), notes, notesClickListener);
+            notesListAdapter = new NotesListAdapter(requireContext(), notesClickListener);
             recyclerView.setAdapter(notesListAdapter);
-            Log.d(TAG, "RecyclerView updated with " + notes.size() + " notes");
+            notesListAdapter.addOnPagesUpdatedListener(() -> {
+                if (filterSpan != null) {
+                    filterSpan.putMetric("rows", notesListAdapter.getItemCount()).stop();
+                    filterSpan = null;
+                }
+                return Unit.INSTANCE;
+            });
+            // Первая страница из Room на экране: запуск приложения завершен
+            notesListAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+                @Override
+                public void onItemRangeInserted(int positionStart, int itemCount) {
+                    notesListAdapter.unregisterAdapterDataObserver(this);
+                    StartupTrace.mark(StartupTrace.FIRST_NOTES_SHOWN);
+                    if (getActivity() != null) {
+                        getActivity().reportFullyDrawn();
+                    }
+                }
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error updating RecyclerView", e);
         }
@@ -231,10 +283,11 @@ public class NotesFragment extends Fragment implements PopupMenu.OnMenuItemClick
 
     private final NotesClickListener notesClickListener = new NotesClickListener() {
         @Override
-        public void onClick(Notes notes) {
+        public void onClick(NoteSummary notes) {
             try {
+                // Полный текст заметки загрузит сам редактор
                 Intent intent = new Intent(getActivity(), NotesTakerActivity.class);
-                intent.putExtra("old_note", notes);
+                intent.putExtra("note_id", notes.getID());
                 startActivityForResult(intent, 102);
             } catch (Exception e) {
                 Log.e(TAG, "Error opening note for editing", e);
@@ -242,13 +295,13 @@ public class NotesFragment extends Fragment implements PopupMenu.OnMenuItemClick
         }
 
         @Override
-        public void onLongCLick(Notes notes, CardView cardView) {
+        public void onLongCLick(NoteSummary notes, CardView cardView) {
             selectedNote = notes;
             showPopup(cardView);
         }
 
         @Override
-        public void onLongClick(Notes notes, CardView cardView) {
+        public void onLongClick(NoteSummary notes, CardView cardView) {
             selectedNote = notes;
             showPopup(cardView);
         }
@@ -269,60 +322,41 @@ public class NotesFragment extends Fragment implements PopupMenu.OnMenuItemClick
     public boolean onMenuItemClick(MenuItem item) {
         try {
             if (item.getItemId() == R.id.pin) {
-                if (selectedNote.isPinned()) {
-                    database.mainDao().pin(selectedNote.getID(), false);
-                    MainActivity mainActivity = (MainActivity) getActivity();
-                    if (mainActivity != null) {
-                        mainActivity.showCustomToast(
-                                getString(R.string.Unpinned),
-                                R.drawable.ic_galohca_black,
-                                ContextCompat.getColor(requireContext(), R.color.success_green),
-                                ContextCompat.getColor(requireContext(), R.color.black),
-                                ContextCompat.getColor(requireContext(), R.color.black),
-                                false
-                        );
-                    }
-                } else {
-                    database.mainDao().pin(selectedNote.getID(), true);
-
-                    MainActivity mainActivity = (MainActivity) getActivity();
-                    if (mainActivity != null) {
-                        mainActivity.showCustomToast(
-                                getString(R.string.Pinned),
-                                R.drawable.ic_galohca_black,
-                                ContextCompat.getColor(requireContext(), R.color.success_green),
-                                ContextCompat.getColor(requireContext(), R.color.black),
-                                ContextCompat.getColor(requireContext(), R.color.black),
-                                false
-                        );
-                    }
-                }
-
-                notes.clear();
-                notes.addAll(database.mainDao().getAll());
-                if (notesListAdapter != null) {
-                    notesListAdapter.notifyDataSetChanged();
-                }
-
-                if (firebaseManager.isUserLoggedIn()) {
-                    Notes updatedNote = database.mainDao().getById(selectedNote.getID());
+                boolean pin = !selectedNote.isPinned();
+                Context appContext = requireContext().getApplicationContext();
+                notesRepository.pin(selectedNote.getID(), pin, updatedNote -> {
                     if (updatedNote != null) {
-                        firebaseManager.saveNoteToFirebase(updatedNote, null);
+                        FirebaseManager.whenReady(appContext, manager -> {
+                            if (manager.isUserLoggedIn()) {
+                                manager.saveNoteToFirebase(updatedNote, null);
+                            }
+                        });
                     }
+                });
+
+                MainActivity mainActivity = (MainActivity) getActivity();
+                if (mainActivity != null) {
+                    mainActivity.showCustomToast(
+                            getString(pin ? R.string.Pinned : R.string.Unpinned),
+                            R.drawable.ic_galohca_black,
+                            ContextCompat.getColor(requireContext(), R.color.success_green),
+                            ContextCompat.getColor(requireContext(), R.color.black),
+                            ContextCompat.getColor(requireContext(), R.color.black),
+                            false
+                    );
                 }
 
                 return true;
 
             } else if (item.getItemId() == R.id.delete) {
-                if (firebaseManager.isUserLoggedIn()) {
-                    firebaseManager.deleteNoteFromFirebase(selectedNote, null);
-                }
+                int noteId = selectedNote.getID();
+                FirebaseManager.whenReady(requireContext(), manager -> {
+                    if (manager.isUserLoggedIn()) {
+                        manager.deleteNoteFromFirebase(noteId, null);
+                    }
+                });
 
-                database.mainDao().delete(selectedNote);
-                notes.remove(selectedNote);
-                if (notesListAdapter != null) {
-                    notesListAdapter.notifyDataSetChanged();
-                }
+                notesRepository.delete(selectedNote.getID());
 
                 MainActivity mainActivity = (MainActivity) getActivity();
                 if (mainActivity != null) {
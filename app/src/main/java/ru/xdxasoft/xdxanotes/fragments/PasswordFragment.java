@@ -1,11 +1,8 @@
 package ru.xdxasoft.xdxanotes.fragments;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.content.ClipData;
 import android.content.ClipboardManager;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -16,6 +13,8 @@ import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -24,16 +23,15 @@ import androidx.core.content.ContextCompat;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import ru.xdxasoft.xdxanotes.R;
 import ru.xdxasoft.xdxanotes.activity.MainActivity;
 import ru.xdxasoft.xdxanotes.adapters.PasswordAdapter;
 import ru.xdxasoft.xdxanotes.models.Password;
-import ru.xdxasoft.xdxanotes.utils.IdGenerator;
-import ru.xdxasoft.xdxanotes.utils.PasswordDatabaseHelper;
+import ru.xdxasoft.xdxanotes.services.SyncScheduler;
 import ru.xdxasoft.xdxanotes.utils.firebase.FirebaseManager;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.PasswordRepository;
+import ru.xdxasoft.xdxanotes.utils.vault.PasswordVault;
+import ru.xdxasoft.xdxanotes.utils.vault.VaultUnlocker;
 
 public class PasswordFragment extends Fragment {
 
@@ -45,16 +43,14 @@ public class PasswordFragment extends Fragment {
 
     private RecyclerView rvPasswords;
     private PasswordAdapter adapter;
-    private List<Password> passwords;
-    private SQLiteDatabase database;
-    private PasswordDatabaseHelper dbHelper;
+    private PasswordRepository passwordRepository;
+    private PasswordVault vault;
     private FloatingActionButton fabAdd;
     private BottomSheetDialog bottomSheetDialog;
     private EditText etTitle, etUsername, etPassword;
     private Button btnSave;
     private TextView tvBottomSheetTitle;
     private Password currentEditingPassword;
-    private FirebaseManager firebaseManager;
 
     public PasswordFragment() {
     }
@@ -84,23 +80,12 @@ public class PasswordFragment extends Fragment {
 
         try {
             initViews(view);
-            initDatabase();
+            passwordRepository = PasswordRepository.getInstance(requireContext());
+            vault = PasswordVault.getInstance(requireContext());
             setupRecyclerView();
             setupBottomSheet();
 
-            firebaseManager = FirebaseManager.getInstance(requireContext());
-
-            loadPasswords();
-
-            if (firebaseManager.isUserLoggedIn()) {
-                firebaseManager.syncPasswordsWithFirebase(success -> {
-                    if (success) {
-                        loadPasswords();
-                    }
-                });
-            }
-
-            fabAdd.setOnClickListener(v -> showBottomSheet(null));
+            fabAdd.setOnClickListener(v -> showBottomSheet(null, null));
         } catch (Exception e) {
             Log.e("PasswordFragment", "Error in onCreateView", e);
             showToast(getString(R.string.Initialization_error) + e.getMessage(), true);
@@ -109,16 +94,34 @@ public class PasswordFragment extends Fragment {
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        if (passwordRepository == null) {
+            return;
+        }
+        // Менеджер Firebase создается в фоне, список подключается, когда он готов
+        FirebaseManager.whenReady(requireContext(), manager -> {
+            if (getView() == null) {
+                return;
+            }
+            if (manager.isUserLoggedIn()) {
+                SyncScheduler.requestSync(requireContext(), SyncScheduler.SyncType.PASSWORDS);
+            }
+            // Room сам перечитывает список после сохранения, удаления и синхронизации
+            passwordRepository.observeForUser(manager.getUserId())
+                    .observe(getViewLifecycleOwner(), passwords ->
+                            // Разница со старым списком считается в фоне, перерисовываются только изменившиеся строки
+                            adapter.submitList(passwords));
+        });
+    }
+
     private void initViews(View view) {
         rvPasswords = view.findViewById(R.id.rvPasswords);
         fabAdd = view.findViewById(R.id.fabAdd);
     }
 
-    private void initDatabase() {
-        dbHelper = new PasswordDatabaseHelper(requireContext());
-        database = dbHelper.getWritableDatabase();
-    }
-
     private void setupBottomSheet() {
         bottomSheetDialog = new BottomSheetDialog(requireContext());
         View bottomSheetView = getLayoutInflater().inflate(R.layout.bottom_sheet_password, null);
@@ -133,14 +136,19 @@ public class PasswordFragment extends Fragment {
         btnSave.setOnClickListener(v -> savePassword());
     }
 
-    private void showBottomSheet(Password password) {
+    // Форма правки показывает пароль, поэтому открывается только в разблокированном хранилище
+    private void editPassword(Password password) {
+        revealPassword(password, plain -> showBottomSheet(password, plain));
+    }
+
+    private void showBottomSheet(Password password, String plainPassword) {
         currentEditingPassword = password;
         tvBottomSheetTitle.setText(password == null ? getString(R.string.Add_password) : getString(R.string.Edit_password));
 
         if (password != null) {
             etTitle.setText(password.getTitle());
             etUsername.setText(password.getUsername());
-            etPassword.setText(password.getPassword());
+            etPassword.setText(plainPassword);
         } else {
             etTitle.setText("");
             etUsername.setText("");
@@ -151,37 +159,17 @@ public class PasswordFragment extends Fragment {
     }
 
     private void setupRecyclerView() {
-        passwords = new ArrayList<>();
         adapter = new PasswordAdapter(
-                passwords,
                 this::copyToClipboard,
+                password -> revealPassword(password, this::copyToClipboard),
                 this::deletePassword,
-                this::showBottomSheet,
+                this::editPassword,
                 this::togglePasswordVisibility
         );
         rvPasswords.setLayoutManager(new LinearLayoutManager(requireContext()));
         rvPasswords.setAdapter(adapter);
     }
 
-    private void loadPasswords() {
-        passwords.clear();
-        Cursor cursor = database.query("passwords", null, "userId = ?",
-                new String[]{firebaseManager.getUserId()}, null, null, "title ASC");
-
-        while (cursor.moveToNext()) {
-            String id = cursor.getString(0);
-            String title = cursor.getString(1);
-            String username = cursor.getString(2);
-            String password = cursor.getString(3);
-            String userId = cursor.getString(4);
-
-            Password passwordObj = new Password(id, title, username, password, userId);
-            passwords.add(passwordObj);
-        }
-        cursor.close();
-        adapter.notifyDataSetChanged();
-    }
-
     private void savePassword() {
         String title = etTitle.getText().toString().trim();
         String username = etUsername.getText().toString().trim();
@@ -192,38 +180,26 @@ public class PasswordFragment extends Fragment {
             return;
         }
 
-        Password newPassword;
-        if (currentEditingPassword != null) {
-            newPassword = currentEditingPassword;
-            newPassword.setTitle(title);
-            newPassword.setUsername(username);
-            newPassword.setPassword(password);
-        } else {
-            newPassword = new Password(title, username, password, firebaseManager.getUserId());
-        }
+        Password editing = currentEditingPassword;
+        FirebaseManager.whenReady(requireContext(), manager -> {
+            Password newPassword;
+            if (editing != null) {
+                // Копия, а не правка элемента списка: иначе DiffUtil не увидит изменений
+                newPassword = new Password(editing.getId(), title, username, password,
+                        editing.getUserId());
+            } else {
+                newPassword = new Password(title, username, password, manager.getUserId());
+            }
 
-        firebaseManager.savePasswordToFirebase(newPassword, success -> {
-            if (success) {
-                ContentValues values = new ContentValues();
-                values.put("id", newPassword.getId());
-                values.put("title", newPassword.getTitle());
-                values.put("username", newPassword.getUsername());
-                values.put("password", newPassword.getPassword());
-                values.put("userId", newPassword.getUserId());
-
-                if (currentEditingPassword != null) {
-                    database.update("passwords", values, "id = ? AND userId = ?",
-                            new String[]{newPassword.getId(), newPassword.getUserId()});
+            manager.savePasswordToFirebase(newPassword, success -> {
+                if (success) {
+                    passwordRepository.save(newPassword);
+                    bottomSheetDialog.dismiss();
+                    showToast(getString(R.string.Password_saved), false);
                 } else {
-                    database.insert("passwords", null, values);
+                    showToast(getString(R.string.Error_saving_password), true);
                 }
-
-                loadPasswords();
-                bottomSheetDialog.dismiss();
-                showToast(getString(R.string.Password_saved), false);
-            } else {
-                showToast(getString(R.string.Error_saving_password), true);
-            }
+            });
         });
     }
 
@@ -235,23 +211,44 @@ public class PasswordFragment extends Fragment {
     }
 
     private void deletePassword(String id) {
-        if (firebaseManager.isUserLoggedIn()) {
-            firebaseManager.deletePasswordFromFirebase(id, null);
-        }
+        FirebaseManager.whenReady(requireContext(), manager -> {
+            if (manager.isUserLoggedIn()) {
+                manager.deletePasswordFromFirebase(id, null);
+            }
 
-        database.delete("passwords", "id = ?", new String[]{id});
-        loadPasswords();
+            passwordRepository.delete(id, manager.getUserId());
+        });
         showToast("DELLPASS", false);
     }
 
     private void togglePasswordVisibility(Password password, TextView tvPassword) {
         if (tvPassword.getText().toString().equals("••••••••")) {
-            tvPassword.setText(password.getPassword());
+            revealPassword(password, tvPassword::setText);
         } else {
             tvPassword.setText("••••••••");
         }
     }
 
+    /**
+     * Расшифровывает пароль записи, при необходимости сначала запрашивая
+     * разблокировку хранилища.
+     */
+    private void revealPassword(Password password, PlainPasswordCallback callback) {
+        VaultUnlocker.runUnlocked(this, () -> {
+            String plain = vault.reveal(password.getPassword());
+            if (plain != null) {
+                callback.onRevealed(plain);
+            } else {
+                showToast(getString(R.string.vault_decrypt_error), true);
+            }
+        });
+    }
+
+    private interface PlainPasswordCallback {
+
+        void onRevealed(String plain);
+    }
+
     private void showToast(String message, boolean isError) {
         MainActivity mainActivity = (MainActivity) getActivity();
         if (mainActivity != null) {
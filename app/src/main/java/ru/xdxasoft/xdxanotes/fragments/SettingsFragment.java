@@ -13,6 +13,7 @@ import android.widget.TextView;
 import androidx.fragment.app.Fragment;
 
 import com.google.android.material.snackbar.Snackbar;
+import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.auth.UserInfo;
@@ -37,10 +38,10 @@ public class SettingsFragment extends Fragment {
     // UI компоненты
     private TextView tvUserEmail, tvAuthMethod, tvCurrentLanguage, tvLanguageMode;
     private Button btnLogout, btnToggleLanguage, btnSystemLanguage;
+    private SwitchMaterial switchLiveSync;
 
     // Firebase компоненты
     private FirebaseAuth firebaseAuth;
-    private FirebaseManager firebaseManager;
 
     public SettingsFragment() {
         // Required empty public constructor
@@ -50,7 +51,6 @@ public class SettingsFragment extends Fragment {
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         firebaseAuth = FirebaseAuth.getInstance();
-        firebaseManager = FirebaseManager.getInstance(requireContext());
     }
 
     @Override
@@ -77,6 +77,7 @@ public class SettingsFragment extends Fragment {
         btnLogout = view.findViewById(R.id.btnLogout);
         btnToggleLanguage = view.findViewById(R.id.btnToggleLanguage);
         btnSystemLanguage = view.findViewById(R.id.btnSystemLanguage);
+        switchLiveSync = view.findViewById(R.id.switchLiveSync);
     }
 
     private void setupListeners() {
@@ -91,6 +92,13 @@ public class SettingsFragment extends Fragment {
             mainActivity.finish();
         });
 
+        // Живая синхронизация вместо периодического опроса
+        FirebaseManager.whenReady(requireContext(), manager -> {
+            switchLiveSync.setChecked(manager.isLiveSyncEnabled());
+            switchLiveSync.setOnCheckedChangeListener((buttonView, isChecked) ->
+                    manager.setLiveSyncEnabled(isChecked));
+        });
+
         // Переключение языка
         btnToggleLanguage.setOnClickListener(v -> {
             if (getActivity() != null) {
@@ -119,11 +127,13 @@ public class SettingsFragment extends Fragment {
             tvAuthMethod.setText(getString(R.string.auth_method) + ": " + authMethod);
 
             btnLogout.setEnabled(true);
+            switchLiveSync.setEnabled(true);
         } else {
             // Пользователь не авторизован
             tvUserEmail.setText(getString(R.string.not_logged_in));
             tvAuthMethod.setText(getString(R.string.auth_method) + ": " + getString(R.string.not_available));
             btnLogout.setEnabled(false);
+            switchLiveSync.setEnabled(false);
         }
     }
 
@@ -1,24 +1,47 @@
 package ru.xdxasoft.xdxanotes.models;
 
 import androidx.annotation.Keep;
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
 
 import java.io.Serializable;
 
 import ru.xdxasoft.xdxanotes.utils.IdGenerator;
 
+/**
+ * Запись хранилища паролей. Хранится в {@code RoomDB}, все выборки идут по
+ * пользователю с сортировкой по названию, отсюда составной индекс.
+ */
 @Keep
+@Entity(tableName = "passwords", indices = {@Index(value = {"userId", "title"})})
 public class Password implements Serializable {
 
-    private String id;
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "id")
+    private String id = "";
+
+    @ColumnInfo(name = "title")
     private String title;
+
+    @ColumnInfo(name = "username")
     private String username;
+
+    @ColumnInfo(name = "password")
     private String password;
+
+    @ColumnInfo(name = "userId")
     private String userId;
 
     public Password() {
 
     }
 
+    @Ignore
     public Password(String id, String title, String username, String password, String userId) {
         this.id = id;
         this.title = title;
@@ -27,6 +50,7 @@ public class Password implements Serializable {
         this.userId = userId;
     }
 
+    @Ignore
     public Password(String title, String username, String password, String userId) {
         this.id = IdGenerator.generateRandomId();
         this.title = title;
@@ -35,12 +59,13 @@ public class Password implements Serializable {
         this.userId = userId;
     }
 
+    @NonNull
     public String getId() {
         return id != null ? id : "";
     }
 
     public void setId(String id) {
-        this.id = id;
+        this.id = id != null ? id : "";
     }
 
     public String getTitle() {
@@ -74,4 +99,12 @@ public class Password implements Serializable {
     public void setUserId(String userId) {
         this.userId = userId;
     }
+
+    // Совпадают ли все хранимые поля, кроме id
+    public boolean sameContent(Password other) {
+        return getTitle().equals(other.getTitle())
+                && getUsername().equals(other.getUsername())
+                && getPassword().equals(other.getPassword())
+                && getUserId().equals(other.getUserId());
+    }
 }
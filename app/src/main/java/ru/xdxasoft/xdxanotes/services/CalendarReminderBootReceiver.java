@@ -3,12 +3,14 @@ package ru.xdxasoft.xdxanotes.services;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
 import android.util.Log;
 
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.DatabaseExecutor;
+
 /**
- * Получатель широковещательного сообщения о загрузке системы. Запускает сервис
- * напоминаний календаря при загрузке устройства.
+ * Получатель широковещательного сообщения о загрузке системы. Будильники
+ * AlarmManager не переживают перезагрузку и смену времени, поэтому здесь они
+ * ставятся заново.
  */
 public class CalendarReminderBootReceiver extends BroadcastReceiver {
 
@@ -19,19 +21,20 @@ public class CalendarReminderBootReceiver extends BroadcastReceiver {
         if (intent.getAction() != null
                 && (intent.getAction().equals(Intent.ACTION_BOOT_COMPLETED)
                 || intent.getAction().equals(Intent.ACTION_MY_PACKAGE_REPLACED)
-                || intent.getAction().equals(Intent.ACTION_REBOOT))) {
-
-            Log.d(TAG, "Устройство загружено, запускаем сервис календарных напоминаний");
-
-            // Запускаем сервис напоминаний
-            Intent serviceIntent = new Intent(context, CalendarReminderService.class);
+                || intent.getAction().equals(Intent.ACTION_REBOOT)
+                || intent.getAction().equals(Intent.ACTION_TIME_CHANGED)
+                || intent.getAction().equals(Intent.ACTION_TIMEZONE_CHANGED))) {
 
-            // Для Android 8.0 (API 26) и выше нельзя запускать фоновые сервисы напрямую
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                context.startForegroundService(serviceIntent);
-            } else {
-                context.startService(serviceIntent);
-            }
+            Log.d(TAG, "Устройство загружено, переставляем напоминания календаря");
+            Context appContext = context.getApplicationContext();
+            PendingResult pendingResult = goAsync();
+            DatabaseExecutor.execute(() -> {
+                try {
+                    ReminderScheduler.run(appContext);
+                } finally {
+                    pendingResult.finish();
+                }
+            });
         }
     }
 }
@@ -0,0 +1,30 @@
+package ru.xdxasoft.xdxanotes.services;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import ru.xdxasoft.xdxanotes.utils.firebase.FirebaseManager;
+
+/**
+ * Отправляет очередь отложенных записей в Firebase. При ошибке задача
+ * повторяется с экспоненциальной задержкой, заданной в {@link SyncScheduler}.
+ */
+public class OutboxWorker extends Worker {
+
+    public OutboxWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseManager firebaseManager = FirebaseManager.getInstance(getApplicationContext());
+        if (!firebaseManager.isUserLoggedIn()) {
+            return Result.success();
+        }
+        return firebaseManager.getOutbox().drain() ? Result.success() : Result.retry();
+    }
+}
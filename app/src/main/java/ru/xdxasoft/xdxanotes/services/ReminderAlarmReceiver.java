@@ -0,0 +1,32 @@
+package ru.xdxasoft.xdxanotes.services;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.DatabaseExecutor;
+
+/**
+ * Срабатывание будильника {@link ReminderScheduler}: показывает наступившие
+ * напоминания и ставит будильник на следующее.
+ */
+public class ReminderAlarmReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "ReminderAlarmReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Context appContext = context.getApplicationContext();
+        PendingResult pendingResult = goAsync();
+        DatabaseExecutor.execute(() -> {
+            try {
+                ReminderScheduler.run(appContext);
+            } catch (Exception e) {
+                Log.e(TAG, "Error firing reminders", e);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+}
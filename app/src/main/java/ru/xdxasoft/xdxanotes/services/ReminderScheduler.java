@@ -0,0 +1,288 @@
+package ru.xdxasoft.xdxanotes.services;
+
+import android.app.AlarmManager;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import ru.xdxasoft.xdxanotes.R;
+import ru.xdxasoft.xdxanotes.activity.MainActivity;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.DatabaseExecutor;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
+import ru.xdxasoft.xdxanotes.utils.perf.PerfSinks;
+import ru.xdxasoft.xdxanotes.utils.perf.PerfTracer;
+
+/**
+ * Планировщик напоминаний календаря. Из предстоящих событий строится очередь
+ * моментов срабатывания, и на ближайший из них ставится один точный будильник
+ * AlarmManager. {@link ReminderAlarmReceiver} показывает наступившие
+ * напоминания и ставит будильник на следующее. Очередь пересчитывается после
+ * любого изменения событий.
+ */
+public final class ReminderScheduler {
+
+    private static final String TAG = "ReminderScheduler";
+
+    private static final String CHANNEL_ID = "calendar_reminders";
+
+    private static final String PREFS_NAME = "calendar_reminders";
+    private static final String KEY_FIRED = "fired";
+
+    // Напоминание о начале события приходит за 5 минут
+    private static final long LEAD_TIME = 5 * 60 * 1000L;
+    // Сколько после назначенного момента еще имеет смысл показывать отдельное напоминание
+    private static final long LATE_GRACE = 15 * 60 * 1000L;
+    // Записи о показанных напоминаниях старше этого срока удаляются
+    private static final long FIRED_RETENTION = 2 * 24 * 60 * 60 * 1000L;
+    private static final String MAX_DATE = "9999-12-31";
+
+    private static final int TYPE_ALL_DAY = 2;
+    private static final int TYPE_CUSTOM_TIME = 1;
+
+    private ReminderScheduler() {
+    }
+
+    /**
+     * Пересчитывает очередь и переставляет будильник. Вызывается после
+     * изменения событий, синхронизации и перезагрузки устройства.
+     */
+    public static void reschedule(Context context) {
+        Context appContext = context.getApplicationContext();
+        DatabaseExecutor.execute(() -> run(appContext));
+    }
+
+    /**
+     * Показывает все наступившие и еще не показанные напоминания, затем ставит
+     * будильник на ближайшее следующее. Выполняется в фоновом потоке.
+     */
+    static synchronized void run(Context context) {
+        // Будильник и перезагрузка поднимают процесс без заставки
+        PerfSinks.installDefaults(context);
+        try (PerfTracer.Span span = PerfTracer.start("reminders_check")) {
+            span.putMetric("shown", check(context));
+        }
+    }
+
+    // Возвращает число показанных уведомлений
+    private static int check(Context context) {
+        long now = System.currentTimeMillis();
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+        String today = dateFormat.format(now);
+
+        List<CalendarEvent> events = RoomDB.getInstance(context).calendarDao().getEventsBetween(today, MAX_DATE);
+        PriorityQueue<Reminder> queue = buildQueue(events);
+
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        Set<String> fired = new HashSet<>(prefs.getStringSet(KEY_FIRED, new HashSet<>()));
+        pruneFired(fired, now);
+
+        Reminder next = null;
+        int shown = 0;
+        while (!queue.isEmpty()) {
+            Reminder reminder = queue.poll();
+            if (reminder.fireAt > now) {
+                next = reminder;
+                break;
+            }
+            if (now < reminder.expiresAt && fired.add(reminder.key())) {
+                showEventNotification(context, reminder.event);
+                shown++;
+            }
+        }
+
+        prefs.edit().putStringSet(KEY_FIRED, fired).apply();
+        arm(context, next);
+        return shown;
+    }
+
+    static PriorityQueue<Reminder> buildQueue(List<CalendarEvent> events) {
+        PriorityQueue<Reminder> queue = new PriorityQueue<>(Math.max(1, events.size()),
+                (a, b) -> Long.compare(a.fireAt, b.fireAt));
+
+        for (CalendarEvent event : events) {
+            if (event.isCompleted()) {
+                continue;
+            }
+
+            long dayStart = parseDateTime(event.getDate(), "00:00");
+            if (dayStart < 0) {
+                continue;
+            }
+
+            if (event.getNotificationType() == TYPE_ALL_DAY) {
+                queue.add(new Reminder(event, dayStart, dayStart + 24 * 60 * 60 * 1000L));
+                continue;
+            }
+
+            long start = parseDateTime(event.getDate(), event.getTime());
+            if (start >= 0) {
+                queue.add(new Reminder(event, start - LEAD_TIME, start + 60 * 1000L));
+            }
+
+            if (event.getNotificationType() == TYPE_CUSTOM_TIME
+                    && event.getNotificationTime() != null && !event.getNotificationTime().isEmpty()) {
+                long custom = parseDateTime(event.getDate(), event.getNotificationTime());
+                if (custom >= 0) {
+                    queue.add(new Reminder(event, custom, custom + LATE_GRACE));
+                }
+            }
+        }
+        return queue;
+    }
+
+    private static void arm(Context context, Reminder next) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent alarmIntent = PendingIntent.getBroadcast(context, 0,
+                new Intent(context, ReminderAlarmReceiver.class),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        if (next == null) {
+            alarmManager.cancel(alarmIntent);
+            Log.d(TAG, "No pending reminders");
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next.fireAt, alarmIntent);
+        } else {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next.fireAt, alarmIntent);
+        }
+        Log.d(TAG, "Next reminder at " + next.fireAt + " for " + next.event.getTitle());
+    }
+
+    private static void pruneFired(Set<String> fired, long now) {
+        List<String> expired = new ArrayList<>();
+        for (String key : fired) {
+            int separator = key.lastIndexOf('@');
+            try {
+                if (separator < 0 || Long.parseLong(key.substring(separator + 1)) < now - FIRED_RETENTION) {
+                    expired.add(key);
+                }
+            } catch (NumberFormatException e) {
+                expired.add(key);
+            }
+        }
+        fired.removeAll(expired);
+    }
+
+    /**
+     * Разбирает дату yyyy-MM-dd и время HH:mm в миллисекунды локального
+     * времени без SimpleDateFormat. При ошибке возвращает -1.
+     */
+    static long parseDateTime(String date, String time) {
+        if (date == null || time == null || date.length() != 10 || time.length() < 4) {
+            return -1;
+        }
+        try {
+            int separator = time.indexOf(':');
+            if (separator < 0) {
+                return -1;
+            }
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(
+                    Integer.parseInt(date.substring(0, 4)),
+                    Integer.parseInt(date.substring(5, 7)) - 1,
+                    Integer.parseInt(date.substring(8, 10)),
+                    Integer.parseInt(time.substring(0, separator)),
+                    Integer.parseInt(time.substring(separator + 1, Math.min(time.length(), separator + 3)))
+            );
+            return calendar.getTimeInMillis();
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void createNotificationChannel(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID,
+                    "Напоминания о событиях",
+                    NotificationManager.IMPORTANCE_HIGH
+            );
+            channel.setDescription("Канал для уведомлений о календарных событиях");
+            context.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+        }
+    }
+
+    private static void showEventNotification(Context context, CalendarEvent event) {
+        createNotificationChannel(context);
+
+        // Создаем уникальный ID для уведомления на основе eventId или ID события
+        int notificationId;
+        if (event.getEventId() != null && !event.getEventId().isEmpty()) {
+            notificationId = event.getEventId().hashCode();
+        } else {
+            // Для обратной совместимости с событиями, у которых нет eventId
+            notificationId = event.getID() + 2000;
+        }
+
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.putExtra("openCalendar", true);
+        intent.putExtra("eventDate", event.getDate());
+        if (event.getEventId() != null && !event.getEventId().isEmpty()) {
+            intent.putExtra("eventId", event.getEventId());
+        }
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                context, notificationId, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        NotificationCompat.Builder builder;
+        if (event.getNotificationType() == TYPE_ALL_DAY) {
+            // Для целодневных событий уведомление нельзя смахнуть
+            builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                    .setSmallIcon(R.drawable.ic_calendar)
+                    .setContentTitle("Весь день: " + event.getTitle())
+                    .setContentText(event.getDescription())
+                    .setPriority(NotificationCompat.PRIORITY_HIGH)
+                    .setContentIntent(pendingIntent)
+                    .setOngoing(true);
+        } else {
+            builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                    .setSmallIcon(R.drawable.ic_calendar)
+                    .setContentTitle(event.getTitle())
+                    .setContentText(event.getDescription())
+                    .setPriority(NotificationCompat.PRIORITY_HIGH)
+                    .setContentIntent(pendingIntent)
+                    .setAutoCancel(true);
+        }
+
+        context.getSystemService(NotificationManager.class).notify(notificationId, builder.build());
+    }
+
+    static class Reminder {
+
+        final CalendarEvent event;
+        final long fireAt;
+        // После этого момента напоминание уже не показывается
+        final long expiresAt;
+
+        Reminder(CalendarEvent event, long fireAt, long expiresAt) {
+            this.event = event;
+            this.fireAt = fireAt;
+            this.expiresAt = expiresAt;
+        }
+
+        String key() {
+            String id = event.getEventId() != null && !event.getEventId().isEmpty()
+                    ? event.getEventId() : "id" + event.getID();
+            return id + "@" + fireAt;
+        }
+    }
+}
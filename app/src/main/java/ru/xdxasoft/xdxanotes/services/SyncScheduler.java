@@ -0,0 +1,167 @@
+package ru.xdxasoft.xdxanotes.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Единая точка запуска синхронизации. Вызывающий код не синхронизирует сам, а
+ * ставит уникальную задачу {@link SyncWorker} на тип данных: повторные
+ * запросы, пока задача ждет запуска, схлопываются в одну, а запрос во время
+ * выполнения ставит за ней ровно один повторный запуск.
+ */
+public final class SyncScheduler {
+
+    private static final String TAG = "SyncScheduler";
+    private static final String UNIQUE_PREFIX = "sync_";
+    private static final String PERIODIC_WORK_NAME = "sync_periodic";
+    private static final String OUTBOX_WORK_NAME = "sync_outbox";
+
+    private static final long BACKOFF_SECONDS = 30;
+    private static final long PERIODIC_INTERVAL_MINUTES = 60;
+
+    private static final ExecutorService REQUEST_EXECUTOR = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "sync-requests"));
+
+    public enum SyncType {
+        NOTES,
+        CALENDAR,
+        PASSWORDS,
+        ALL
+    }
+
+    private SyncScheduler() {
+    }
+
+    /**
+     * Если задача уже выполняется, изменения, сделанные во время синхронизации,
+     * могли в нее не попасть, поэтому за ней встает еще один запуск. Если
+     * повторный запуск уже ждет в очереди, новый не нужен: он заберет и эти
+     * изменения.
+     */
+    public static void requestSync(Context context, SyncType type) {
+        enqueueSync(context, type);
+    }
+
+    // Проверка и постановка идут в одном потоке, чтобы два запроса подряд не поставили два повторных запуска
+    static Future<?> enqueueSync(Context context, SyncType type) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(SyncWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .setInputData(SyncWorker.inputFor(type))
+                .build();
+
+        WorkManager workManager = WorkManager.getInstance(context);
+        String name = uniqueName(type);
+        return REQUEST_EXECUTOR.submit(() -> {
+            try {
+                if (!hasQueuedRun(workManager.getWorkInfosForUniqueWork(name).get())) {
+                    workManager.enqueueUniqueWork(name, ExistingWorkPolicy.APPEND_OR_REPLACE, request)
+                            .getResult().get();
+                }
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "Failed to request " + name, e);
+            }
+        });
+    }
+
+    // Есть запуск, который еще не начался: ждет сети, отката после ошибки или окончания текущего
+    private static boolean hasQueuedRun(List<WorkInfo> infos) {
+        for (WorkInfo info : infos) {
+            if (info.getState() == WorkInfo.State.ENQUEUED || info.getState() == WorkInfo.State.BLOCKED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Отправка очереди отложенных записей. Новая задача встает за текущей,
+     * чтобы записи, добавленные во время отправки, тоже ушли.
+     */
+    public static void requestOutboxFlush(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OutboxWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(OUTBOX_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    /**
+     * Фоновая синхронизация всех данных раз в час при наличии сети и
+     * незаниженном заряде. Повторный вызов не сбрасывает расписание.
+     */
+    public static void schedulePeriodicSync(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(SyncWorker.class,
+                PERIODIC_INTERVAL_MINUTES, TimeUnit.MINUTES)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .setInputData(SyncWorker.inputFor(SyncType.ALL))
+                .build();
+
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Отключает периодическую синхронизацию, например когда изменения
+     * приходят через живые слушатели.
+     */
+    public static void cancelPeriodicSync(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(PERIODIC_WORK_NAME);
+    }
+
+    public static void cancelAll(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        for (SyncType type : SyncType.values()) {
+            workManager.cancelUniqueWork(uniqueName(type));
+        }
+        workManager.cancelUniqueWork(PERIODIC_WORK_NAME);
+        workManager.cancelUniqueWork(OUTBOX_WORK_NAME);
+    }
+
+    /**
+     * Состояние задачи синхронизации, например чтобы перечитать данные,
+     * которые не наблюдаются через Room.
+     */
+    public static LiveData<List<WorkInfo>> observe(Context context, SyncType type) {
+        return WorkManager.getInstance(context).getWorkInfosForUniqueWorkLiveData(uniqueName(type));
+    }
+
+    static String uniqueName(SyncType type) {
+        return UNIQUE_PREFIX + type.name().toLowerCase(Locale.ROOT);
+    }
+}
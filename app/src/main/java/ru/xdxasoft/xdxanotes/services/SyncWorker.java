@@ -0,0 +1,118 @@
+package ru.xdxasoft.xdxanotes.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ru.xdxasoft.xdxanotes.utils.firebase.FirebaseManager;
+
+/**
+ * Синхронизация одного типа данных с Firebase в фоне. Запускается только
+ * через {@link SyncScheduler}, который следит, чтобы одновременно в очереди
+ * была не больше чем одна задача на тип.
+ */
+public class SyncWorker extends Worker {
+
+    private static final String TAG = "SyncWorker";
+
+    static final String KEY_TYPE = "type";
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long SYNC_TIMEOUT_SECONDS = 60;
+
+    public SyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    static Data inputFor(SyncScheduler.SyncType type) {
+        return new Data.Builder().putString(KEY_TYPE, type.name()).build();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseManager firebaseManager = FirebaseManager.getInstance(getApplicationContext());
+        if (!firebaseManager.isUserLoggedIn()) {
+            return Result.success();
+        }
+
+        SyncScheduler.SyncType type;
+        try {
+            type = SyncScheduler.SyncType.valueOf(getInputData().getString(KEY_TYPE));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            Log.e(TAG, "Unknown sync type: " + getInputData().getString(KEY_TYPE));
+            return Result.failure();
+        }
+        boolean all = type == SyncScheduler.SyncType.ALL;
+
+        // Заметки сливаются с локальными правками, поэтому загружаются до отправки очереди:
+        // слитая версия заменит в очереди отложенную запись и уйдет вместе с ней
+        boolean success = true;
+        if (all || type == SyncScheduler.SyncType.NOTES) {
+            success = sync(firebaseManager, SyncScheduler.SyncType.NOTES);
+        }
+
+        // События и пароли не сливаются: сначала отправляем их правки, иначе загрузка затрет их
+        if (!firebaseManager.getOutbox().drain()) {
+            return getRunAttemptCount() + 1 < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+        }
+
+        if (all || type == SyncScheduler.SyncType.CALENDAR) {
+            success &= sync(firebaseManager, SyncScheduler.SyncType.CALENDAR);
+        }
+        if (all || type == SyncScheduler.SyncType.PASSWORDS) {
+            success &= sync(firebaseManager, SyncScheduler.SyncType.PASSWORDS);
+        }
+
+        if (success) {
+            return Result.success();
+        }
+        // Повтор с экспоненциальной задержкой, заданной в SyncScheduler
+        return getRunAttemptCount() + 1 < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+    }
+
+    // Синхронизация в FirebaseManager асинхронная, поток воркера ждет ее завершения
+    private boolean sync(FirebaseManager firebaseManager, SyncScheduler.SyncType type) {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicBoolean result = new AtomicBoolean(false);
+        FirebaseManager.SyncCallback callback = success -> {
+            result.set(success);
+            latch.countDown();
+        };
+
+        switch (type) {
+            case NOTES:
+                firebaseManager.syncNotesWithFirebase(callback);
+                break;
+            case CALENDAR:
+                firebaseManager.syncCalendarEventsWithFirebase(callback);
+                break;
+            case PASSWORDS:
+                firebaseManager.syncPasswordsWithFirebase(callback);
+                break;
+            default:
+                return false;
+        }
+
+        try {
+            if (!latch.await(SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                Log.e(TAG, "Sync timed out: " + type);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        Log.d(TAG, "Sync " + type + " finished, success=" + result.get());
+        return result.get();
+    }
+}
@@ -4,9 +4,14 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+/**
+ * Старая отдельная БД паролей. Пароли теперь хранятся в {@code RoomDB}, helper
+ * нужен только для однократного переноса: он доводит схему старого файла до
+ * последней версии, чтобы записи можно было прочитать.
+ */
 public class PasswordDatabaseHelper extends SQLiteOpenHelper {
 
-    private static final String DATABASE_NAME = "passwords.db";
+    public static final String DATABASE_NAME = "passwords.db";
     private static final int DATABASE_VERSION = 3;
 
     public PasswordDatabaseHelper(Context context) {
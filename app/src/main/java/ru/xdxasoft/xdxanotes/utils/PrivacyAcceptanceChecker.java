@@ -0,0 +1,224 @@
+package ru.xdxasoft.xdxanotes.utils;
+
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import ru.xdxasoft.xdxanotes.activity.LoginActivity;
+
+/**
+ * Проверка, что вошедший пользователь принял политику конфиденциальности.
+ * На сервере в Users/{uid} хранится версия принятой политики, локально она
+ * копируется в {@link SessionManager}, поэтому повторный запуск не ждет сети:
+ * сервер перепроверяется в фоне. Версия ниже {@link #POLICY_VERSION} считается
+ * непринятой. Прежний флаг privacyAccepted без версии означает согласие с
+ * первой версией. Записи, созданные входом через Google и GitHub, раньше лежали
+ * под push-ключами, их один раз находит запрос по email, после чего согласие
+ * переносится в Users/{uid}.
+ */
+public final class PrivacyAcceptanceChecker {
+
+    private static final String TAG = "PrivacyAcceptance";
+
+    /** Увеличивается при изменении текста политики, чтобы запросить согласие заново. */
+    public static final int POLICY_VERSION = 1;
+
+    // Версия, с которой принимали политику до появления версий
+    private static final int LEGACY_POLICY_VERSION = 1;
+
+    private static final String FIELD_PRIVACY_ACCEPTED = "privacyAccepted";
+    private static final String FIELD_PRIVACY_ACCEPTED_VERSION = "privacyAcceptedVersion";
+
+    private PrivacyAcceptanceChecker() {
+    }
+
+    public interface Callback {
+
+        void onResult(boolean accepted);
+
+        void onError(String message);
+    }
+
+    public static boolean isAcceptedLocally(Context context, FirebaseUser user) {
+        return new SessionManager(context).isPrivacyAccepted(user.getUid(), POLICY_VERSION);
+    }
+
+    /**
+     * Перепроверка при запуске. Если принятие уже сохранено локально, ошибка
+     * сети не мешает работе, выход из аккаунта происходит только при явном
+     * отказе сервера.
+     */
+    public static void checkInBackground(Context context, FirebaseUser user) {
+        Context appContext = context.getApplicationContext();
+        boolean acceptedLocally = isAcceptedLocally(appContext, user);
+        if (acceptedLocally) {
+            StartupTrace.mark(StartupTrace.PRIVACY_CHECKED);
+        }
+
+        lookup(appContext, user, new Callback() {
+            @Override
+            public void onResult(boolean accepted) {
+                StartupTrace.mark(StartupTrace.PRIVACY_CHECKED);
+                if (!accepted) {
+                    signOutToLogin(appContext, true);
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "Error checking privacy acceptance: " + message);
+                if (!acceptedLocally) {
+                    signOutToLogin(appContext, false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Читает принятую версию с сервера и обновляет локальную копию. Читаются
+     * только поля согласия: в Users/{uid} лежат еще заметки, пароли и события.
+     */
+    public static void lookup(Context context, FirebaseUser user, Callback callback) {
+        Context appContext = context.getApplicationContext();
+        userRef(user).child(FIELD_PRIVACY_ACCEPTED_VERSION).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Integer version = snapshot.getValue(Integer.class);
+                if (version != null) {
+                    callback.onResult(remember(appContext, user, version));
+                } else {
+                    lookupLegacyFlag(appContext, user, callback);
+                }
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+
+    // Флаг без версии записан до появления версий политики
+    private static void lookupLegacyFlag(Context context, FirebaseUser user, Callback callback) {
+        userRef(user).child(FIELD_PRIVACY_ACCEPTED).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Boolean accepted = snapshot.getValue(Boolean.class);
+                if (accepted == null) {
+                    lookupLegacyByEmail(context, user, callback);
+                } else if (accepted) {
+                    userRef(user).child(FIELD_PRIVACY_ACCEPTED_VERSION).setValue(LEGACY_POLICY_VERSION);
+                    callback.onResult(remember(context, user, LEGACY_POLICY_VERSION));
+                } else {
+                    callback.onResult(remember(context, user, 0));
+                }
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Сохраняет принятие политики в Users/{uid} и локально.
+     */
+    public static Task<Void> accept(Context context, FirebaseUser user, String service) {
+        Context appContext = context.getApplicationContext();
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("email", user.getEmail());
+        if (service != null) {
+            updates.put("service", service);
+        }
+        // Флаг остается для старых версий приложения
+        updates.put(FIELD_PRIVACY_ACCEPTED, true);
+        updates.put(FIELD_PRIVACY_ACCEPTED_VERSION, POLICY_VERSION);
+        return userRef(user).updateChildren(updates)
+                .addOnSuccessListener(aVoid -> remember(appContext, user, POLICY_VERSION));
+    }
+
+    private static void lookupLegacyByEmail(Context context, FirebaseUser user, Callback callback) {
+        if (user.getEmail() == null) {
+            callback.onResult(remember(context, user, 0));
+            return;
+        }
+
+        FirebaseDatabase.getInstance().getReference("Users")
+                .orderByChild("email").equalTo(user.getEmail())
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                        boolean privacyAccepted = false;
+                        for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
+                            User stored = snapshot.getValue(User.class);
+                            if (stored != null && stored.isPrivacyAccepted()) {
+                                privacyAccepted = true;
+                                break;
+                            }
+                        }
+
+                        if (!privacyAccepted) {
+                            callback.onResult(remember(context, user, 0));
+                            return;
+                        }
+
+                        // Следующие проверки обойдутся прямым чтением Users/{uid}
+                        Map<String, Object> updates = new HashMap<>();
+                        updates.put(FIELD_PRIVACY_ACCEPTED, true);
+                        updates.put(FIELD_PRIVACY_ACCEPTED_VERSION, LEGACY_POLICY_VERSION);
+                        userRef(user).updateChildren(updates);
+                        callback.onResult(remember(context, user, LEGACY_POLICY_VERSION));
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError databaseError) {
+                        callback.onError(databaseError.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * @param acceptedVersion принятая на сервере версия, 0 если политику не принимали
+     * @return принята ли текущая версия политики
+     */
+    private static boolean remember(Context context, FirebaseUser user, int acceptedVersion) {
+        SessionManager sessionManager = new SessionManager(context);
+        boolean accepted = acceptedVersion >= POLICY_VERSION;
+        if (accepted) {
+            sessionManager.savePrivacyAcceptance(user.getUid(), acceptedVersion);
+        } else {
+            sessionManager.clearPrivacyAcceptance();
+        }
+        return accepted;
+    }
+
+    private static DatabaseReference userRef(FirebaseUser user) {
+        return FirebaseDatabase.getInstance().getReference("Users").child(user.getUid());
+    }
+
+    // Экран входа заменяет всю задачу, вместе с уже открытым главным экраном
+    private static void signOutToLogin(Context context, boolean privacyNotAccepted) {
+        FirebaseAuth.getInstance().signOut();
+        Intent intent = new Intent(context, LoginActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        if (privacyNotAccepted) {
+            intent.putExtra("PRIVACY_NOT_ACCEPTED", true);
+        }
+        context.startActivity(intent);
+    }
+}
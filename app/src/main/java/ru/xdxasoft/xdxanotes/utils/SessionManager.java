@@ -5,6 +5,9 @@ import android.content.SharedPreferences;
 
 public class SessionManager {
 
+    private static final String KEY_PRIVACY_UID = "privacy_accepted_uid";
+    private static final String KEY_PRIVACY_VERSION = "privacy_accepted_version";
+
     private SharedPreferences sharedPreferences;
 
     public SessionManager(Context context) {
@@ -20,4 +23,29 @@ public class SessionManager {
     public String getPasswordHash() {
         return sharedPreferences.getString("password_hash", null);
     }
+
+    /**
+     * Запоминает, что пользователь принял указанную версию политики
+     * конфиденциальности. Флаг привязан к uid, поэтому вход под другим
+     * аккаунтом его не наследует.
+     */
+    public void savePrivacyAcceptance(String uid, int version) {
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        editor.putString(KEY_PRIVACY_UID, uid);
+        editor.putInt(KEY_PRIVACY_VERSION, version);
+        editor.apply();
+    }
+
+    public boolean isPrivacyAccepted(String uid, int version) {
+        return uid != null
+                && uid.equals(sharedPreferences.getString(KEY_PRIVACY_UID, null))
+                && sharedPreferences.getInt(KEY_PRIVACY_VERSION, 0) >= version;
+    }
+
+    public void clearPrivacyAcceptance() {
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        editor.remove(KEY_PRIVACY_UID);
+        editor.remove(KEY_PRIVACY_VERSION);
+        editor.apply();
+    }
 }
@@ -0,0 +1,81 @@
+package ru.xdxasoft.xdxanotes.utils;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ru.xdxasoft.xdxanotes.utils.perf.PerfTracer;
+
+/**
+ * Отметки этапов запуска в миллисекундах от его начала. Для холодного старта
+ * началом считается запуск процесса, для теплого (процесс уже жив) - вызов
+ * {@link #begin()}. Каждый этап отмечается один раз за запуск, отметки пишутся
+ * в logcat с тегом StartupTrace и доступны тестам через {@link #snapshot()}.
+ * Замер app_start в {@link PerfTracer} идет от создания заставки до первого
+ * кадра с данными, отметки этапов становятся его счетчиками.
+ */
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+
+    public static final String SPLASH_CREATED = "splash_created";
+    public static final String SPLASH_DONE = "splash_done";
+    public static final String MAIN_CREATED = "main_created";
+    public static final String PRIVACY_CHECKED = "privacy_checked";
+    public static final String FIRST_NOTES_SHOWN = "first_notes_shown";
+
+    private static final Map<String, Long> marks = new LinkedHashMap<>();
+    private static boolean started;
+    private static boolean coldStart;
+    private static long startedAt;
+    private static PerfTracer.Span span;
+
+    private StartupTrace() {
+    }
+
+    public static synchronized void begin() {
+        marks.clear();
+        coldStart = !started;
+        startedAt = coldStart ? Process.getStartElapsedRealtime() : SystemClock.elapsedRealtime();
+        started = true;
+        span = PerfTracer.start("app_start")
+                .putAttribute("start_type", coldStart ? "cold" : "warm");
+    }
+
+    public static synchronized void mark(String phase) {
+        if (!started || marks.containsKey(phase)) {
+            return;
+        }
+        long elapsed = SystemClock.elapsedRealtime() - startedAt;
+        marks.put(phase, elapsed);
+        Log.i(TAG, (coldStart ? "cold" : "warm") + " " + phase + " +" + elapsed + " ms");
+        if (span != null) {
+            span.putMetric(phase + "_ms", elapsed);
+        }
+        if (FIRST_NOTES_SHOWN.equals(phase)) {
+            finish("notes");
+        }
+    }
+
+    /**
+     * Закрывает замер запуска на первом кадре экрана screen.
+     */
+    public static synchronized void finish(String screen) {
+        if (span != null) {
+            span.putAttribute("screen", screen).stop();
+            span = null;
+        }
+    }
+
+    public static synchronized boolean isColdStart() {
+        return coldStart;
+    }
+
+    public static synchronized Map<String, Long> snapshot() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(marks));
+    }
+}
@@ -0,0 +1,22 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import androidx.annotation.Nullable;
+
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSyncBase;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+/**
+ * Стратегия слияния заметки, измененной и локально, и на сервере.
+ * Результат должен зависеть только от аргументов, чтобы устройства,
+ * слившие одну и ту же пару версий, пришли к одинаковой заметке.
+ */
+public interface ConflictResolver {
+
+    /**
+     * @param base   последняя согласованная версия или null, если ее нет
+     * @param local  локальная версия с несинхронизированными правками
+     * @param remote версия из Firebase
+     * @return слитая версия; ID и userId берутся из локальной
+     */
+    Notes resolve(@Nullable NoteSyncBase base, Notes local, Notes remote);
+}
@@ -0,0 +1,66 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import androidx.annotation.Nullable;
+
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSyncBase;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+/**
+ * Трехстороннее слияние по полям. Заголовок, текст и закрепление
+ * сливаются независимо: если поле изменила только одна сторона, берется ее
+ * значение. Если поле изменили обе стороны по-разному (или базы нет),
+ * выигрывает более поздняя правка по lastModified, затем большая версия,
+ * затем большее значение при сравнении строк.
+ */
+public class FieldMergeConflictResolver implements ConflictResolver {
+
+    @Override
+    public Notes resolve(@Nullable NoteSyncBase base, Notes local, Notes remote) {
+        boolean localWinsTie = localWinsTie(local, remote);
+
+        Notes merged = new Notes();
+        merged.setID(local.getID());
+        merged.setUserId(local.getUserId());
+        merged.setTitle(mergeField(base != null ? base.getTitle() : null,
+                local.getTitle(), remote.getTitle(), localWinsTie));
+        merged.setNotes(mergeField(base != null ? base.getNotes() : null,
+                local.getNotes(), remote.getNotes(), localWinsTie));
+        merged.setPinned(mergeField(base != null ? base.isPinned() : null,
+                local.isPinned(), remote.isPinned(), localWinsTie));
+        merged.setDate(localWinsTie ? local.getDate() : remote.getDate());
+        merged.setLastModified(Math.max(local.getLastModified(), remote.getLastModified()));
+        merged.setVersion(Math.max(local.getVersion(), remote.getVersion()));
+        return merged;
+    }
+
+    private static <T> T mergeField(@Nullable T base, T local, T remote, boolean localWinsTie) {
+        if (local.equals(remote)) {
+            return local;
+        }
+        if (base != null) {
+            if (base.equals(local)) {
+                return remote;
+            }
+            if (base.equals(remote)) {
+                return local;
+            }
+        }
+        return localWinsTie ? local : remote;
+    }
+
+    // Одинаковый результат на обоих устройствах: сравнение не зависит от того, какая сторона локальная
+    private static boolean localWinsTie(Notes local, Notes remote) {
+        if (local.getLastModified() != remote.getLastModified()) {
+            return local.getLastModified() > remote.getLastModified();
+        }
+        if (local.getVersion() != remote.getVersion()) {
+            return local.getVersion() > remote.getVersion();
+        }
+        int byNotes = local.getNotes().compareTo(remote.getNotes());
+        if (byNotes != 0) {
+            return byNotes > 0;
+        }
+        return local.getTitle().compareTo(remote.getTitle()) > 0
+                || (local.getTitle().equals(remote.getTitle()) && local.isPinned() && !remote.isPinned());
+    }
+}
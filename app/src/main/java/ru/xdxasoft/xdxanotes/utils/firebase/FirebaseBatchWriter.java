@@ -0,0 +1,119 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накопитель записей в Realtime Database. Изменения по путям вида
+ * Users/{uid}/{type}/{id} собираются в одну карту и уходят одним атомарным
+ * updateChildren. Пачка отправляется, когда набралось maxBatchSize путей или
+ * прошло maxDelayMs с первого изменения в ней, либо по явному {@link #flush()}.
+ * Повторная запись по тому же пути заменяет предыдущую. Пути в одной пачке не
+ * должны быть вложены друг в друга, иначе Firebase отклонит обновление.
+ */
+public class FirebaseBatchWriter {
+
+    private final Sink sink;
+    private final ScheduledExecutorService scheduler;
+    private final int maxBatchSize;
+    private final long maxDelayMs;
+
+    private Map<String, Object> pending = new LinkedHashMap<>();
+    private List<WriteCallback> callbacks = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public FirebaseBatchWriter(Sink sink, ScheduledExecutorService scheduler, int maxBatchSize, long maxDelayMs) {
+        this.sink = sink;
+        this.scheduler = scheduler;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    /**
+     * Записывает значение по пути. callback вызывается после отправки пачки,
+     * в которую попало изменение.
+     */
+    public void set(String path, Object value, WriteCallback callback) {
+        Map<String, Object> batch = null;
+        List<WriteCallback> batchCallbacks = null;
+
+        synchronized (this) {
+            pending.put(path, value);
+            if (callback != null) {
+                callbacks.add(callback);
+            }
+
+            if (pending.size() >= maxBatchSize) {
+                batch = pending;
+                batchCallbacks = callbacks;
+                reset();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, maxDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (batch != null) {
+            send(batch, batchCallbacks);
+        }
+    }
+
+    public void remove(String path, WriteCallback callback) {
+        set(path, null, callback);
+    }
+
+    /**
+     * Отправляет накопленные изменения, не дожидаясь таймера.
+     */
+    public void flush() {
+        Map<String, Object> batch;
+        List<WriteCallback> batchCallbacks;
+
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            batchCallbacks = callbacks;
+            reset();
+        }
+
+        send(batch, batchCallbacks);
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    private void reset() {
+        pending = new LinkedHashMap<>();
+        callbacks = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    // Отправка вне блокировки, чтобы новые изменения копились, пока идет запрос
+    private void send(Map<String, Object> batch, List<WriteCallback> batchCallbacks) {
+        sink.write(batch, success -> {
+            for (WriteCallback callback : batchCallbacks) {
+                callback.onComplete(success);
+            }
+        });
+    }
+
+    public interface Sink {
+
+        void write(Map<String, Object> updates, WriteCallback callback);
+    }
+
+    public interface WriteCallback {
+
+        void onComplete(boolean success);
+    }
+}
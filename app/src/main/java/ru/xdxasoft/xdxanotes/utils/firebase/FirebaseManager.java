@@ -1,9 +1,6 @@
 package ru.xdxasoft.xdxanotes.utils.firebase;
 
-import android.content.ContentValues;
 import android.content.Context;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -14,35 +11,56 @@ import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
 
 import ru.xdxasoft.xdxanotes.models.Password;
-import ru.xdxasoft.xdxanotes.utils.PasswordDatabaseHelper;
+import ru.xdxasoft.xdxanotes.services.ReminderScheduler;
+import ru.xdxasoft.xdxanotes.services.SyncScheduler;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.DatabaseExecutor;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.PasswordDao;
 import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
 import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
 import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+import ru.xdxasoft.xdxanotes.utils.perf.PerfSinks;
+import ru.xdxasoft.xdxanotes.utils.perf.PerfTracer;
+import ru.xdxasoft.xdxanotes.utils.vault.PasswordVault;
 import ru.xdxasoft.xdxanotes.utils.IdGenerator;
 
 public class FirebaseManager {
 
     private static final String TAG = "FirebaseManager";
-    private static FirebaseManager instance;
+    private static volatile FirebaseManager instance;
+
+    // Не больше 100 путей в одном updateChildren, пачка ждет новых изменений не дольше 500 мс
+    private static final int BATCH_MAX_SIZE = 100;
+    private static final long BATCH_MAX_DELAY_MS = 500;
 
     private final FirebaseAuth mAuth;
     private final DatabaseReference mDatabase;
     private final Context context;
-    private String userId;
+    // Пишется слушателем авторизации в главном потоке, читается из фоновых
+    private volatile String userId;
     private RoomDB notesDatabase;
-    private SQLiteDatabase passwordsDatabase;
-    private PasswordDatabaseHelper dbHelper;
+    private final SyncStateStore syncState;
+    private final NotesSyncEngine notesSyncEngine;
+    private final SyncOutbox outbox;
+    private final FirebaseBatchWriter batchWriter;
+    private final LiveSyncController liveSync;
 
     private FirebaseManager(Context context) {
         this.context = context.getApplicationContext();
+        PerfSinks.installDefaults(this.context);
         mAuth = FirebaseAuth.getInstance();
         mDatabase = FirebaseDatabase.getInstance().getReference();
 
@@ -52,30 +70,107 @@ public class FirebaseManager {
         }
 
         notesDatabase = RoomDB.getInstance(context);
-        dbHelper = new PasswordDatabaseHelper(context);
-        passwordsDatabase = dbHelper.getWritableDatabase();
+        syncState = new SyncStateStore(context);
+        notesSyncEngine = new NotesSyncEngine(notesDatabase,
+                new FirebaseNotesRemoteSource(mDatabase.child("Users")), syncState,
+                new FieldMergeConflictResolver(), note -> saveNoteToFirebase(note, null),
+                DatabaseExecutor.io(), DatabaseExecutor.mainThread());
+        outbox = new SyncOutbox(context, notesDatabase, mDatabase);
+        batchWriter = new FirebaseBatchWriter(
+                (updates, writeCallback) -> mDatabase.updateChildren(updates)
+                        .addOnCompleteListener(task -> {
+                            if (!task.isSuccessful()) {
+                                Log.e(TAG, "Batch write of " + updates.size() + " paths failed", task.getException());
+                            }
+                            writeCallback.onComplete(task.isSuccessful());
+                        }),
+                Executors.newSingleThreadScheduledExecutor(), BATCH_MAX_SIZE, BATCH_MAX_DELAY_MS);
+        liveSync = new LiveSyncController(context, notesDatabase, mDatabase.child("Users"),
+                syncState, notesSyncEngine);
 
         mAuth.addAuthStateListener(firebaseAuth -> {
             FirebaseUser user = firebaseAuth.getCurrentUser();
             if (user != null) {
                 userId = user.getUid();
-                notesDatabase.mainDao().deleteAll();
-                notesDatabase.calendarDao().deleteAll();
-                syncNotesWithFirebase(null);
-                syncCalendarEventsWithFirebase(null);
+                String currentUserId = userId;
+                DatabaseExecutor.execute(() -> {
+                    // Локальные данные очищаем только при смене аккаунта, иначе досинхронизируем дельту
+                    if (!currentUserId.equals(syncState.getLastUserId())) {
+                        notesDatabase.mainDao().deleteAll();
+                        notesDatabase.noteSyncBaseDao().deleteAll();
+                        notesDatabase.calendarDao().deleteAll();
+                        outbox.clear();
+                        syncState.clear();
+                        syncState.setLastUserId(currentUserId);
+                    }
+                    if (syncState.isLiveSyncEnabled()) {
+                        liveSync.start(currentUserId);
+                    } else {
+                        SyncScheduler.requestSync(this.context, SyncScheduler.SyncType.NOTES);
+                        SyncScheduler.requestSync(this.context, SyncScheduler.SyncType.CALENDAR);
+                    }
+                });
             } else {
                 userId = null;
-                notesDatabase.mainDao().deleteAll();
-                notesDatabase.calendarDao().deleteAll();
+                liveSync.stop();
+                PasswordVault.getInstance(this.context).lock();
+                SyncScheduler.cancelAll(this.context);
+                DatabaseExecutor.execute(() -> {
+                    notesDatabase.mainDao().deleteAll();
+                    notesDatabase.noteSyncBaseDao().deleteAll();
+                    notesDatabase.calendarDao().deleteAll();
+                    outbox.clear();
+                    syncState.clear();
+                    ReminderScheduler.reschedule(this.context);
+                });
+            }
+        });
+    }
+
+    /**
+     * Синхронное получение менеджера. При первом вызове читает настройки
+     * синхронизации с диска, поэтому из главного потока используйте
+     * {@link #whenReady(Context, OnReadyListener)}.
+     */
+    public static FirebaseManager getInstance(Context context) {
+        FirebaseManager current = instance;
+        if (current != null) {
+            return current;
+        }
+        synchronized (FirebaseManager.class) {
+            if (instance == null) {
+                instance = new FirebaseManager(context);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Передает менеджер в главный поток. Если он уже создан, listener
+     * вызывается сразу, иначе менеджер создается в пуле БД.
+     */
+    public static void whenReady(Context context, OnReadyListener listener) {
+        FirebaseManager current = instance;
+        if (current != null) {
+            listener.onReady(current);
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        DatabaseExecutor.submit(() -> getInstance(appContext), manager -> {
+            if (manager != null) {
+                listener.onReady(manager);
             }
         });
     }
 
-    public static synchronized FirebaseManager getInstance(Context context) {
+    /**
+     * Начинает создание менеджера в фоне, не дожидаясь результата.
+     */
+    public static void preload(Context context) {
         if (instance == null) {
-            instance = new FirebaseManager(context);
+            Context appContext = context.getApplicationContext();
+            DatabaseExecutor.execute(() -> getInstance(appContext));
         }
-        return instance;
     }
 
     public boolean isUserLoggedIn() {
@@ -86,6 +181,50 @@ public class FirebaseManager {
         return userId;
     }
 
+    /**
+     * Очередь записей, которые еще не дошли до Firebase.
+     */
+    public SyncOutbox getOutbox() {
+        return outbox;
+    }
+
+    /**
+     * Пакетная запись для массовых операций: вместо отдельного setValue на
+     * каждую запись изменения уходят общим updateChildren.
+     */
+    public FirebaseBatchWriter getBatchWriter() {
+        return batchWriter;
+    }
+
+    public boolean isLiveSyncEnabled() {
+        return syncState.isLiveSyncEnabled();
+    }
+
+    /**
+     * Включает или выключает живую синхронизацию. В живом режиме изменения из
+     * Firebase применяются к локальным БД сразу, а периодический опрос
+     * отключается.
+     */
+    public void setLiveSyncEnabled(boolean enabled) {
+        syncState.setLiveSyncEnabled(enabled);
+        if (enabled) {
+            SyncScheduler.cancelPeriodicSync(context);
+            if (isUserLoggedIn()) {
+                String currentUserId = userId;
+                DatabaseExecutor.execute(() -> liveSync.start(currentUserId));
+            }
+        } else {
+            liveSync.stop();
+            if (isUserLoggedIn()) {
+                SyncScheduler.schedulePeriodicSync(context);
+            }
+        }
+    }
+
+    private String userPath(String collection, String key) {
+        return SyncOutbox.pathFor(userId, collection, key);
+    }
+
     public void syncNotesWithFirebase(final SyncCallback callback) {
         if (!isUserLoggedIn()) {
             if (callback != null) {
@@ -94,54 +233,7 @@ public class FirebaseManager {
             return;
         }
 
-        mDatabase.child("Users").child(userId).child("notes").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                try {
-                    Map<String, Notes> firebaseNotes = new HashMap<>();
-                    for (DataSnapshot noteSnapshot : dataSnapshot.getChildren()) {
-                        try {
-                            Notes note = noteSnapshot.getValue(Notes.class);
-                            if (note != null && note.getID() > 0) {
-                                if (userId.equals(note.getUserId())) {
-                                    firebaseNotes.put(String.valueOf(note.getID()), note);
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error parsing note from Firebase", e);
-                        }
-                    }
-
-                    notesDatabase.mainDao().deleteAll();
-
-                    for (Notes note : firebaseNotes.values()) {
-                        try {
-                            notesDatabase.mainDao().insert(note);
-                            Log.d(TAG, "Inserted note from Firebase: " + note.getTitle());
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error inserting note from Firebase", e);
-                        }
-                    }
-
-                    if (callback != null) {
-                        callback.onSyncComplete(true);
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error syncing notes", e);
-                    if (callback != null) {
-                        callback.onSyncComplete(false);
-                    }
-                }
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e(TAG, "Firebase sync cancelled", databaseError.toException());
-                if (callback != null) {
-                    callback.onSyncComplete(false);
-                }
-            }
-        });
+        notesSyncEngine.sync(userId, callback);
     }
 
     public void saveNoteToFirebase(Notes note, final SaveCallback callback) {
@@ -160,21 +252,16 @@ public class FirebaseManager {
             noteValues.put("date", note.getDate());
             noteValues.put("pinned", note.isPinned());
             noteValues.put("userId", userId);
+            noteValues.put("lastModified", note.getLastModified());
+            noteValues.put("version", note.getVersion());
+            noteValues.put(FirebaseNotesRemoteSource.FIELD_SERVER_UPDATED_AT, ServerValue.TIMESTAMP);
 
-            mDatabase.child("Users").child(userId).child("notes").child(String.valueOf(note.getID()))
-                    .setValue(noteValues)
-                    .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Note saved to Firebase: " + note.getTitle());
-                        if (callback != null) {
-                            callback.onSaveComplete(true);
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error saving note to Firebase", e);
-                        if (callback != null) {
-                            callback.onSaveComplete(false);
-                        }
-                    });
+            outbox.enqueueSet(userPath("notes", String.valueOf(note.getID())), noteValues, queued -> {
+                Log.d(TAG, "Note queued for Firebase: " + note.getTitle());
+                if (callback != null) {
+                    callback.onSaveComplete(queued);
+                }
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error preparing note for Firebase", e);
             if (callback != null) {
@@ -183,27 +270,28 @@ public class FirebaseManager {
         }
     }
 
-    public void deleteNoteFromFirebase(Notes note, final DeleteCallback callback) {
-        if (!isUserLoggedIn() || note == null) {
+    public void deleteNoteFromFirebase(int noteId, final DeleteCallback callback) {
+        if (!isUserLoggedIn() || noteId <= 0) {
             if (callback != null) {
                 callback.onDeleteComplete(false);
             }
             return;
         }
 
-        mDatabase.child("Users").child(userId).child("notes").child(String.valueOf(note.getID())).removeValue()
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Note deleted from Firebase: " + note.getTitle());
-                    if (callback != null) {
-                        callback.onDeleteComplete(true);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error deleting note from Firebase", e);
-                    if (callback != null) {
-                        callback.onDeleteComplete(false);
-                    }
-                });
+        // Вместо удаления оставляем tombstone, чтобы удаление дошло до других устройств через дельту
+        Map<String, Object> tombstone = new HashMap<>();
+        tombstone.put("ID", noteId);
+        tombstone.put("userId", userId);
+        tombstone.put("deleted", true);
+        tombstone.put("lastModified", System.currentTimeMillis());
+        tombstone.put(FirebaseNotesRemoteSource.FIELD_SERVER_UPDATED_AT, ServerValue.TIMESTAMP);
+
+        outbox.enqueueSet(userPath("notes", String.valueOf(noteId)), tombstone, queued -> {
+            Log.d(TAG, "Note deletion queued for Firebase: " + noteId);
+            if (callback != null) {
+                callback.onDeleteComplete(queued);
+            }
+        });
     }
 
     public void syncPasswordsWithFirebase(final SyncCallback callback) {
@@ -214,65 +302,18 @@ public class FirebaseManager {
             return;
         }
 
+        PerfTracer.Span span = PerfTracer.start("sync_passwords");
         mDatabase.child("Users").child(userId).child("passwords").addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                try {
-                    Map<String, Password> firebasePasswords = new HashMap<>();
-                    for (DataSnapshot passwordSnapshot : dataSnapshot.getChildren()) {
-                        try {
-                            Password password = passwordSnapshot.getValue(Password.class);
-                            if (password != null && password.getId() != null && !password.getId().isEmpty()) {
-                                password.setUserId(userId);
-                                firebasePasswords.put(password.getId(), password);
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error parsing password from Firebase", e);
-                        }
-                    }
-
-                    Cursor cursor = passwordsDatabase.rawQuery("SELECT * FROM passwords WHERE userId = ?", new String[]{userId});
-                    Map<String, Password> localPasswordsMap = new HashMap<>();
-
-                    while (cursor.moveToNext()) {
-                        String id = cursor.getString(0);
-                        Password password = new Password(
-                                id,
-                                cursor.getString(1),
-                                cursor.getString(2),
-                                cursor.getString(3),
-                                cursor.getString(4)
-                        );
-                        localPasswordsMap.put(id, password);
-                    }
-                    cursor.close();
-
-                    passwordsDatabase.delete("passwords", "userId = ?", new String[]{userId});
-
-                    for (Password password : firebasePasswords.values()) {
-                        ContentValues values = new ContentValues();
-                        values.put("id", password.getId());
-                        values.put("title", password.getTitle());
-                        values.put("username", password.getUsername());
-                        values.put("password", password.getPassword());
-                        values.put("userId", password.getUserId());
-                        passwordsDatabase.insert("passwords", null, values);
-                    }
-
-                    if (callback != null) {
-                        callback.onSyncComplete(true);
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error syncing passwords", e);
-                    if (callback != null) {
-                        callback.onSyncComplete(false);
-                    }
-                }
+                // Разбор снимка и запись в Room выполняются вне главного потока
+                DatabaseExecutor.execute(() -> applyPasswordsSnapshot(dataSnapshot, span, callback));
             }
 
             @Override
             public void onCancelled(@NonNull DatabaseError databaseError) {
                 Log.e(TAG, "Error syncing passwords: " + databaseError.getMessage());
+                stopSyncSpan(span, false);
                 if (callback != null) {
                     callback.onSyncComplete(false);
                 }
@@ -280,6 +321,65 @@ public class FirebaseManager {
         });
     }
 
+    private void applyPasswordsSnapshot(DataSnapshot dataSnapshot, PerfTracer.Span span, final SyncCallback callback) {
+        try {
+            String currentUserId = userId;
+            List<Password> firebasePasswords = new ArrayList<>();
+            for (DataSnapshot passwordSnapshot : dataSnapshot.getChildren()) {
+                try {
+                    Password password = passwordSnapshot.getValue(Password.class);
+                    if (password != null && password.getId() != null && !password.getId().isEmpty()) {
+                        password.setUserId(currentUserId);
+                        firebasePasswords.add(password);
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error parsing password from Firebase", e);
+                }
+            }
+
+            // Ключи паролей с неотправленной локальной правкой
+            String pendingPrefix = SyncOutbox.pathFor(currentUserId, "passwords", "");
+            Set<String> pendingIds = new HashSet<>();
+            for (String path : notesDatabase.outboxDao().pathsWithPrefix(pendingPrefix)) {
+                pendingIds.add(path.substring(pendingPrefix.length()));
+            }
+
+            // Локально пароли зашифрованы, сравнение идет по открытым значениям
+            PasswordDao passwordDao = notesDatabase.passwordDao();
+            PasswordVault vault = PasswordVault.getInstance(context);
+            List<Password> localPasswords = new ArrayList<>();
+            for (Password password : passwordDao.getForUser(currentUserId)) {
+                localPasswords.add(vault.decrypted(password));
+            }
+            span.putMetric("remote_rows", firebasePasswords.size())
+                    .putMetric("local_rows", localPasswords.size());
+
+            // В БД уходят только отличия от локальных строк, все одной транзакцией
+            PasswordReconciler.Diff diff = PasswordReconciler.diff(localPasswords, firebasePasswords, pendingIds);
+            if (!diff.isEmpty()) {
+                List<Password> encrypted = new ArrayList<>(diff.upserts.size());
+                for (Password password : diff.upserts) {
+                    encrypted.add(vault.encrypted(password));
+                }
+                passwordDao.applyChanges(currentUserId, encrypted, diff.deletedIds);
+            }
+            Log.d(TAG, "Passwords synced: " + diff);
+            span.putMetric("upserts", diff.upserts.size())
+                    .putMetric("deletes", diff.deletedIds.size());
+            stopSyncSpan(span, true);
+
+            if (callback != null) {
+                DatabaseExecutor.mainThread().execute(() -> callback.onSyncComplete(true));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error syncing passwords", e);
+            stopSyncSpan(span, false);
+            if (callback != null) {
+                DatabaseExecutor.mainThread().execute(() -> callback.onSyncComplete(false));
+            }
+        }
+    }
+
     public void savePasswordToFirebase(Password password, final SaveCallback callback) {
         if (!isUserLoggedIn() || password == null) {
             if (callback != null) {
@@ -298,20 +398,14 @@ public class FirebaseManager {
             passwordValues.put("password", password.getPassword());
             passwordValues.put("userId", password.getUserId());
 
-            mDatabase.child("Users").child(userId).child("passwords").child(password.getId())
-                    .setValue(passwordValues)
-                    .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Password saved to Firebase: " + password.getTitle());
-                        if (callback != null) {
-                            callback.onSaveComplete(true);
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error saving password to Firebase", e);
-                        if (callback != null) {
-                            callback.onSaveComplete(false);
-                        }
-                    });
+            // В очереди пароль хранится зашифрованным, как и в таблице passwords
+            outbox.enqueueSecretSet(userPath("passwords", password.getId()), passwordValues,
+                    Collections.singleton("password"), queued -> {
+                Log.d(TAG, "Password queued for Firebase: " + password.getTitle());
+                if (callback != null) {
+                    callback.onSaveComplete(queued);
+                }
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error preparing password for Firebase", e);
             if (callback != null) {
@@ -328,19 +422,12 @@ public class FirebaseManager {
             return;
         }
 
-        mDatabase.child("Users").child(userId).child("passwords").child(id).removeValue()
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Password deleted from Firebase: " + id);
-                    if (callback != null) {
-                        callback.onDeleteComplete(true);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error deleting password from Firebase", e);
-                    if (callback != null) {
-                        callback.onDeleteComplete(false);
-                    }
-                });
+        outbox.enqueueRemove(userPath("passwords", id), queued -> {
+            Log.d(TAG, "Password deletion queued for Firebase: " + id);
+            if (callback != null) {
+                callback.onDeleteComplete(queued);
+            }
+        });
     }
 
     public void syncCalendarEventsWithFirebase(final SyncCallback callback) {
@@ -351,108 +438,115 @@ public class FirebaseManager {
             return;
         }
 
+        PerfTracer.Span span = PerfTracer.start("sync_calendar");
         mDatabase.child("Users").child(userId).child("calendar_events").addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                try {
-                    // События из Firebase
-                    Map<String, CalendarEvent> firebaseEvents = new HashMap<>();
-                    for (DataSnapshot eventSnapshot : dataSnapshot.getChildren()) {
-                        try {
-                            CalendarEvent event = eventSnapshot.getValue(CalendarEvent.class);
-                            // Используем eventId для идентификации события
-                            if (event != null && event.getEventId() != null && !event.getEventId().isEmpty()) {
-                                if (userId.equals(event.getUserId())) {
-                                    firebaseEvents.put(event.getEventId(), event);
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error parsing calendar event from Firebase", e);
-                        }
-                    }
+                // Разбор снимка и запись в Room выполняются вне главного потока
+                DatabaseExecutor.execute(() -> applyCalendarSnapshot(dataSnapshot, span, callback));
+            }
 
-                    // События из локальной БД
-                    List<CalendarEvent> localEvents = notesDatabase.calendarDao().getAll();
-                    Map<String, CalendarEvent> localEventsMap = new HashMap<>();
-
-                    // Сначала убедимся, что у всех событий есть eventId
-                    for (CalendarEvent event : localEvents) {
-                        // Проверяем, что у события есть eventId
-                        if (event.getEventId() == null || event.getEventId().isEmpty()) {
-                            // Если eventId пустой (старое событие), генерируем новый
-                            event.setEventId(IdGenerator.generateUUID());
-                            notesDatabase.calendarDao().insert(event);
-                            Log.d(TAG, "Generated new eventId for local event: " + event.getTitle());
-                        }
-                        localEventsMap.put(event.getEventId(), event);
-                    }
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                Log.e(TAG, "Firebase calendar events sync cancelled", databaseError.toException());
+                stopSyncSpan(span, false);
+                if (callback != null) {
+                    callback.onSyncComplete(false);
+                }
+            }
+        });
+    }
 
-                    // Обрабатываем события, которые есть в Firebase, но нет в локальной БД
-                    for (CalendarEvent firebaseEvent : firebaseEvents.values()) {
-                        CalendarEvent localEvent = localEventsMap.get(firebaseEvent.getEventId());
-
-                        if (localEvent == null) {
-                            // Добавляем новое событие из Firebase в локальную БД
-                            notesDatabase.calendarDao().insert(firebaseEvent);
-                            Log.d(TAG, "Inserted firebase event to local DB: " + firebaseEvent.getTitle());
-                        } else {
-                            // Если событие новее в Firebase, обновляем локальное
-                            if (firebaseEvent.getLastModified() > localEvent.getLastModified()) {
-                                // Используем eventId для обновления, чтобы исправить проблему с ID=0
-                                notesDatabase.calendarDao().updateByEventId(
-                                        firebaseEvent.getEventId(),
-                                        firebaseEvent.getTitle(),
-                                        firebaseEvent.getDescription(),
-                                        firebaseEvent.getDate(),
-                                        firebaseEvent.getTime()
-                                );
-                                notesDatabase.calendarDao().updateCompletionStatusByEventId(
-                                        firebaseEvent.getEventId(),
-                                        firebaseEvent.isCompleted()
-                                );
-                                Log.d(TAG, "Updated local event from Firebase by eventId: " + firebaseEvent.getTitle());
-                            }
+    private void applyCalendarSnapshot(DataSnapshot dataSnapshot, PerfTracer.Span span, final SyncCallback callback) {
+        try {
+            // События из Firebase
+            Map<String, CalendarEvent> firebaseEvents = new HashMap<>();
+            for (DataSnapshot eventSnapshot : dataSnapshot.getChildren()) {
+                try {
+                    CalendarEvent event = eventSnapshot.getValue(CalendarEvent.class);
+                    // Используем eventId для идентификации события
+                    if (event != null && event.getEventId() != null && !event.getEventId().isEmpty()) {
+                        if (userId.equals(event.getUserId())) {
+                            firebaseEvents.put(event.getEventId(), event);
                         }
                     }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error parsing calendar event from Firebase", e);
+                }
+            }
 
-                    // Обрабатываем события, которые есть в локальной БД, но нет в Firebase
-                    for (CalendarEvent localEvent : localEvents) {
-                        // Убедитесь, что событие принадлежит текущему пользователю
-                        if (userId.equals(localEvent.getUserId())) {
-                            if (!firebaseEvents.containsKey(localEvent.getEventId())) {
-                                // Добавляем событие в Firebase
-                                saveCalendarEventToFirebase(localEvent, null);
-                                Log.d(TAG, "Added local event to Firebase: " + localEvent.getTitle());
-                            } else {
-                                // Если событие новее в локальной БД, обновляем в Firebase
-                                CalendarEvent firebaseEvent = firebaseEvents.get(localEvent.getEventId());
-                                if (localEvent.getLastModified() > firebaseEvent.getLastModified()) {
-                                    saveCalendarEventToFirebase(localEvent, null);
-                                    Log.d(TAG, "Updated event in Firebase: " + localEvent.getTitle());
-                                }
-                            }
-                        }
-                    }
+            // События из локальной БД
+            List<CalendarEvent> localEvents = notesDatabase.calendarDao().getAll();
+            span.putMetric("remote_rows", firebaseEvents.size())
+                    .putMetric("local_rows", localEvents.size());
+            Map<String, CalendarEvent> localEventsMap = new HashMap<>();
+            List<CalendarEvent> changedEvents = new ArrayList<>();
+
+            // Сначала убедимся, что у всех событий есть eventId
+            for (CalendarEvent event : localEvents) {
+                // Проверяем, что у события есть eventId
+                if (event.getEventId() == null || event.getEventId().isEmpty()) {
+                    // Если eventId пустой (старое событие), генерируем новый
+                    event.setEventId(IdGenerator.generateUUID());
+                    changedEvents.add(event);
+                    Log.d(TAG, "Generated new eventId for local event: " + event.getTitle());
+                }
+                localEventsMap.put(event.getEventId(), event);
+            }
 
-                    if (callback != null) {
-                        callback.onSyncComplete(true);
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error syncing calendar events", e);
-                    if (callback != null) {
-                        callback.onSyncComplete(false);
-                    }
+            // Обрабатываем события, которые есть в Firebase, но нет в локальной БД
+            for (CalendarEvent firebaseEvent : firebaseEvents.values()) {
+                CalendarEvent localEvent = localEventsMap.get(firebaseEvent.getEventId());
+
+                if (localEvent == null) {
+                    // Новое событие получает локальный ID, чтобы не затереть чужую строку
+                    firebaseEvent.setID(0);
+                    changedEvents.add(firebaseEvent);
+                } else if (firebaseEvent.getLastModified() > localEvent.getLastModified()) {
+                    // Если событие новее в Firebase, обновляем локальную строку по ее ID
+                    firebaseEvent.setID(localEvent.getID());
+                    changedEvents.add(firebaseEvent);
                 }
             }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e(TAG, "Firebase calendar events sync cancelled", databaseError.toException());
-                if (callback != null) {
-                    callback.onSyncComplete(false);
+            // Все изменения применяются одной транзакцией
+            if (!changedEvents.isEmpty()) {
+                notesDatabase.calendarDao().upsertAll(changedEvents);
+                Log.d(TAG, "Applied " + changedEvents.size() + " calendar events to local DB");
+            }
+            ReminderScheduler.reschedule(context);
+
+            // События, которых нет в Firebase или которые новее локально, встают в очередь
+            // одной транзакцией и переживут ошибку сети и перезапуск процесса
+            Map<String, Map<String, Object>> pending = new LinkedHashMap<>();
+            for (CalendarEvent localEvent : localEvents) {
+                // Убедитесь, что событие принадлежит текущему пользователю
+                if (!userId.equals(localEvent.getUserId())) {
+                    continue;
+                }
+                CalendarEvent firebaseEvent = firebaseEvents.get(localEvent.getEventId());
+                if (firebaseEvent == null || localEvent.getLastModified() > firebaseEvent.getLastModified()) {
+                    pending.put(userPath("calendar_events", localEvent.getEventId()), calendarEventValues(localEvent));
                 }
             }
-        });
+            if (!pending.isEmpty()) {
+                outbox.enqueueSetAll(pending);
+                Log.d(TAG, "Queued " + pending.size() + " local calendar events for Firebase");
+            }
+            span.putMetric("upserts", changedEvents.size())
+                    .putMetric("pushed", pending.size());
+            stopSyncSpan(span, true);
+
+            if (callback != null) {
+                DatabaseExecutor.mainThread().execute(() -> callback.onSyncComplete(true));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error syncing calendar events", e);
+            stopSyncSpan(span, false);
+            if (callback != null) {
+                DatabaseExecutor.mainThread().execute(() -> callback.onSyncComplete(false));
+            }
+        }
     }
 
     public void saveCalendarEventToFirebase(CalendarEvent event, final SaveCallback callback) {
@@ -464,48 +558,15 @@ public class FirebaseManager {
         }
 
         try {
-            // Проверяем, есть ли у события eventId
-            if (event.getEventId() == null || event.getEventId().isEmpty()) {
-                event.setEventId(IdGenerator.generateComplexId());
-            }
-
-            // Очистка eventId от запрещенных в Firebase символов (., #, $, [, ])
-            String safeEventId = event.getEventId().replace(".", "-")
-                    .replace("#", "-")
-                    .replace("$", "-")
-                    .replace("[", "-")
-                    .replace("]", "-")
-                    .replace("|", "-");
-            event.setEventId(safeEventId);
-
-            Map<String, Object> eventValues = new HashMap<>();
-            eventValues.put("ID", event.getID());
-            eventValues.put("eventId", event.getEventId());
-            eventValues.put("title", event.getTitle());
-            eventValues.put("description", event.getDescription());
-            eventValues.put("date", event.getDate());
-            eventValues.put("time", event.getTime());
-            eventValues.put("completed", event.isCompleted());
-            eventValues.put("userId", userId);
-            eventValues.put("lastModified", event.getLastModified());
-            eventValues.put("notificationType", event.getNotificationType());
-            eventValues.put("notificationTime", event.getNotificationTime());
+            Map<String, Object> eventValues = calendarEventValues(event);
 
             // Используем eventId как ключ для хранения в Firebase
-            mDatabase.child("Users").child(userId).child("calendar_events").child(event.getEventId())
-                    .setValue(eventValues)
-                    .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Calendar event saved to Firebase: " + event.getTitle());
-                        if (callback != null) {
-                            callback.onSaveComplete(true);
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error saving calendar event to Firebase", e);
-                        if (callback != null) {
-                            callback.onSaveComplete(false);
-                        }
-                    });
+            outbox.enqueueSet(userPath("calendar_events", event.getEventId()), eventValues, queued -> {
+                Log.d(TAG, "Calendar event queued for Firebase: " + event.getTitle());
+                if (callback != null) {
+                    callback.onSaveComplete(queued);
+                }
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error preparing calendar event for Firebase", e);
             if (callback != null) {
@@ -514,6 +575,37 @@ public class FirebaseManager {
         }
     }
 
+    // Готовит событие к записи: при необходимости выдает eventId и убирает из него запрещенные символы
+    private Map<String, Object> calendarEventValues(CalendarEvent event) {
+        // Проверяем, есть ли у события eventId
+        if (event.getEventId() == null || event.getEventId().isEmpty()) {
+            event.setEventId(IdGenerator.generateComplexId());
+        }
+
+        // Очистка eventId от запрещенных в Firebase символов (., #, $, [, ])
+        String safeEventId = event.getEventId().replace(".", "-")
+                .replace("#", "-")
+                .replace("$", "-")
+                .replace("[", "-")
+                .replace("]", "-")
+                .replace("|", "-");
+        event.setEventId(safeEventId);
+
+        Map<String, Object> eventValues = new HashMap<>();
+        eventValues.put("ID", event.getID());
+        eventValues.put("eventId", event.getEventId());
+        eventValues.put("title", event.getTitle());
+        eventValues.put("description", event.getDescription());
+        eventValues.put("date", event.getDate());
+        eventValues.put("time", event.getTime());
+        eventValues.put("completed", event.isCompleted());
+        eventValues.put("userId", userId);
+        eventValues.put("lastModified", event.getLastModified());
+        eventValues.put("notificationType", event.getNotificationType());
+        eventValues.put("notificationTime", event.getNotificationTime());
+        return eventValues;
+    }
+
     public void deleteCalendarEventFromFirebase(CalendarEvent event, final DeleteCallback callback) {
         if (!isUserLoggedIn() || event == null) {
             if (callback != null) {
@@ -527,19 +619,21 @@ public class FirebaseManager {
                 ? event.getEventId()
                 : String.valueOf(event.getID());
 
-        mDatabase.child("Users").child(userId).child("calendar_events").child(eventIdToDelete).removeValue()
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Calendar event deleted from Firebase: " + event.getTitle());
-                    if (callback != null) {
-                        callback.onDeleteComplete(true);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error deleting calendar event from Firebase", e);
-                    if (callback != null) {
-                        callback.onDeleteComplete(false);
-                    }
-                });
+        outbox.enqueueRemove(userPath("calendar_events", eventIdToDelete), queued -> {
+            Log.d(TAG, "Calendar event deletion queued for Firebase: " + event.getTitle());
+            if (callback != null) {
+                callback.onDeleteComplete(queued);
+            }
+        });
+    }
+
+    static void stopSyncSpan(PerfTracer.Span span, boolean success) {
+        span.putAttribute("result", success ? "success" : "failure").stop();
+    }
+
+    public interface OnReadyListener {
+
+        void onReady(FirebaseManager manager);
     }
 
     public interface SyncCallback {
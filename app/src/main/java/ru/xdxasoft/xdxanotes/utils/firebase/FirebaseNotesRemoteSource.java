@@ -0,0 +1,112 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+/**
+ * Источник изменений заметок из Realtime Database. При ненулевой метке
+ * запрашивает только дочерние узлы с serverUpdatedAt >= метки (нужно правило
+ * ".indexOn": "serverUpdatedAt" для Users/$uid/notes). Перед запросом по
+ * .info/serverTimeOffset оценивается серверное время, от него движок
+ * отсчитывает следующую метку.
+ */
+public class FirebaseNotesRemoteSource implements NotesSyncEngine.RemoteSource {
+
+    private static final String TAG = "FirebaseNotesSource";
+
+    /** Время записи, которое проставляет сервер, по нему идет курсор синхронизации. */
+    public static final String FIELD_SERVER_UPDATED_AT = "serverUpdatedAt";
+
+    // Запас на неточность оценки смещения часов: записи этой минуты придут еще раз
+    private static final long SERVER_TIME_MARGIN_MS = 60_000;
+
+    private final DatabaseReference usersRef;
+
+    public FirebaseNotesRemoteSource(DatabaseReference usersRef) {
+        this.usersRef = usersRef;
+    }
+
+    @Override
+    public void fetchChanges(String userId, long sinceMark, NotesSyncEngine.FetchCallback callback) {
+        usersRef.getRoot().child(".info/serverTimeOffset").addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Long offset = snapshot.getValue(Long.class);
+                long serverTime = System.currentTimeMillis() + (offset != null ? offset : 0) - SERVER_TIME_MARGIN_MS;
+                fetchNotes(userId, sinceMark, Math.max(serverTime, 0), callback);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                // Без оценки времени метку двигают только сами записи
+                fetchNotes(userId, sinceMark, 0, callback);
+            }
+        });
+    }
+
+    private void fetchNotes(String userId, long sinceMark, long serverTime, NotesSyncEngine.FetchCallback callback) {
+        DatabaseReference notesRef = usersRef.child(userId).child("notes");
+        Query query = sinceMark > 0
+                ? notesRef.orderByChild(FIELD_SERVER_UPDATED_AT).startAt(sinceMark)
+                : notesRef;
+
+        query.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                List<NotesSyncEngine.NoteChange> changes = new ArrayList<>();
+                for (DataSnapshot noteSnapshot : dataSnapshot.getChildren()) {
+                    try {
+                        NotesSyncEngine.NoteChange change = parse(noteSnapshot);
+                        if (change != null) {
+                            changes.add(change);
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error parsing note from Firebase", e);
+                    }
+                }
+                callback.onFetched(changes, serverTime);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                callback.onError(databaseError.toException());
+            }
+        });
+    }
+
+    static NotesSyncEngine.NoteChange parse(DataSnapshot noteSnapshot) {
+        Long serverUpdatedAt = noteSnapshot.child(FIELD_SERVER_UPDATED_AT).getValue(Long.class);
+        long serverTime = serverUpdatedAt != null ? serverUpdatedAt : 0;
+
+        Boolean deleted = noteSnapshot.child("deleted").getValue(Boolean.class);
+        if (Boolean.TRUE.equals(deleted)) {
+            Integer id = noteSnapshot.child("ID").getValue(Integer.class);
+            Long lastModified = noteSnapshot.child("lastModified").getValue(Long.class);
+            if (id == null || id <= 0) {
+                return null;
+            }
+            Notes tombstone = new Notes();
+            tombstone.setID(id);
+            tombstone.setLastModified(lastModified != null ? lastModified : 0);
+            return new NotesSyncEngine.NoteChange(tombstone, true, serverTime);
+        }
+
+        Notes note = noteSnapshot.getValue(Notes.class);
+        if (note == null || note.getID() <= 0) {
+            return null;
+        }
+        return new NotesSyncEngine.NoteChange(note, false, serverTime);
+    }
+}
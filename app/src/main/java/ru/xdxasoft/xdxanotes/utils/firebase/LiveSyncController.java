@@ -0,0 +1,366 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ru.xdxasoft.xdxanotes.models.Password;
+import ru.xdxasoft.xdxanotes.services.ReminderScheduler;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.CalendarDao;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+import ru.xdxasoft.xdxanotes.utils.vault.PasswordVault;
+
+/**
+ * Режим живой синхронизации. На время сессии к коллекциям пользователя
+ * подключаются ChildEventListener, и добавления, изменения и удаления
+ * применяются к локальной БД. События копятся в очереди и применяются
+ * пачками в отдельном последовательном потоке: одна транзакция на пачку, а
+ * не на событие, поэтому первоначальный проход по всем детям коллекции не
+ * превращается в тысячи транзакций. Внутри пачки для записи берется
+ * последнее событие. Заметки с локальными правками сливаются
+ * {@link NotesSyncEngine}. Для
+ * событий и паролей изменения по путям, для которых в {@link SyncOutbox} есть
+ * неотправленная локальная правка, пропускаются: локальная версия новее.
+ */
+public class LiveSyncController {
+
+    private static final String TAG = "LiveSyncController";
+
+    private final Context context;
+    private final RoomDB database;
+    private final DatabaseReference usersRef;
+    private final SyncStateStore syncState;
+    private final NotesSyncEngine notesSyncEngine;
+
+    // Один поток, чтобы изменения одной записи применялись строго по порядку
+    private final ExecutorService applyExecutor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "live-sync"));
+
+    // События, пришедшие с момента последнего разбора очереди
+    private final List<LiveEvent> queuedEvents = new ArrayList<>();
+    private boolean drainScheduled;
+
+    private String userId;
+    private Query notesQuery;
+    private Query calendarQuery;
+    private Query passwordsQuery;
+    private ChildEventListener notesListener;
+    private ChildEventListener calendarListener;
+    private ChildEventListener passwordsListener;
+
+    public LiveSyncController(Context context, RoomDB database, DatabaseReference usersRef, SyncStateStore syncState, NotesSyncEngine notesSyncEngine) {
+        this.context = context.getApplicationContext();
+        this.database = database;
+        this.usersRef = usersRef;
+        this.syncState = syncState;
+        this.notesSyncEngine = notesSyncEngine;
+    }
+
+    public synchronized boolean isRunning() {
+        return userId != null;
+    }
+
+    /**
+     * Подключает слушатели для пользователя. Повторный вызов для того же
+     * пользователя ничего не делает, для другого сначала отключает прежние.
+     */
+    public synchronized void start(String userId) {
+        if (userId.equals(this.userId)) {
+            return;
+        }
+        stop();
+        this.userId = userId;
+
+        DatabaseReference userRef = usersRef.child(userId);
+
+        // Заметки досинхронизируются с сохраненной метки, остальное приходит целиком один раз за сессию
+        long mark = syncState.getNotesMark(userId);
+        DatabaseReference notesRef = userRef.child("notes");
+        notesQuery = mark > 0 ? notesRef.orderByChild(FirebaseNotesRemoteSource.FIELD_SERVER_UPDATED_AT).startAt(mark) : notesRef;
+        notesListener = notesQuery.addChildEventListener(new Listener(userId, "notes"));
+
+        calendarQuery = userRef.child("calendar_events");
+        calendarListener = calendarQuery.addChildEventListener(new Listener(userId, "calendar_events"));
+
+        passwordsQuery = userRef.child("passwords");
+        passwordsListener = passwordsQuery.addChildEventListener(new Listener(userId, "passwords"));
+
+        Log.d(TAG, "Live sync started for " + userId);
+    }
+
+    public synchronized void stop() {
+        if (userId == null) {
+            return;
+        }
+        notesQuery.removeEventListener(notesListener);
+        calendarQuery.removeEventListener(calendarListener);
+        passwordsQuery.removeEventListener(passwordsListener);
+        notesQuery = calendarQuery = passwordsQuery = null;
+        notesListener = calendarListener = passwordsListener = null;
+        Log.d(TAG, "Live sync stopped for " + userId);
+        userId = null;
+    }
+
+    private synchronized String currentUserId() {
+        return userId;
+    }
+
+    private void enqueue(LiveEvent event) {
+        synchronized (queuedEvents) {
+            queuedEvents.add(event);
+            if (drainScheduled) {
+                return;
+            }
+            drainScheduled = true;
+        }
+        applyExecutor.execute(this::drain);
+    }
+
+    /**
+     * Забирает все накопленные события и применяет их по коллекциям. Пока
+     * пачка применяется, новые события копятся для следующего прохода.
+     */
+    private void drain() {
+        List<LiveEvent> events;
+        synchronized (queuedEvents) {
+            events = new ArrayList<>(queuedEvents);
+            queuedEvents.clear();
+            drainScheduled = false;
+        }
+        String userId = currentUserId();
+        if (userId == null) {
+            return;
+        }
+
+        Map<String, List<LiveEvent>> byCollection = new LinkedHashMap<>();
+        for (LiveEvent event : events) {
+            if (!userId.equals(event.userId)) {
+                continue;
+            }
+            List<LiveEvent> batch = byCollection.get(event.collection);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                byCollection.put(event.collection, batch);
+            }
+            batch.add(event);
+        }
+
+        for (Map.Entry<String, List<LiveEvent>> entry : byCollection.entrySet()) {
+            try {
+                switch (entry.getKey()) {
+                    case "notes":
+                        applyNotes(userId, entry.getValue());
+                        break;
+                    case "calendar_events":
+                        applyCalendarEvents(userId, entry.getValue());
+                        break;
+                    case "passwords":
+                        applyPasswords(userId, entry.getValue());
+                        break;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error applying " + entry.getValue().size() + " live " + entry.getKey() + " events", e);
+            }
+        }
+    }
+
+    // Последнее событие по каждому ключу, в порядке поступления
+    private static Map<String, LiveEvent> latestByKey(List<LiveEvent> events) {
+        Map<String, LiveEvent> latest = new LinkedHashMap<>();
+        for (LiveEvent event : events) {
+            latest.remove(event.snapshot.getKey());
+            latest.put(event.snapshot.getKey(), event);
+        }
+        return latest;
+    }
+
+    // Ключи коллекции, для которых в outbox лежит неотправленная правка
+    private Set<String> pendingKeys(String userId, String collection) {
+        String prefix = SyncOutbox.pathFor(userId, collection, "");
+        Set<String> result = new HashSet<>();
+        for (String path : database.outboxDao().pathsWithPrefix(prefix)) {
+            result.add(path.substring(prefix.length()));
+        }
+        return result;
+    }
+
+    private void applyNotes(String userId, List<LiveEvent> events) {
+        List<NotesSyncEngine.NoteChange> changes = new ArrayList<>();
+        for (LiveEvent event : latestByKey(events).values()) {
+            NotesSyncEngine.NoteChange change = event.removed
+                    ? removal(event.snapshot) : FirebaseNotesRemoteSource.parse(event.snapshot);
+            if (change != null) {
+                changes.add(change);
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        long mark = syncState.getNotesMark(userId);
+        long newMark = notesSyncEngine.apply(userId, changes, false, mark, 0);
+        syncState.setNotesMark(userId, newMark);
+    }
+
+    /**
+     * Удаленный узел разбирается так же, как tombstone при обычной
+     * синхронизации: локальная неотправленная правка восстанавливает заметку,
+     * а не теряется.
+     */
+    private static NotesSyncEngine.NoteChange removal(DataSnapshot snapshot) {
+        try {
+            Notes tombstone = new Notes();
+            tombstone.setID(Integer.parseInt(snapshot.getKey()));
+            return new NotesSyncEngine.NoteChange(tombstone, true);
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Unexpected note key " + snapshot.getKey());
+            return null;
+        }
+    }
+
+    private void applyCalendarEvents(String userId, List<LiveEvent> events) {
+        Set<String> pending = pendingKeys(userId, "calendar_events");
+        Map<String, CalendarEvent> remotes = new LinkedHashMap<>();
+        List<String> deletedEventIds = new ArrayList<>();
+        for (LiveEvent event : latestByKey(events).values()) {
+            String key = event.snapshot.getKey();
+            if (pending.contains(key)) {
+                continue;
+            }
+            if (event.removed) {
+                deletedEventIds.add(key);
+                continue;
+            }
+            CalendarEvent remote = event.snapshot.getValue(CalendarEvent.class);
+            if (remote == null || remote.getEventId() == null || remote.getEventId().isEmpty()
+                    || !userId.equals(remote.getUserId())) {
+                continue;
+            }
+            remotes.put(remote.getEventId(), remote);
+        }
+
+        List<CalendarEvent> upserts = new ArrayList<>();
+        database.runInTransaction(() -> {
+            CalendarDao dao = database.calendarDao();
+            for (CalendarEvent local : dao.getByEventIds(new ArrayList<>(remotes.keySet()))) {
+                CalendarEvent remote = remotes.get(local.getEventId());
+                if (remote == null) {
+                    continue;
+                }
+                if (local.getLastModified() >= remote.getLastModified()) {
+                    remotes.remove(local.getEventId());
+                } else {
+                    // Существующее событие обновляется по своему ID
+                    remote.setID(local.getID());
+                }
+            }
+            // Новые события получают локальный ID при вставке
+            upserts.addAll(remotes.values());
+            dao.applyChanges(upserts, deletedEventIds);
+        });
+
+        if (!upserts.isEmpty() || !deletedEventIds.isEmpty()) {
+            ReminderScheduler.reschedule(context);
+        }
+    }
+
+    private void applyPasswords(String userId, List<LiveEvent> events) {
+        Set<String> pending = pendingKeys(userId, "passwords");
+        PasswordVault vault = PasswordVault.getInstance(context);
+        List<Password> upserts = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        for (LiveEvent event : latestByKey(events).values()) {
+            String key = event.snapshot.getKey();
+            if (pending.contains(key)) {
+                continue;
+            }
+            if (event.removed) {
+                deletedIds.add(key);
+                continue;
+            }
+            Password password = event.snapshot.getValue(Password.class);
+            if (password == null || password.getId() == null || password.getId().isEmpty()) {
+                continue;
+            }
+            password.setUserId(userId);
+            upserts.add(vault.encrypted(password));
+        }
+        if (!upserts.isEmpty() || !deletedIds.isEmpty()) {
+            database.passwordDao().applyChanges(userId, upserts, deletedIds);
+        }
+    }
+
+    private static class LiveEvent {
+
+        final String userId;
+        final String collection;
+        final DataSnapshot snapshot;
+        final boolean removed;
+
+        LiveEvent(String userId, String collection, DataSnapshot snapshot, boolean removed) {
+            this.userId = userId;
+            this.collection = collection;
+            this.snapshot = snapshot;
+            this.removed = removed;
+        }
+    }
+
+    private class Listener implements ChildEventListener {
+
+        private final String userId;
+        private final String collection;
+
+        Listener(String userId, String collection) {
+            this.userId = userId;
+            this.collection = collection;
+        }
+
+        private void dispatch(DataSnapshot snapshot, boolean removed) {
+            // Разбор снимка тоже идет в фоне, главный поток только ставит его в очередь
+            enqueue(new LiveEvent(userId, collection, snapshot, removed));
+        }
+
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            dispatch(snapshot, false);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            dispatch(snapshot, false);
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            dispatch(snapshot, true);
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            // Порядок детей не важен, локальные списки сортируются сами
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.e(TAG, "Live " + collection + " listener cancelled: " + error.getMessage());
+        }
+    }
+}
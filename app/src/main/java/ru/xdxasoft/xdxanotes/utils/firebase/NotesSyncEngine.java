@@ -0,0 +1,377 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.MainDAO;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.NoteSyncBaseDao;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSyncBase;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+import ru.xdxasoft.xdxanotes.utils.perf.PerfTracer;
+
+/**
+ * Инкрементальная синхронизация заметок. Из удаленного источника забираются
+ * только записи с serverUpdatedAt не меньше сохраненной метки, изменения и
+ * удаления применяются к Room одной транзакцией. serverUpdatedAt проставляет
+ * сервер при каждой записи, поэтому правка, сделанная офлайн или на
+ * устройстве с отстающими часами, все равно окажется после метки; lastModified
+ * задает клиент, и оно используется только для разрешения конфликтов. Заметки, измененные и
+ * локально, и на сервере, сливаются трехсторонне относительно последней
+ * согласованной версии из note_sync_base. Первая синхронизация (метки нет)
+ * загружает коллекцию целиком, после нее метка не меньше серверного времени
+ * начала загрузки, даже если в коллекции нет ни одной записи с serverUpdatedAt.
+ */
+public class NotesSyncEngine {
+
+    private static final String TAG = "NotesSyncEngine";
+
+    private final RoomDB database;
+    private final RemoteSource remoteSource;
+    private final SyncStateStore syncState;
+    private final ConflictResolver conflictResolver;
+    private final Publisher publisher;
+    private final Executor ioExecutor;
+    private final Executor callbackExecutor;
+
+    /**
+     * @param ioExecutor       поток для обращений к Room
+     * @param callbackExecutor поток, в котором вызывается SyncCallback
+     */
+    public NotesSyncEngine(RoomDB database, RemoteSource remoteSource, SyncStateStore syncState,
+            ConflictResolver conflictResolver, Publisher publisher,
+            Executor ioExecutor, Executor callbackExecutor) {
+        this.database = database;
+        this.remoteSource = remoteSource;
+        this.syncState = syncState;
+        this.conflictResolver = conflictResolver;
+        this.publisher = publisher;
+        this.ioExecutor = ioExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public void sync(String userId, FirebaseManager.SyncCallback callback) {
+        PerfTracer.Span span = PerfTracer.start("sync_notes");
+        ioExecutor.execute(() -> {
+            long storedMark = syncState.getNotesMark(userId);
+            if (storedMark > 0 && database.mainDao().count() == 0) {
+                // Локальная БД была очищена, метка больше не соответствует данным
+                storedMark = 0;
+            }
+            final long mark = storedMark;
+            final boolean fullSync = mark == 0;
+            span.putAttribute("full", String.valueOf(fullSync));
+
+            remoteSource.fetchChanges(userId, mark, new FetchCallback() {
+                @Override
+                public void onFetched(List<NoteChange> changes, long serverTime) {
+                    span.putMetric("remote_rows", changes.size());
+                    ioExecutor.execute(() -> {
+                        try {
+                            long newMark = apply(userId, changes, fullSync, mark, serverTime);
+                            syncState.setNotesMark(userId, newMark);
+                            Log.d(TAG, "Applied " + changes.size() + " note changes, full=" + fullSync + ", mark=" + newMark);
+                            complete(span, callback, true);
+                        } catch (Exception e) {
+                            Log.e(TAG, "Error applying note changes", e);
+                            complete(span, callback, false);
+                        }
+                    });
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "Error fetching note changes", e);
+                    complete(span, callback, false);
+                }
+            });
+        });
+    }
+
+    private void complete(PerfTracer.Span span, FirebaseManager.SyncCallback callback, boolean success) {
+        FirebaseManager.stopSyncSpan(span, success);
+        if (callback != null) {
+            callbackExecutor.execute(() -> callback.onSyncComplete(success));
+        }
+    }
+
+    long apply(String userId, List<NoteChange> changes, boolean fullSync, long mark, long serverTime) {
+        long newMark = advanceMark(mark, changes, serverTime);
+
+        List<Notes> toPublish = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        database.runInTransaction(() -> {
+            MainDAO dao = database.mainDao();
+            NoteSyncBaseDao baseDao = database.noteSyncBaseDao();
+            if (fullSync) {
+                // Полная загрузка начинается с чистого листа, старые базы ни с чем не связаны
+                baseDao.deleteAll();
+            }
+
+            List<Integer> ids = new ArrayList<>(changes.size());
+            for (NoteChange change : changes) {
+                ids.add(change.getNote().getID());
+            }
+            Map<Integer, Notes> locals = loadLocal(dao, ids);
+            Map<Integer, NoteSyncBase> bases = loadBases(baseDao, ids);
+            Set<Integer> pendingIds = loadPendingIds(userId);
+
+            List<Notes> upserts = new ArrayList<>();
+            List<Integer> deletedIds = new ArrayList<>();
+            List<NoteSyncBase> newBases = new ArrayList<>();
+            List<Integer> removedBases = new ArrayList<>();
+
+            for (NoteChange change : changes) {
+                Notes remote = change.getNote();
+                if (!change.isDeleted() && !userId.equals(remote.getUserId())) {
+                    continue;
+                }
+
+                Notes local = locals.get(remote.getID());
+                boolean deletionPending = local == null && pendingIds.contains(remote.getID());
+                Reconciled result = reconcile(bases.get(remote.getID()), local, deletionPending,
+                        change, conflictResolver, now);
+                if (result.upsert != null) {
+                    upserts.add(result.upsert);
+                }
+                if (result.delete) {
+                    deletedIds.add(remote.getID());
+                }
+                if (result.base != null) {
+                    newBases.add(result.base);
+                } else if (result.dropBase) {
+                    removedBases.add(remote.getID());
+                }
+                if (result.publish != null) {
+                    toPublish.add(result.publish);
+                }
+            }
+
+            if (fullSync) {
+                // Заметки, которых нет на сервере, созданы локально до первой синхронизации
+                Set<Integer> remoteIds = new HashSet<>(ids);
+                for (Notes local : dao.getAllForUser(userId)) {
+                    if (!remoteIds.contains(local.getID())) {
+                        toPublish.add(local);
+                    }
+                }
+            }
+
+            dao.applyChanges(upserts, deletedIds);
+            if (!newBases.isEmpty()) {
+                baseDao.upsertAll(newBases);
+            }
+            for (int from = 0; from < removedBases.size(); from += MainDAO.MAX_BATCH_ARGS) {
+                baseDao.deleteByIds(removedBases.subList(from, Math.min(from + MainDAO.MAX_BATCH_ARGS, removedBases.size())));
+            }
+        });
+
+        // Слитые версии уходят на сервер через очередь, после фиксации транзакции
+        for (Notes note : toPublish) {
+            publisher.publish(note);
+        }
+        return newMark;
+    }
+
+    /**
+     * Новая метка - наибольшее серверное время среди пришедших записей, но не
+     * меньше серверного времени начала загрузки: все, что записано раньше, уже
+     * в ответе. Иначе пустая коллекция или коллекция из записей, сделанных до
+     * появления serverUpdatedAt, оставила бы метку нулевой, и каждая
+     * синхронизация была бы полной. Правка старой записи получит поле и
+     * окажется после метки.
+     *
+     * @param serverTime оценка серверного времени начала загрузки снизу, 0 - неизвестно
+     */
+    static long advanceMark(long mark, List<NoteChange> changes, long serverTime) {
+        long newMark = Math.max(mark, serverTime);
+        for (NoteChange change : changes) {
+            newMark = Math.max(newMark, change.getServerUpdatedAt());
+        }
+        return newMark;
+    }
+
+    /**
+     * Решение по одной пришедшей заметке. Локальная заметка считается
+     * измененной, если ее содержимое отличается от базы (или базы нет).
+     * Неизмененная локальная заметка просто заменяется серверной, измененная
+     * сливается через {@link ConflictResolver}, и если результат отличается от
+     * серверной версии, он отправляется обратно с новой версией.
+     */
+    static Reconciled reconcile(@Nullable NoteSyncBase base, @Nullable Notes local, boolean deletionPending,
+            NoteChange change, ConflictResolver resolver, long now) {
+        Notes remote = change.getNote();
+        boolean localDirty = local != null && (base == null || !base.sameContent(local));
+
+        if (change.isDeleted()) {
+            if (localDirty && local.getLastModified() > remote.getLastModified()) {
+                // Правка после удаления на другом устройстве: заметка восстанавливается
+                Notes restored = bump(local, remote, 0);
+                return Reconciled.keep(restored, null, true, restored);
+            }
+            return Reconciled.delete(local != null);
+        }
+
+        if (local == null) {
+            if (deletionPending) {
+                // Заметка удалена локально, tombstone еще в очереди: удаление важнее правки с сервера
+                return Reconciled.keep(null, null, false, null);
+            }
+            return Reconciled.keep(remote, NoteSyncBase.from(remote), false, null);
+        }
+
+        if (!localDirty) {
+            return Reconciled.keep(remote, NoteSyncBase.from(remote), false, null);
+        }
+
+        Notes merged = resolver.resolve(base, local, remote);
+        NoteSyncBase remoteBase = NoteSyncBase.from(remote);
+        if (remoteBase.sameContent(merged)) {
+            return Reconciled.keep(remote, remoteBase, false, null);
+        }
+        // Время правки меняется только у настоящего слияния: если победила локальная
+        // версия целиком, она сохраняет свое время и честно участвует в следующих спорах
+        boolean combined = !NoteSyncBase.from(local).sameContent(merged);
+        merged = bump(merged, remote, combined ? now : 0);
+        return Reconciled.keep(merged, remoteBase, false, merged);
+    }
+
+    // Версия, которая уйдет на сервер, должна быть новее обеих сторон
+    private static Notes bump(Notes note, Notes remote, long minLastModified) {
+        note.setVersion(Math.max(note.getVersion(), remote.getVersion()) + 1);
+        note.setLastModified(Math.max(minLastModified, Math.max(note.getLastModified(), remote.getLastModified())));
+        return note;
+    }
+
+    private Map<Integer, Notes> loadLocal(MainDAO dao, List<Integer> ids) {
+        Map<Integer, Notes> result = new HashMap<>();
+        try (PerfTracer.Span span = PerfTracer.start("notes_load_local")) {
+            for (int from = 0; from < ids.size(); from += MainDAO.MAX_BATCH_ARGS) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + MainDAO.MAX_BATCH_ARGS, ids.size()));
+                for (Notes local : dao.getByIds(chunk)) {
+                    result.put(local.getID(), local);
+                }
+            }
+            span.putMetric("rows", result.size());
+        }
+        return result;
+    }
+
+    // Заметки с неотправленной записью в очереди, одним запросом на всю синхронизацию
+    private Set<Integer> loadPendingIds(String userId) {
+        String prefix = SyncOutbox.pathFor(userId, "notes", "");
+        Set<Integer> result = new HashSet<>();
+        for (String path : database.outboxDao().pathsWithPrefix(prefix)) {
+            try {
+                result.add(Integer.parseInt(path.substring(prefix.length())));
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Unexpected outbox path " + path);
+            }
+        }
+        return result;
+    }
+
+    private Map<Integer, NoteSyncBase> loadBases(NoteSyncBaseDao baseDao, List<Integer> ids) {
+        Map<Integer, NoteSyncBase> result = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += MainDAO.MAX_BATCH_ARGS) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + MainDAO.MAX_BATCH_ARGS, ids.size()));
+            for (NoteSyncBase base : baseDao.getByIds(chunk)) {
+                result.put(base.getNoteId(), base);
+            }
+        }
+        return result;
+    }
+
+    static class Reconciled {
+
+        // Что записать локально, null - ничего
+        final Notes upsert;
+        final boolean delete;
+        // Новая база; если null и dropBase, база удаляется
+        final NoteSyncBase base;
+        final boolean dropBase;
+        // Что отправить на сервер, null - ничего
+        final Notes publish;
+
+        private Reconciled(Notes upsert, boolean delete, NoteSyncBase base, boolean dropBase, Notes publish) {
+            this.upsert = upsert;
+            this.delete = delete;
+            this.base = base;
+            this.dropBase = dropBase;
+            this.publish = publish;
+        }
+
+        static Reconciled keep(Notes upsert, NoteSyncBase base, boolean dropBase, Notes publish) {
+            return new Reconciled(upsert, false, base, dropBase, publish);
+        }
+
+        static Reconciled delete(boolean hasLocal) {
+            return new Reconciled(null, hasLocal, null, true, null);
+        }
+    }
+
+    public interface RemoteSource {
+
+        void fetchChanges(String userId, long sinceMark, FetchCallback callback);
+    }
+
+    /**
+     * Отправка на сервер локальной версии, получившейся при слиянии.
+     */
+    public interface Publisher {
+
+        void publish(Notes note);
+    }
+
+    public interface FetchCallback {
+
+        /**
+         * @param serverTime серверное время не позже начала загрузки, 0 - неизвестно
+         */
+        void onFetched(List<NoteChange> changes, long serverTime);
+
+        void onError(Exception e);
+    }
+
+    public static class NoteChange {
+
+        private final Notes note;
+        private final boolean deleted;
+        private final long serverUpdatedAt;
+
+        public NoteChange(Notes note, boolean deleted) {
+            this(note, deleted, 0);
+        }
+
+        /**
+         * @param serverUpdatedAt время записи на сервере, 0 - неизвестно
+         */
+        public NoteChange(Notes note, boolean deleted, long serverUpdatedAt) {
+            this.note = note;
+            this.deleted = deleted;
+            this.serverUpdatedAt = serverUpdatedAt;
+        }
+
+        public Notes getNote() {
+            return note;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+
+        public long getServerUpdatedAt() {
+            return serverUpdatedAt;
+        }
+    }
+}
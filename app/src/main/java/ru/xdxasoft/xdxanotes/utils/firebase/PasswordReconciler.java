@@ -0,0 +1,76 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ru.xdxasoft.xdxanotes.models.Password;
+
+/**
+ * Разница между локальными паролями и снимком из Firebase. Сервер считается
+ * источником истины, кроме записей с неотправленной локальной правкой в
+ * {@link SyncOutbox}: они не трогаются, их версия уйдет на сервер следующей.
+ * Совпадающие строки в разницу не попадают, поэтому повторная синхронизация
+ * без изменений ничего не пишет.
+ */
+public final class PasswordReconciler {
+
+    private PasswordReconciler() {
+    }
+
+    /**
+     * @param local      локальные пароли пользователя
+     * @param remote     пароли из снимка, userId уже проставлен
+     * @param pendingIds id паролей, для которых в очереди есть локальная запись
+     */
+    public static Diff diff(List<Password> local, Collection<Password> remote, Set<String> pendingIds) {
+        Map<String, Password> localById = new HashMap<>(local.size() * 2);
+        for (Password password : local) {
+            localById.put(password.getId(), password);
+        }
+
+        Diff diff = new Diff();
+        for (Password remotePassword : remote) {
+            String id = remotePassword.getId();
+            Password localPassword = localById.remove(id);
+            if (pendingIds.contains(id)) {
+                continue;
+            }
+            if (localPassword == null) {
+                diff.inserted++;
+                diff.upserts.add(remotePassword);
+            } else if (!localPassword.sameContent(remotePassword)) {
+                diff.updated++;
+                diff.upserts.add(remotePassword);
+            }
+        }
+
+        // Осталось то, чего нет на сервере: удалено с другого устройства или еще не отправлено
+        for (String id : localById.keySet()) {
+            if (!pendingIds.contains(id)) {
+                diff.deletedIds.add(id);
+            }
+        }
+        return diff;
+    }
+
+    public static class Diff {
+
+        public final List<Password> upserts = new ArrayList<>();
+        public final List<String> deletedIds = new ArrayList<>();
+        public int inserted;
+        public int updated;
+
+        public boolean isEmpty() {
+            return upserts.isEmpty() && deletedIds.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return inserted + " inserted, " + updated + " updated, " + deletedIds.size() + " deleted";
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DatabaseReference;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import ru.xdxasoft.xdxanotes.services.SyncScheduler;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.DatabaseExecutor;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.OutboxDao;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.OutboxEntry;
+import ru.xdxasoft.xdxanotes.utils.vault.PasswordVault;
+
+/**
+ * Очередь записей в Firebase, хранящаяся в Room. Запись сначала попадает в
+ * таблицу sync_outbox, затем фоновая задача отправляет очередь по порядку.
+ * Отправка идемпотентна: setValue и removeValue можно безопасно повторить,
+ * а из очереди удаляется только та версия записи, которая была отправлена.
+ * Неотправленная запись из очереди не удаляется никогда, пока она там, синхронизация
+ * не перезаписывает ее путь данными с сервера.
+ */
+public class SyncOutbox {
+
+    private static final String TAG = "SyncOutbox";
+
+    private static final int BATCH_SIZE = 50;
+    private static final long WRITE_TIMEOUT_SECONDS = 30;
+    // После стольких отказов сервера запись откладывается: остается в очереди и
+    // повторяется при каждой отправке, но больше не задерживает записи за ней
+    private static final int PARK_AFTER_ATTEMPTS = 5;
+    // Служебное поле payload со списком зашифрованных полей, на сервер не уходит
+    private static final String KEY_ENCRYPTED = "_encrypted";
+
+    private final Context context;
+    private final OutboxDao dao;
+    private final DatabaseReference root;
+
+    public SyncOutbox(Context context, RoomDB database, DatabaseReference root) {
+        this.context = context.getApplicationContext();
+        this.dao = database.outboxDao();
+        this.root = root;
+    }
+
+    /**
+     * Путь записи пользователя от корня базы, в таком виде он хранится в очереди.
+     */
+    public static String pathFor(String userId, String collection, String key) {
+        return "Users/" + userId + "/" + collection + "/" + key;
+    }
+
+    /**
+     * Ставит в очередь setValue по пути. В callback приходит true, как только
+     * запись сохранена локально, сеть для этого не нужна.
+     */
+    public void enqueueSet(String path, Map<String, Object> values, DatabaseExecutor.ResultCallback<Boolean> callback) {
+        enqueue(() -> new OutboxEntry(path, new JSONObject(values).toString()), callback);
+    }
+
+    /**
+     * Как {@link #enqueueSet}, но значения secretKeys лежат в очереди
+     * зашифрованными ключом {@link PasswordVault} и расшифровываются только
+     * перед отправкой: офлайн запись может ждать в sync_outbox сколько угодно.
+     */
+    public void enqueueSecretSet(String path, Map<String, Object> values, Set<String> secretKeys,
+            DatabaseExecutor.ResultCallback<Boolean> callback) {
+        Map<String, Object> stored = new HashMap<>(values);
+        enqueue(() -> {
+            PasswordVault vault = PasswordVault.getInstance(context);
+            JSONArray encrypted = new JSONArray();
+            for (String key : secretKeys) {
+                Object value = stored.get(key);
+                if (value != null) {
+                    stored.put(key, vault.encrypt(value.toString()));
+                    encrypted.put(key);
+                }
+            }
+            JSONObject json = new JSONObject(stored);
+            json.put(KEY_ENCRYPTED, encrypted);
+            return new OutboxEntry(path, json.toString());
+        }, callback);
+    }
+
+    /**
+     * Ставит в очередь пачку setValue (путь -> значения) одной транзакцией.
+     * Выполняется в вызывающем потоке, поэтому вызывать ее можно только вне
+     * главного, например из синхронизации, которая уже работает в пуле БД.
+     */
+    public void enqueueSetAll(Map<String, Map<String, Object>> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        List<OutboxEntry> entries = new ArrayList<>(writes.size());
+        for (Map.Entry<String, Map<String, Object>> write : writes.entrySet()) {
+            entries.add(new OutboxEntry(write.getKey(), new JSONObject(write.getValue()).toString()));
+        }
+        dao.enqueueAll(entries);
+        SyncScheduler.requestOutboxFlush(context);
+    }
+
+    public void enqueueRemove(String path, DatabaseExecutor.ResultCallback<Boolean> callback) {
+        enqueue(() -> new OutboxEntry(path, null), callback);
+    }
+
+    // Запись собирается в фоновом потоке: шифрование может обращаться к Keystore
+    private void enqueue(Callable<OutboxEntry> entry, DatabaseExecutor.ResultCallback<Boolean> callback) {
+        DatabaseExecutor.submit(() -> {
+            dao.enqueue(entry.call());
+            SyncScheduler.requestOutboxFlush(context);
+            return true;
+        }, result -> {
+            if (callback != null) {
+                callback.onResult(result != null && result);
+            }
+        });
+    }
+
+    /**
+     * Отправляет очередь по порядку. Каждая выборка уходит одним атомарным
+     * updateChildren; если он не прошел, записи выборки отправляются по одной,
+     * чтобы испорченная запись не держала остальные. Выполняется в фоновом
+     * потоке и блокируется на время записи. Повторы после неудачи делает
+     * WorkManager с экспоненциальной задержкой, ограниченной сверху.
+     *
+     * @return true, если очередь опустела; false, если отправку надо повторить позже
+     */
+    public boolean drain() {
+        long afterId = 0;
+        boolean parked = false;
+        while (true) {
+            List<OutboxEntry> batch = dao.peekAfter(afterId, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                return !parked;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+
+            try {
+                if (batch.size() > 1 && sendBatch(batch)) {
+                    continue;
+                }
+                for (OutboxEntry entry : batch) {
+                    Sent sent = sendOne(entry);
+                    if (sent == Sent.PARKED) {
+                        parked = true;
+                    } else if (sent == Sent.RETRY) {
+                        // Порядок важен, поэтому остальные записи ждут следующей попытки
+                        return false;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private boolean sendBatch(List<OutboxEntry> batch) throws InterruptedException {
+        Map<String, Object> updates = new LinkedHashMap<>();
+        for (OutboxEntry entry : batch) {
+            try {
+                updates.put(entry.getPath(), entry.isRemove() ? null : payloadToMap(entry.getPayload()));
+            } catch (JSONException | GeneralSecurityException e) {
+                // Такую запись разберет sendOne
+                return false;
+            }
+        }
+
+        try {
+            Tasks.await(root.updateChildren(updates), WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            Log.w(TAG, "Outbox batch of " + batch.size() + " failed, sending one by one", e);
+            return false;
+        }
+
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (OutboxEntry entry : batch) {
+            ids.add(entry.getId());
+        }
+        dao.deleteSentBatch(ids);
+        return true;
+    }
+
+    private Sent sendOne(OutboxEntry entry) throws InterruptedException {
+        try {
+            Task<Void> task = entry.isRemove()
+                    ? root.child(entry.getPath()).removeValue()
+                    : root.child(entry.getPath()).setValue(payloadToMap(entry.getPayload()));
+            Tasks.await(task, WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            dao.deleteSent(entry.getId());
+            return Sent.DONE;
+        } catch (JSONException e) {
+            // Разобрать такую запись не получится никогда, это единственный случай потери
+            Log.e(TAG, "Dropping malformed outbox entry for " + entry.getPath(), e);
+            dao.deleteSent(entry.getId());
+            return Sent.DONE;
+        } catch (GeneralSecurityException e) {
+            // Ключ хранилища может быть временно недоступен, запись ждет следующей отправки
+            Log.e(TAG, "Outbox entry for " + entry.getPath() + " cannot be decrypted, parking it", e);
+            dao.markFailed(entry.getId());
+            return Sent.PARKED;
+        } catch (TimeoutException e) {
+            // Нет связи: это не вина записи, попытка не засчитывается
+            Log.w(TAG, "Outbox write timed out for " + entry.getPath() + ", will retry");
+            return Sent.RETRY;
+        } catch (ExecutionException e) {
+            dao.markFailed(entry.getId());
+            if (entry.getAttempts() + 1 >= PARK_AFTER_ATTEMPTS) {
+                Log.e(TAG, "Outbox entry for " + entry.getPath() + " keeps failing, parking it", e);
+                return Sent.PARKED;
+            }
+            Log.w(TAG, "Outbox write failed for " + entry.getPath() + ", will retry", e);
+            return Sent.RETRY;
+        }
+    }
+
+    private enum Sent {
+        DONE,
+        // Запись осталась в очереди, следующие можно отправлять
+        PARKED,
+        // Запись осталась в очереди, отправка прекращается до следующей попытки
+        RETRY
+    }
+
+    public boolean hasPending() {
+        return dao.count() > 0;
+    }
+
+    public void clear() {
+        dao.deleteAll();
+    }
+
+    private Map<String, Object> payloadToMap(String payload) throws JSONException, GeneralSecurityException {
+        JSONObject json = new JSONObject(payload);
+        JSONArray encrypted = (JSONArray) json.remove(KEY_ENCRYPTED);
+        Map<String, Object> values = toMap(json);
+        if (encrypted != null) {
+            PasswordVault vault = PasswordVault.getInstance(context);
+            for (int i = 0; i < encrypted.length(); i++) {
+                String key = encrypted.getString(i);
+                values.put(key, vault.decrypt((String) values.get(key)));
+            }
+        }
+        return values;
+    }
+
+    // Вложенные объекты - это ServerValue.TIMESTAMP, Firebase ждет их в виде Map
+    private static Map<String, Object> toMap(JSONObject json) throws JSONException {
+        Map<String, Object> values = new HashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = json.get(key);
+            if (value instanceof JSONObject) {
+                value = toMap((JSONObject) value);
+            }
+            values.put(key, value == JSONObject.NULL ? null : value);
+        }
+        return values;
+    }
+}
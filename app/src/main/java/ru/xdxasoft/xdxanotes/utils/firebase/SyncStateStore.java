@@ -0,0 +1,54 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Хранит состояние синхронизации: для какого пользователя заполнена локальная
+ * БД, до какой метки serverUpdatedAt заметки уже загружены из Firebase и
+ * включен ли режим живой синхронизации.
+ */
+public class SyncStateStore {
+
+    private static final String PREF_NAME = "sync_state";
+    private static final String KEY_LAST_USER_ID = "last_user_id";
+    // Прежние метки notes_mark_ были по клиентскому lastModified и не сравнимы с серверным временем
+    private static final String KEY_NOTES_MARK_PREFIX = "notes_server_mark_";
+    private static final String KEY_LIVE_SYNC = "live_sync";
+
+    private final SharedPreferences preferences;
+
+    public SyncStateStore(Context context) {
+        preferences = context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    public String getLastUserId() {
+        return preferences.getString(KEY_LAST_USER_ID, null);
+    }
+
+    public void setLastUserId(String userId) {
+        preferences.edit().putString(KEY_LAST_USER_ID, userId).apply();
+    }
+
+    public long getNotesMark(String userId) {
+        return preferences.getLong(KEY_NOTES_MARK_PREFIX + userId, 0);
+    }
+
+    public void setNotesMark(String userId, long mark) {
+        preferences.edit().putLong(KEY_NOTES_MARK_PREFIX + userId, mark).apply();
+    }
+
+    public boolean isLiveSyncEnabled() {
+        return preferences.getBoolean(KEY_LIVE_SYNC, false);
+    }
+
+    public void setLiveSyncEnabled(boolean enabled) {
+        preferences.edit().putBoolean(KEY_LIVE_SYNC, enabled).apply();
+    }
+
+    // Выбор режима синхронизации - настройка пользователя, при очистке состояния он сохраняется
+    public void clear() {
+        boolean liveSync = isLiveSyncEnabled();
+        preferences.edit().clear().putBoolean(KEY_LIVE_SYNC, liveSync).apply();
+    }
+}
@@ -0,0 +1,218 @@
+package ru.xdxasoft.xdxanotes.utils.notes.Adapter;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.cardview.widget.CardView;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import ru.xdxasoft.xdxanotes.R;
+
+/**
+ * Сетка дней месяца для GridLayoutManager на 7 колонок. Ячейки
+ * переиспользуются, при смене месяца, выбранного дня или набора дат с
+ * событиями перепривязывается только их состояние.
+ */
+public class CalendarDaysAdapter extends RecyclerView.Adapter<CalendarDaysAdapter.DayViewHolder> {
+
+    public static final int DAYS_IN_WEEK = 7;
+    private static final int MAX_WEEKS = 6;
+
+    // Частичное обновление: только фон и индикатор, текст числа не меняется
+    private static final Object PAYLOAD_STATE = new Object();
+
+    // Адаптер используется только из главного потока, поэтому формат можно переиспользовать
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+
+    private final List<Day> days = new ArrayList<>(DAYS_IN_WEEK * MAX_WEEKS);
+    private final OnDayClickListener listener;
+
+    private final int selectedColor;
+    private final int todayColor;
+    private final int currentMonthColor;
+    private final int otherMonthColor;
+    private final int currentMonthTextColor;
+    private final int otherMonthTextColor;
+
+    private Set<String> eventDates = Collections.emptySet();
+    private String selectedDate;
+    private String today;
+
+    public CalendarDaysAdapter(Context context, OnDayClickListener listener) {
+        this.listener = listener;
+        selectedColor = ContextCompat.getColor(context, R.color.selected_day);
+        todayColor = ContextCompat.getColor(context, R.color.today);
+        currentMonthColor = ContextCompat.getColor(context, R.color.current_month_day);
+        otherMonthColor = ContextCompat.getColor(context, R.color.other_month_day);
+        currentMonthTextColor = ContextCompat.getColor(context, R.color.white);
+        otherMonthTextColor = ContextCompat.getColor(context, R.color.gray_text);
+    }
+
+    /**
+     * Строит сетку для месяца, начиная с понедельника недели, в которую
+     * попадает 1 число.
+     */
+    public void setMonth(Calendar month) {
+        today = dateFormat.format(Calendar.getInstance().getTime());
+
+        Calendar calendar = (Calendar) month.clone();
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+
+        // 1 = понедельник, 7 = воскресенье
+        int firstDayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
+        firstDayOfWeek = firstDayOfWeek == Calendar.SUNDAY ? 7 : firstDayOfWeek - 1;
+        calendar.add(Calendar.DAY_OF_MONTH, -(firstDayOfWeek - 1));
+
+        int targetMonth = month.get(Calendar.MONTH);
+        List<Day> newDays = new ArrayList<>(DAYS_IN_WEEK * MAX_WEEKS);
+        for (int week = 0; week < MAX_WEEKS; week++) {
+            for (int day = 0; day < DAYS_IN_WEEK; day++) {
+                newDays.add(new Day(
+                        dateFormat.format(calendar.getTime()),
+                        calendar.get(Calendar.DAY_OF_MONTH),
+                        calendar.get(Calendar.MONTH) == targetMonth
+                ));
+                calendar.add(Calendar.DAY_OF_MONTH, 1);
+            }
+
+            // Месяц уже показан целиком и есть хотя бы 4 недели
+            if (calendar.get(Calendar.MONTH) != targetMonth && week >= 3) {
+                break;
+            }
+        }
+
+        int oldSize = days.size();
+        int newSize = newDays.size();
+        days.clear();
+        days.addAll(newDays);
+
+        notifyItemRangeChanged(0, Math.min(oldSize, newSize));
+        if (newSize > oldSize) {
+            notifyItemRangeInserted(oldSize, newSize - oldSize);
+        } else if (newSize < oldSize) {
+            notifyItemRangeRemoved(newSize, oldSize - newSize);
+        }
+    }
+
+    public void setSelectedDate(String date) {
+        String previous = selectedDate;
+        selectedDate = date;
+        notifyDateChanged(previous);
+        notifyDateChanged(date);
+    }
+
+    public void setEventDates(Set<String> dates) {
+        eventDates = new HashSet<>(dates);
+        notifyItemRangeChanged(0, days.size(), PAYLOAD_STATE);
+    }
+
+    private void notifyDateChanged(String date) {
+        if (date == null) {
+            return;
+        }
+        for (int i = 0; i < days.size(); i++) {
+            if (days.get(i).date.equals(date)) {
+                notifyItemChanged(i, PAYLOAD_STATE);
+                return;
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public DayViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_calendar_day, parent, false);
+        DayViewHolder holder = new DayViewHolder(view);
+        holder.cardView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && listener != null) {
+                listener.onDayClick(days.get(position).date);
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull DayViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            bindState(holder, days.get(position));
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull DayViewHolder holder, int position) {
+        Day day = days.get(position);
+        holder.textViewDay.setText(String.valueOf(day.dayOfMonth));
+        holder.textViewDay.setTextColor(day.currentMonth ? currentMonthTextColor : otherMonthTextColor);
+        bindState(holder, day);
+    }
+
+    private void bindState(DayViewHolder holder, Day day) {
+        int background;
+        if (day.date.equals(selectedDate)) {
+            background = selectedColor;
+        } else if (day.date.equals(today)) {
+            background = todayColor;
+        } else if (day.currentMonth) {
+            background = currentMonthColor;
+        } else {
+            background = otherMonthColor;
+        }
+        holder.cardView.setCardBackgroundColor(background);
+        holder.eventIndicator.setVisibility(eventDates.contains(day.date) ? View.VISIBLE : View.GONE);
+    }
+
+    @Override
+    public int getItemCount() {
+        return days.size();
+    }
+
+    private static class Day {
+
+        final String date;
+        final int dayOfMonth;
+        final boolean currentMonth;
+
+        Day(String date, int dayOfMonth, boolean currentMonth) {
+            this.date = date;
+            this.dayOfMonth = dayOfMonth;
+            this.currentMonth = currentMonth;
+        }
+    }
+
+    public static class DayViewHolder extends RecyclerView.ViewHolder {
+
+        CardView cardView;
+        TextView textViewDay;
+        View eventIndicator;
+
+        public DayViewHolder(@NonNull View itemView) {
+            super(itemView);
+            cardView = itemView.findViewById(R.id.cardViewDay);
+            textViewDay = itemView.findViewById(R.id.textViewDay);
+            eventIndicator = itemView.findViewById(R.id.eventIndicator);
+        }
+    }
+
+    public interface OnDayClickListener {
+
+        void onDayClick(String date);
+    }
+}
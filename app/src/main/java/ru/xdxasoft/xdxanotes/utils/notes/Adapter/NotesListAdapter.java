@@ -10,25 +10,40 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.List;
-
 import ru.xdxasoft.xdxanotes.R;
-import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSummary;
 import ru.xdxasoft.xdxanotes.utils.notes.NotesClickListener;
 
-public class NotesListAdapter extends RecyclerView.Adapter<NotesListAdapter.NotesViewHolder> {
+public class NotesListAdapter extends PagingDataAdapter<NoteSummary, NotesListAdapter.NotesViewHolder> {
 
     private static final String TAG = "NotesListAdapter";
 
+    private static final DiffUtil.ItemCallback<NoteSummary> DIFF_CALLBACK = new DiffUtil.ItemCallback<NoteSummary>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull NoteSummary oldItem, @NonNull NoteSummary newItem) {
+            return oldItem.getID() == newItem.getID();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull NoteSummary oldItem, @NonNull NoteSummary newItem) {
+            return oldItem.isPinned() == newItem.isPinned()
+                    && oldItem.getLastModified() == newItem.getLastModified()
+                    && oldItem.getTitle().equals(newItem.getTitle())
+                    && oldItem.getPreview().equals(newItem.getPreview())
+                    && oldItem.getDate().equals(newItem.getDate());
+        }
+    };
+
     private Context context;
-    private List<Notes> list;
     private NotesClickListener listener;
 
-    public NotesListAdapter(Context context, List<Notes> list, NotesClickListener listener) {
+    public NotesListAdapter(Context context, NotesClickListener listener) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.list = list;
         this.listener = listener;
     }
 
@@ -48,16 +63,15 @@ public class NotesListAdapter extends RecyclerView.Adapter<NotesListAdapter.Note
     @Override
     public void onBindViewHolder(@NonNull NotesViewHolder holder, int position) {
         try {
-            if (position >= 0 && position < list.size()) {
-                Notes note = list.get(position);
-
+            NoteSummary note = getItem(position);
+            if (note != null) {
                 if (holder.textView_title != null) {
                     holder.textView_title.setText(note.getTitle());
                     holder.textView_title.setSelected(true);
                 }
 
                 if (holder.textView_notes != null) {
-                    holder.textView_notes.setText(note.getNotes());
+                    holder.textView_notes.setText(note.getPreview());
                 }
 
                 if (holder.textView_date != null) {
@@ -94,20 +108,6 @@ public class NotesListAdapter extends RecyclerView.Adapter<NotesListAdapter.Note
         }
     }
 
-    @Override
-    public int getItemCount() {
-        return list != null ? list.size() : 0;
-    }
-
-    public void filterList(List<Notes> filteredList) {
-        try {
-            list = filteredList;
-            notifyDataSetChanged();
-        } catch (Exception e) {
-            Log.e(TAG, "Error in filterList", e);
-        }
-    }
-
     public static class NotesViewHolder extends RecyclerView.ViewHolder {
 
         CardView notes_container;
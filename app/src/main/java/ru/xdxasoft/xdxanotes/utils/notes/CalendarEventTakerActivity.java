@@ -22,9 +22,11 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
 
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
 import ru.xdxasoft.xdxanotes.R;
 import ru.xdxasoft.xdxanotes.utils.ToastManager;
-import ru.xdxasoft.xdxanotes.utils.firebase.FirebaseManager;
 import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
 import ru.xdxasoft.xdxanotes.utils.IdGenerator;
 
@@ -45,7 +47,6 @@ public class CalendarEventTakerActivity extends AppCompatActivity {
     private int selectedNotificationType = 0; // 0 - нет, 1 - одноразовое, 2 - весь день
     private boolean isEditMode = false;
     private CalendarEvent existingEvent;
-    private FirebaseManager firebaseManager;
     private Calendar selectedCalendar;
 
     @Override
@@ -56,7 +57,6 @@ public class CalendarEventTakerActivity extends AppCompatActivity {
         initViews();
         setupListeners();
 
-        firebaseManager = FirebaseManager.getInstance(this);
         selectedCalendar = Calendar.getInstance();
 
         // По умолчанию показываем опцию "Без уведомления"
@@ -450,8 +450,9 @@ public class CalendarEventTakerActivity extends AppCompatActivity {
             event = existingEvent;
         } else {
             // Создаем новое событие
+            FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
             event = new CalendarEvent(title, description, selectedDate, selectedTime,
-                    firebaseManager.isUserLoggedIn() ? firebaseManager.getUserId() : "");
+                    currentUser != null ? currentUser.getUid() : "");
             event.setNotificationType(selectedNotificationType);
             event.setNotificationTime(selectedNotificationTime);
             // У нового события eventId должен быть установлен в конструкторе
@@ -1,14 +1,19 @@
 package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
 
+import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
+import androidx.room.Upsert;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.DayEventCount;
 
 @Dao
 public interface CalendarDao {
@@ -16,18 +21,50 @@ public interface CalendarDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(CalendarEvent event);
 
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    List<Long> insertAll(List<CalendarEvent> events);
+
+    @Upsert
+    void upsertAll(List<CalendarEvent> events);
+
     @Query("SELECT * FROM calendar_events ORDER BY date ASC, time ASC")
     List<CalendarEvent> getAll();
 
     @Query("SELECT * FROM calendar_events WHERE date = :date ORDER BY CASE WHEN notificationType = 2 THEN 0 ELSE 1 END, time ASC")
     List<CalendarEvent> getEventsByDate(String date);
 
+    @Query("SELECT * FROM calendar_events WHERE date = :date ORDER BY CASE WHEN notificationType = 2 THEN 0 ELSE 1 END, time ASC")
+    LiveData<List<CalendarEvent>> observeEventsByDate(String date);
+
+    // Даты в формате yyyy-MM-dd сравниваются как строки, диапазон идет по индексу на date
+    @Query("SELECT * FROM calendar_events WHERE date BETWEEN :startDate AND :endDate ORDER BY date ASC, time ASC")
+    List<CalendarEvent> getEventsBetween(String startDate, String endDate);
+
+    @Query("SELECT date, COUNT(*) AS count, MAX(notificationType = 2) AS hasAllDay FROM calendar_events "
+            + "WHERE date BETWEEN :startDate AND :endDate GROUP BY date")
+    List<DayEventCount> getEventCountsBetween(String startDate, String endDate);
+
+    @Query("SELECT date, COUNT(*) AS count, MAX(notificationType = 2) AS hasAllDay FROM calendar_events "
+            + "WHERE date BETWEEN :startDate AND :endDate GROUP BY date")
+    LiveData<List<DayEventCount>> observeEventCountsBetween(String startDate, String endDate);
+
     @Query("SELECT * FROM calendar_events WHERE ID = :id")
     CalendarEvent getById(int id);
 
     @Query("SELECT * FROM calendar_events WHERE eventId = :eventId")
     CalendarEvent getByEventId(String eventId);
 
+    @Query("SELECT * FROM calendar_events WHERE eventId IN (:eventIds)")
+    List<CalendarEvent> getByEventIdsChunk(List<String> eventIds);
+
+    default List<CalendarEvent> getByEventIds(List<String> eventIds) {
+        List<CalendarEvent> result = new ArrayList<>(eventIds.size());
+        for (int from = 0; from < eventIds.size(); from += MainDAO.MAX_BATCH_ARGS) {
+            result.addAll(getByEventIdsChunk(eventIds.subList(from, Math.min(from + MainDAO.MAX_BATCH_ARGS, eventIds.size()))));
+        }
+        return result;
+    }
+
     @Query("UPDATE calendar_events SET completed = :completed WHERE ID = :id")
     void updateCompletionStatus(int id, boolean completed);
 
@@ -46,6 +83,34 @@ public interface CalendarDao {
     @Query("DELETE FROM calendar_events WHERE eventId = :eventId")
     void deleteByEventId(String eventId);
 
+    @Query("DELETE FROM calendar_events WHERE eventId IN (:eventIds)")
+    void deleteByEventIdsChunk(List<String> eventIds);
+
+    default void deleteByEventIds(List<String> eventIds) {
+        for (int from = 0; from < eventIds.size(); from += MainDAO.MAX_BATCH_ARGS) {
+            deleteByEventIdsChunk(eventIds.subList(from, Math.min(from + MainDAO.MAX_BATCH_ARGS, eventIds.size())));
+        }
+    }
+
+    @Query("DELETE FROM calendar_events WHERE userId = :userId")
+    void deleteAllForUser(String userId);
+
     @Query("DELETE FROM calendar_events")
     void deleteAll();
+
+    @Transaction
+    default void replaceAllForUser(String userId, List<CalendarEvent> events) {
+        deleteAllForUser(userId);
+        insertAll(events);
+    }
+
+    @Transaction
+    default void applyChanges(List<CalendarEvent> upserts, List<String> deletedEventIds) {
+        if (!deletedEventIds.isEmpty()) {
+            deleteByEventIds(deletedEventIds);
+        }
+        if (!upserts.isEmpty()) {
+            upsertAll(upserts);
+        }
+    }
 }
@@ -0,0 +1,86 @@
+package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
+
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+
+import java.util.List;
+
+import ru.xdxasoft.xdxanotes.services.ReminderScheduler;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.DayEventCount;
+
+/**
+ * Доступ к событиям календаря вне главного потока, по аналогии с
+ * {@link NotesRepository}.
+ */
+public class CalendarRepository {
+
+    private static CalendarRepository instance;
+
+    private final Context context;
+    private final CalendarDao dao;
+
+    private CalendarRepository(Context context) {
+        this.context = context.getApplicationContext();
+        dao = RoomDB.getInstance(context).calendarDao();
+    }
+
+    public static synchronized CalendarRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new CalendarRepository(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Число событий по дням в диапазоне [startDate, endDate], даты в формате
+     * yyyy-MM-dd.
+     */
+    public LiveData<List<DayEventCount>> getEventCountsBetween(String startDate, String endDate) {
+        return dao.observeEventCountsBetween(startDate, endDate);
+    }
+
+    public LiveData<List<CalendarEvent>> observeEventsByDate(String date) {
+        return dao.observeEventsByDate(date);
+    }
+
+    public void getEventsByDate(String date, DatabaseExecutor.ResultCallback<List<CalendarEvent>> callback) {
+        DatabaseExecutor.submit(() -> dao.getEventsByDate(date), callback);
+    }
+
+    // После каждой записи очередь напоминаний пересчитывается
+    public void insert(CalendarEvent event) {
+        DatabaseExecutor.execute(() -> {
+            dao.insert(event);
+            ReminderScheduler.reschedule(context);
+        });
+    }
+
+    public void update(CalendarEvent event) {
+        DatabaseExecutor.execute(() -> {
+            dao.update(
+                    event.getID(),
+                    event.getTitle(),
+                    event.getDescription(),
+                    event.getDate(),
+                    event.getTime()
+            );
+            ReminderScheduler.reschedule(context);
+        });
+    }
+
+    public void updateCompletionStatus(int id, boolean completed) {
+        DatabaseExecutor.execute(() -> {
+            dao.updateCompletionStatus(id, completed);
+            ReminderScheduler.reschedule(context);
+        });
+    }
+
+    public void delete(CalendarEvent event) {
+        DatabaseExecutor.execute(() -> {
+            dao.delete(event);
+            ReminderScheduler.reschedule(context);
+        });
+    }
+}
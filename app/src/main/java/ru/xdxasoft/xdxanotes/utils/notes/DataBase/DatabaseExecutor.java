@@ -0,0 +1,76 @@
+package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Общий ограниченный пул потоков для работы с локальными БД. Room использует
+ * его же для LiveData-запросов, поэтому обращения к диску никогда не
+ * выполняются в главном потоке.
+ */
+public final class DatabaseExecutor {
+
+    private static final String TAG = "DatabaseExecutor";
+    private static final int THREAD_COUNT = 3;
+
+    private static final AtomicInteger threadNumber = new AtomicInteger(1);
+    private static final ExecutorService io = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+        Thread thread = new Thread(runnable, "db-io-" + threadNumber.getAndIncrement());
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Executor mainThread = mainHandler::post;
+
+    private DatabaseExecutor() {
+    }
+
+    public static ExecutorService io() {
+        return io;
+    }
+
+    public static Executor mainThread() {
+        return mainThread;
+    }
+
+    public static void execute(Runnable task) {
+        io.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Error in database task", e);
+            }
+        });
+    }
+
+    /**
+     * Выполняет задачу в пуле БД и передает результат в главный поток. При
+     * ошибке в callback приходит null.
+     */
+    public static <T> void submit(Callable<T> task, ResultCallback<T> callback) {
+        io.execute(() -> {
+            T result = null;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                Log.e(TAG, "Error in database task", e);
+            }
+            if (callback != null) {
+                T finalResult = result;
+                mainHandler.post(() -> callback.onResult(finalResult));
+            }
+        });
+    }
+
+    public interface ResultCallback<T> {
+
+        void onResult(T result);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import ru.xdxasoft.xdxanotes.utils.PasswordDatabaseHelper;
+import ru.xdxasoft.xdxanotes.utils.vault.PasswordVault;
+
+/**
+ * Однократный перенос паролей из старого passwords.db в таблицу passwords,
+ * пароли при этом шифруются {@link PasswordVault}.
+ * Выполняется при открытии RoomDB, до первого запроса, поэтому список паролей
+ * никогда не читается из полупустой таблицы. После успешного переноса старый
+ * файл удаляется, и при следующих открытиях остается только проверка его
+ * наличия.
+ */
+class LegacyPasswordImport extends RoomDatabase.Callback {
+
+    private static final String TAG = "LegacyPasswordImport";
+
+    private final Context context;
+
+    LegacyPasswordImport(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void onOpen(@NonNull SupportSQLiteDatabase db) {
+        if (!context.getDatabasePath(PasswordDatabaseHelper.DATABASE_NAME).exists()) {
+            return;
+        }
+
+        int imported = 0;
+        PasswordVault vault = PasswordVault.getInstance(context);
+        PasswordDatabaseHelper legacy = new PasswordDatabaseHelper(context);
+        db.beginTransaction();
+        try (Cursor cursor = legacy.getReadableDatabase().query("passwords",
+                new String[]{"id", "title", "username", "password", "userId"},
+                null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                String id = cursor.getString(0);
+                if (id == null || id.isEmpty()) {
+                    continue;
+                }
+                ContentValues values = new ContentValues();
+                values.put("id", id);
+                values.put("title", cursor.getString(1));
+                values.put("username", cursor.getString(2));
+                values.put("password", vault.encrypt(cursor.getString(3)));
+                values.put("userId", cursor.getString(4));
+                // Запись, уже созданная в новой таблице, новее старой
+                if (db.insert("passwords", SQLiteDatabase.CONFLICT_IGNORE, values) != -1) {
+                    imported++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            // Старый файл остается на месте, перенос повторится при следующем открытии
+            Log.e(TAG, "Error importing legacy passwords", e);
+            return;
+        } finally {
+            db.endTransaction();
+            legacy.close();
+        }
+
+        context.deleteDatabase(PasswordDatabaseHelper.DATABASE_NAME);
+        Log.d(TAG, "Imported " + imported + " passwords from legacy database");
+    }
+}
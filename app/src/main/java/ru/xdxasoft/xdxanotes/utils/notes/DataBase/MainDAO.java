@@ -1,36 +1,116 @@
 package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
 
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
-import androidx.room.Insert;
-import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
+import androidx.room.Upsert;
 
 import java.util.List;
 
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSummary;
 import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
 
 @Dao
 public interface MainDAO {
 
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    // Ограничение SQLite на число параметров в одном запросе
+    int MAX_BATCH_ARGS = 900;
+
+    String SUMMARY_COLUMNS = "ID, title, date, pinned, lastModified, substr(notes, 1, "
+            + NoteSummary.PREVIEW_LENGTH + ") AS preview";
+
+    String SUMMARY_COLUMNS_QUALIFIED = "notes.ID, notes.title, notes.date, notes.pinned, notes.lastModified, "
+            + "substr(notes.notes, 1, " + NoteSummary.PREVIEW_LENGTH + ") AS preview";
+
+    // Не REPLACE: он удаляет и заново вставляет строку, и триггеры notes_fts
+    // переписывают индекс даже при повторном сохранении. Upsert обновляет
+    // существующую заметку через UPDATE
+    @Upsert
     void insert(Notes notes);
 
+    /**
+     * @return rowid вставленных заметок, -1 для обновленных
+     */
+    @Upsert
+    List<Long> insertAll(List<Notes> notes);
+
+    @Upsert
+    void upsertAll(List<Notes> notes);
+
     @Query("SELECT * FROM notes ORDER BY pinned DESC, date DESC")
     List<Notes> getAll();
 
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes ORDER BY pinned DESC, date DESC")
+    PagingSource<Integer, NoteSummary> pagingSource();
+
+    /**
+     * Поиск по индексу notes_fts. Закрепленные заметки идут первыми, затем
+     * совпадения в заголовке, затем по дате.
+     *
+     * @param match выражение FTS MATCH, например {@code "спис* покуп*"}
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS_QUALIFIED + " FROM notes "
+            + "JOIN notes_fts ON notes.ID = notes_fts.rowid "
+            + "WHERE notes_fts MATCH :match "
+            + "ORDER BY notes.pinned DESC, "
+            + "notes.ID IN (SELECT rowid FROM notes_fts WHERE title MATCH :match) DESC, "
+            + "notes.date DESC")
+    PagingSource<Integer, NoteSummary> search(String match);
+
     @Query("SELECT * FROM notes WHERE ID = :id")
     Notes getById(int id);
 
-    @Query("UPDATE notes SET pinned = :pin WHERE ID = :id")
-    void pin(int id, boolean pin);
+    @Query("SELECT * FROM notes WHERE ID IN (:ids)")
+    List<Notes> getByIds(List<Integer> ids);
+
+    @Query("SELECT COUNT(*) FROM notes")
+    int count();
 
-    @Query("UPDATE notes SET title = :title, notes = :notes WHERE ID = :id")
-    void update(int id, String title, String notes);
+    @Query("SELECT * FROM notes WHERE userId = :userId")
+    List<Notes> getAllForUser(String userId);
+
+    @Query("UPDATE notes SET pinned = :pin, lastModified = :lastModified, version = version + 1 WHERE ID = :id")
+    void pin(int id, boolean pin, long lastModified);
+
+    @Query("UPDATE notes SET title = :title, notes = :notes, lastModified = :lastModified, version = :version WHERE ID = :id")
+    void update(int id, String title, String notes, long lastModified, int version);
 
     @Delete
     void delete(Notes notes);
 
+    @Query("DELETE FROM notes WHERE ID = :id")
+    void deleteById(int id);
+
+    @Query("DELETE FROM notes WHERE ID IN (:ids)")
+    void deleteByIdsChunk(List<Integer> ids);
+
+    @Query("DELETE FROM notes WHERE userId = :userId")
+    void deleteAllForUser(String userId);
+
     @Query("DELETE FROM notes")
     void deleteAll();
+
+    default void deleteByIds(List<Integer> ids) {
+        for (int from = 0; from < ids.size(); from += MAX_BATCH_ARGS) {
+            deleteByIdsChunk(ids.subList(from, Math.min(from + MAX_BATCH_ARGS, ids.size())));
+        }
+    }
+
+    @Transaction
+    default void replaceAllForUser(String userId, List<Notes> notes) {
+        deleteAllForUser(userId);
+        insertAll(notes);
+    }
+
+    @Transaction
+    default void applyChanges(List<Notes> upserts, List<Integer> deletedIds) {
+        if (!deletedIds.isEmpty()) {
+            deleteByIds(deletedIds);
+        }
+        if (!upserts.isEmpty()) {
+            upsertAll(upserts);
+        }
+    }
 }
@@ -0,0 +1,25 @@
+package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Upsert;
+
+import java.util.List;
+
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSyncBase;
+
+@Dao
+public interface NoteSyncBaseDao {
+
+    @Query("SELECT * FROM note_sync_base WHERE noteId IN (:ids)")
+    List<NoteSyncBase> getByIds(List<Integer> ids);
+
+    @Upsert
+    void upsertAll(List<NoteSyncBase> bases);
+
+    @Query("DELETE FROM note_sync_base WHERE noteId IN (:ids)")
+    void deleteByIds(List<Integer> ids);
+
+    @Query("DELETE FROM note_sync_base")
+    void deleteAll();
+}
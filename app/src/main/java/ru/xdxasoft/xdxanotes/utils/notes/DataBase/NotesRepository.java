@@ -0,0 +1,117 @@
+package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
+
+import android.content.Context;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LiveData;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+
+import java.util.Locale;
+
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSummary;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+/**
+ * Доступ к заметкам вне главного потока. Списки отдаются через LiveData,
+ * одиночные операции выполняются в {@link DatabaseExecutor}, результат
+ * возвращается в главный поток.
+ */
+public class NotesRepository {
+
+    // В памяти держится не больше MAX_SIZE заметок вокруг видимой области
+    private static final int PAGE_SIZE = 30;
+    private static final int PREFETCH_DISTANCE = 30;
+    private static final int MAX_SIZE = 150;
+
+    private static NotesRepository instance;
+
+    private final MainDAO dao;
+
+    private NotesRepository(Context context) {
+        dao = RoomDB.getInstance(context).mainDao();
+    }
+
+    public static synchronized NotesRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new NotesRepository(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Постраничный список кратких версий заметок, при непустом query отфильтрованный
+     * полнотекстовым поиском по заголовку и тексту. Кэш страниц живет, пока
+     * активен lifecycle.
+     */
+    public LiveData<PagingData<NoteSummary>> getPaged(String query, Lifecycle lifecycle) {
+        PagingConfig config = new PagingConfig(PAGE_SIZE, PREFETCH_DISTANCE, false, PAGE_SIZE * 2, MAX_SIZE);
+        Pager<Integer, NoteSummary> pager;
+        String match = toMatchQuery(query);
+        if (match == null) {
+            pager = new Pager<>(config, dao::pagingSource);
+        } else {
+            pager = new Pager<>(config, () -> dao.search(match));
+        }
+        return PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager), lifecycle);
+    }
+
+    /**
+     * Превращает ввод пользователя в выражение MATCH: каждое слово ищется по
+     * префиксу, все слова должны встретиться. Символы синтаксиса FTS
+     * отбрасываются, чтобы ввод вроде кавычек или "-" не ломал запрос.
+     *
+     * @return null, если искать нечего
+     */
+    static String toMatchQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String token : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(token).append('*');
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    public void getById(int id, DatabaseExecutor.ResultCallback<Notes> callback) {
+        DatabaseExecutor.submit(() -> dao.getById(id), callback);
+    }
+
+    public void insert(Notes note) {
+        note.setVersion(Math.max(1, note.getVersion()));
+        DatabaseExecutor.execute(() -> dao.insert(note));
+    }
+
+    /**
+     * Сохраняет правку и увеличивает версию заметки. Версия меняется и в
+     * переданном объекте, чтобы он уходил в Firebase уже с новой версией.
+     */
+    public void update(Notes note) {
+        note.setVersion(note.getVersion() + 1);
+        int version = note.getVersion();
+        DatabaseExecutor.execute(() -> dao.update(note.getID(), note.getTitle(), note.getNotes(), note.getLastModified(), version));
+    }
+
+    /**
+     * Закрепляет или открепляет заметку и возвращает ее актуальную версию.
+     */
+    public void pin(int id, boolean pin, DatabaseExecutor.ResultCallback<Notes> callback) {
+        DatabaseExecutor.submit(() -> {
+            dao.pin(id, pin, System.currentTimeMillis());
+            return dao.getById(id);
+        }, callback);
+    }
+
+    public void delete(int id) {
+        DatabaseExecutor.execute(() -> dao.deleteById(id));
+    }
+}
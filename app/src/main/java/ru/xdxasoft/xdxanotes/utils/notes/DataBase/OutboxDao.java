@@ -0,0 +1,48 @@
+package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+import ru.xdxasoft.xdxanotes.utils.notes.Models.OutboxEntry;
+
+@Dao
+public interface OutboxDao {
+
+    // REPLACE по уникальному path схлопывает повторные правки одного объекта
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    long enqueue(OutboxEntry entry);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void enqueueAll(List<OutboxEntry> entries);
+
+    // Отложенные записи остаются в начале очереди, выборка продолжается после них
+    @Query("SELECT * FROM sync_outbox WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<OutboxEntry> peekAfter(long afterId, int limit);
+
+    // Удаляется только отправленная версия: если путь успели изменить, у новой записи другой id
+    @Query("DELETE FROM sync_outbox WHERE id = :id")
+    void deleteSent(long id);
+
+    @Query("DELETE FROM sync_outbox WHERE id IN (:ids)")
+    void deleteSentBatch(List<Long> ids);
+
+    @Query("UPDATE sync_outbox SET attempts = attempts + 1 WHERE id = :id")
+    void markFailed(long id);
+
+    @Query("SELECT COUNT(*) FROM sync_outbox")
+    int count();
+
+    @Query("SELECT COUNT(*) FROM sync_outbox WHERE path = :path")
+    int countForPath(String path);
+
+    // Сравнение префикса без LIKE: "_" и "%" в ключах не должны работать как шаблон
+    @Query("SELECT path FROM sync_outbox WHERE substr(path, 1, length(:prefix)) = :prefix")
+    List<String> pathsWithPrefix(String prefix);
+
+    @Query("DELETE FROM sync_outbox")
+    void deleteAll();
+}
@@ -0,0 +1,53 @@
+package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import androidx.room.Upsert;
+
+import java.util.List;
+
+import ru.xdxasoft.xdxanotes.models.Password;
+
+@Dao
+public interface PasswordDao {
+
+    // Выборки по пользователю идут по индексу (userId, title) без отдельной сортировки
+    @Query("SELECT * FROM passwords WHERE userId = :userId ORDER BY title ASC")
+    LiveData<List<Password>> observeForUser(String userId);
+
+    @Query("SELECT * FROM passwords WHERE userId = :userId ORDER BY title ASC")
+    List<Password> getForUser(String userId);
+
+    @Upsert
+    void upsert(Password password);
+
+    @Upsert
+    void upsertAll(List<Password> passwords);
+
+    @Query("DELETE FROM passwords WHERE id = :id AND userId = :userId")
+    void deleteById(String id, String userId);
+
+    @Query("DELETE FROM passwords WHERE userId = :userId AND id IN (:ids)")
+    void deleteByIdsChunk(String userId, List<String> ids);
+
+    @Query("DELETE FROM passwords WHERE userId = :userId")
+    void deleteAllForUser(String userId);
+
+    default void deleteByIds(String userId, List<String> ids) {
+        for (int from = 0; from < ids.size(); from += MainDAO.MAX_BATCH_ARGS) {
+            deleteByIdsChunk(userId, ids.subList(from, Math.min(from + MainDAO.MAX_BATCH_ARGS, ids.size())));
+        }
+    }
+
+    @Transaction
+    default void applyChanges(String userId, List<Password> upserts, List<String> deletedIds) {
+        if (!deletedIds.isEmpty()) {
+            deleteByIds(userId, deletedIds);
+        }
+        if (!upserts.isEmpty()) {
+            upsertAll(upserts);
+        }
+    }
+}
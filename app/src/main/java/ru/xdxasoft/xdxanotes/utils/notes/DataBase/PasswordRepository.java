@@ -0,0 +1,52 @@
+package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
+
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+
+import java.util.List;
+
+import ru.xdxasoft.xdxanotes.models.Password;
+import ru.xdxasoft.xdxanotes.utils.vault.PasswordVault;
+
+/**
+ * Доступ к паролям вне главного потока, по аналогии с
+ * {@link CalendarRepository}.
+ */
+public class PasswordRepository {
+
+    private static PasswordRepository instance;
+
+    private final PasswordDao dao;
+    private final PasswordVault vault;
+
+    private PasswordRepository(Context context) {
+        dao = RoomDB.getInstance(context).passwordDao();
+        vault = PasswordVault.getInstance(context);
+    }
+
+    public static synchronized PasswordRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new PasswordRepository(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Пароли пользователя по названию. Список обновляется сам после любой
+     * записи в таблицу, в том числе после синхронизации. Поле password в
+     * записях зашифровано, открыть его можно через {@link PasswordVault#reveal}.
+     */
+    public LiveData<List<Password>> observeForUser(String userId) {
+        return dao.observeForUser(userId);
+    }
+
+    // password передается открытым, в БД уходит зашифрованная копия
+    public void save(Password password) {
+        DatabaseExecutor.execute(() -> dao.upsert(vault.encrypted(password)));
+    }
+
+    public void delete(String id, String userId) {
+        DatabaseExecutor.execute(() -> dao.deleteById(id, userId));
+    }
+}
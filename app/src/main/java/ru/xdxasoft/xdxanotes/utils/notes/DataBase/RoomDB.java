@@ -1,31 +1,261 @@
 package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
 
+import ru.xdxasoft.xdxanotes.models.Password;
 import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSyncBase;
 import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NotesFts;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.OutboxEntry;
 
-@Database(entities = {Notes.class, CalendarEvent.class}, version = 7, exportSchema = false)
+@Database(entities = {Notes.class, NotesFts.class, CalendarEvent.class, OutboxEntry.class,
+        NoteSyncBase.class, Password.class}, version = 13, exportSchema = true)
 public abstract class RoomDB extends RoomDatabase {
 
     private static RoomDB database;
     private static String DATABASE_NAME = "NoteApp";
 
+    // Метка времени изменения заметки, по ней работает инкрементальная синхронизация
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE notes ADD COLUMN lastModified INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    // Полнотекстовый индекс notes_fts. SQL таблицы и триггеров совпадает с тем,
+    // что генерирует Room для @Fts4(contentEntity = Notes.class)
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notes_fts` USING FTS4("
+                    + "`title` TEXT, `notes` TEXT, tokenize=unicode61, content=`notes`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `notes` BEGIN DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `notes` BEGIN DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `notes` BEGIN INSERT INTO `notes_fts`(`docid`, `title`, `notes`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`notes`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `notes` BEGIN INSERT INTO `notes_fts`(`docid`, `title`, `notes`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`notes`); END");
+            // Индексируем уже существующие заметки
+            db.execSQL("INSERT INTO notes_fts(notes_fts) VALUES('rebuild')");
+        }
+    };
+
+    // Индекс для выборок календаря по диапазону дат
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_calendar_events_date` ON `calendar_events` (`date`)");
+        }
+    };
+
+    // Очередь отложенных записей в Firebase
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `sync_outbox` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`path` TEXT NOT NULL, `payload` TEXT, `createdAt` INTEGER NOT NULL, `attempts` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_sync_outbox_path` ON `sync_outbox` (`path`)");
+        }
+    };
+
+    // Версия заметки и база для трехстороннего слияния
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE notes ADD COLUMN version INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `note_sync_base` (`noteId` INTEGER NOT NULL, "
+                    + "`title` TEXT, `notes` TEXT, `pinned` INTEGER NOT NULL, `version` INTEGER NOT NULL, "
+                    + "`lastModified` INTEGER NOT NULL, PRIMARY KEY(`noteId`))");
+        }
+    };
+
+    // Пароли переезжают из отдельного passwords.db, сами записи переносит LegacyPasswordImport
+    static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `passwords` (`id` TEXT NOT NULL, `title` TEXT, "
+                    + "`username` TEXT, `password` TEXT, `userId` TEXT, PRIMARY KEY(`id`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_passwords_userId_title` ON `passwords` (`userId`, `title`)");
+        }
+    };
+
+    // Все миграции по порядку, их же прогоняют тесты миграций
+    static final Migration[] MIGRATIONS = {
+            MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12,
+            MIGRATION_12_13
+    };
+
     public synchronized static RoomDB getInstance(Context context) {
         if (database == null) {
-            database = Room.databaseBuilder(context.getApplicationContext(),
-                    RoomDB.class, DATABASE_NAME)
-                    .allowMainThreadQueries()
-                    .fallbackToDestructiveMigration()
+            database = builder(context, DATABASE_NAME, Options.DEFAULT)
+                    .addCallback(new LegacyPasswordImport(context))
+                    // Схем до версии 7 не сохранилось, только такие установки пересоздают БД.
+                    // Для остальных нужна явная миграция, иначе Room упадет при открытии
+                    .fallbackToDestructiveMigrationFrom(1, 2, 3, 4, 5, 6)
                     .build();
         }
         return database;
     }
 
+    /**
+     * Сборщик БД с миграциями и заданными настройками SQLite. Основная БД
+     * приложения открывается через {@link #getInstance}, напрямую сборщик
+     * нужен тестам и бенчмаркам с отдельными файлами.
+     */
+    public static RoomDatabase.Builder<RoomDB> builder(Context context, String name, Options options) {
+        return Room.databaseBuilder(context.getApplicationContext(), RoomDB.class, name)
+                .setQueryExecutor(DatabaseExecutor.io())
+                .setJournalMode(options.journalMode)
+                .addMigrations(MIGRATIONS)
+                .addCallback(options.callback());
+    }
+
     public abstract MainDAO mainDao();
 
     public abstract CalendarDao calendarDao();
+
+    public abstract OutboxDao outboxDao();
+
+    public abstract NoteSyncBaseDao noteSyncBaseDao();
+
+    public abstract PasswordDao passwordDao();
+
+    /**
+     * Настройки соединений SQLite. В режиме WAL читатели (списки, сервис
+     * напоминаний) не ждут, пока синхронизация держит транзакцию записи, а
+     * synchronous=NORMAL в WAL не синхронизирует диск на каждой фиксации, только
+     * на контрольных точках. Размер кеша страниц, mmap и кеша подготовленных
+     * выражений применяются к каждому соединению пула.
+     */
+    public static final class Options {
+
+        public enum Synchronous {
+            OFF, NORMAL, FULL
+        }
+
+        public static final Options DEFAULT = new Builder().build();
+
+        final RoomDatabase.JournalMode journalMode;
+        final Synchronous synchronous;
+        final int cacheSizeKb;
+        final long mmapSizeBytes;
+        final int statementCacheSize;
+
+        private Options(Builder builder) {
+            journalMode = builder.journalMode;
+            synchronous = builder.synchronous;
+            cacheSizeKb = builder.cacheSizeKb;
+            mmapSizeBytes = builder.mmapSizeBytes;
+            statementCacheSize = builder.statementCacheSize;
+        }
+
+        RoomDatabase.Callback callback() {
+            return new RoomDatabase.Callback() {
+                @Override
+                public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                    apply(db);
+                }
+            };
+        }
+
+        // synchronous, cache_size и mmap_size действуют на одно соединение, а в WAL
+        // у пула кроме соединения записи есть соединения чтения. execPerConnectionSQL
+        // выполняет PRAGMA на всех открытых соединениях и на тех, что пул откроет позже.
+        // Кеш подготовленных выражений пул и так настраивает на каждом соединении
+        private void apply(SupportSQLiteDatabase db) {
+            List<String> pragmas = new ArrayList<>();
+            if (journalMode == RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING) {
+                pragmas.add("PRAGMA synchronous = " + synchronous.name());
+            }
+            // Отрицательное значение cache_size задает размер в КиБ, а не в страницах
+            pragmas.add("PRAGMA cache_size = -" + cacheSizeKb);
+            pragmas.add("PRAGMA mmap_size = " + mmapSizeBytes);
+
+            if (db.isExecPerConnectionSQLSupported()) {
+                for (String sql : pragmas) {
+                    db.execPerConnectionSQL(sql, null);
+                }
+            } else {
+                // До API 30 так нельзя. Настраиваем хотя бы соединение записи: в
+                // транзакции запрос идет через него, а вне транзакции пул отдал бы
+                // случайное соединение чтения
+                db.beginTransaction();
+                try {
+                    for (String sql : pragmas) {
+                        pragma(db, sql);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            db.setMaxSqlCacheSize(statementCacheSize);
+        }
+
+        // PRAGMA, возвращающие строку, нельзя выполнить через execSQL
+        private static void pragma(SupportSQLiteDatabase db, String sql) {
+            try (Cursor cursor = db.query(sql)) {
+                cursor.moveToFirst();
+            }
+        }
+
+        public static final class Builder {
+
+            private RoomDatabase.JournalMode journalMode = RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING;
+            private Synchronous synchronous = Synchronous.NORMAL;
+            private int cacheSizeKb = 8 * 1024;
+            private long mmapSizeBytes = 64L * 1024 * 1024;
+            private int statementCacheSize = 50;
+
+            public Builder setJournalMode(RoomDatabase.JournalMode journalMode) {
+                this.journalMode = journalMode;
+                return this;
+            }
+
+            // Применяется только в режиме WAL, в остальных режимах остается FULL
+            public Builder setSynchronous(Synchronous synchronous) {
+                this.synchronous = synchronous;
+                return this;
+            }
+
+            public Builder setCacheSizeKb(int cacheSizeKb) {
+                this.cacheSizeKb = cacheSizeKb;
+                return this;
+            }
+
+            // 0 отключает mmap
+            public Builder setMmapSizeBytes(long mmapSizeBytes) {
+                this.mmapSizeBytes = mmapSizeBytes;
+                return this;
+            }
+
+            // Кеш подготовленных выражений на соединение, не больше SQLiteDatabase.MAX_SQL_CACHE_SIZE
+            public Builder setStatementCacheSize(int statementCacheSize) {
+                this.statementCacheSize = Math.min(statementCacheSize, SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+                return this;
+            }
+
+            public Options build() {
+                return new Options(this);
+            }
+        }
+    }
 }
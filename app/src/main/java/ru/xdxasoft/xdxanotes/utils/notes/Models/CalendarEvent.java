@@ -3,6 +3,7 @@ package ru.xdxasoft.xdxanotes.utils.notes.Models;
 import androidx.annotation.Keep;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import java.io.Serializable;
@@ -10,7 +11,7 @@ import java.io.Serializable;
 import ru.xdxasoft.xdxanotes.utils.IdGenerator;
 
 @Keep
-@Entity(tableName = "calendar_events")
+@Entity(tableName = "calendar_events", indices = {@Index(value = "date")})
 public class CalendarEvent implements Serializable {
 
     @PrimaryKey(autoGenerate = true)
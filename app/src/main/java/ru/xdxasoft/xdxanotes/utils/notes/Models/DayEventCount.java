@@ -0,0 +1,43 @@
+package ru.xdxasoft.xdxanotes.utils.notes.Models;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Число событий за один день, для индикаторов в сетке календаря.
+ */
+public class DayEventCount {
+
+    @ColumnInfo(name = "date")
+    String date;
+
+    @ColumnInfo(name = "count")
+    int count;
+
+    // Есть ли среди событий дня событие "весь день"
+    @ColumnInfo(name = "hasAllDay")
+    boolean hasAllDay;
+
+    public String getDate() {
+        return date != null ? date : "";
+    }
+
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public boolean isHasAllDay() {
+        return hasAllDay;
+    }
+
+    public void setHasAllDay(boolean hasAllDay) {
+        this.hasAllDay = hasAllDay;
+    }
+}
@@ -0,0 +1,79 @@
+package ru.xdxasoft.xdxanotes.utils.notes.Models;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Облегченная проекция заметки для списка: вместо полного текста хранит
+ * только первые {@link #PREVIEW_LENGTH} символов. Полная заметка
+ * загружается по ID при открытии.
+ */
+public class NoteSummary {
+
+    public static final int PREVIEW_LENGTH = 300;
+
+    @ColumnInfo(name = "ID")
+    int ID;
+
+    @ColumnInfo(name = "title")
+    String title;
+
+    @ColumnInfo(name = "date")
+    String date;
+
+    @ColumnInfo(name = "pinned")
+    boolean pinned;
+
+    @ColumnInfo(name = "lastModified")
+    long lastModified;
+
+    @ColumnInfo(name = "preview")
+    String preview;
+
+    public int getID() {
+        return ID;
+    }
+
+    public void setID(int ID) {
+        this.ID = ID;
+    }
+
+    public String getTitle() {
+        return title != null ? title : "";
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDate() {
+        return date != null ? date : "";
+    }
+
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    public boolean isPinned() {
+        return pinned;
+    }
+
+    public void setPinned(boolean pinned) {
+        this.pinned = pinned;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getPreview() {
+        return preview != null ? preview : "";
+    }
+
+    public void setPreview(String preview) {
+        this.preview = preview;
+    }
+}
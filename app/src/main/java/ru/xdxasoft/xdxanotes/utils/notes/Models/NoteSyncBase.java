@@ -0,0 +1,105 @@
+package ru.xdxasoft.xdxanotes.utils.notes.Models;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Последняя версия заметки, согласованная с Firebase. Служит общим предком
+ * при трехстороннем слиянии: поле, совпадающее с базой, на этой стороне не
+ * менялось.
+ */
+@Entity(tableName = "note_sync_base")
+public class NoteSyncBase {
+
+    @PrimaryKey
+    @ColumnInfo(name = "noteId")
+    int noteId;
+
+    @ColumnInfo(name = "title")
+    String title = "";
+
+    @ColumnInfo(name = "notes")
+    String notes = "";
+
+    @ColumnInfo(name = "pinned")
+    boolean pinned;
+
+    @ColumnInfo(name = "version")
+    int version;
+
+    @ColumnInfo(name = "lastModified")
+    long lastModified;
+
+    public NoteSyncBase() {
+    }
+
+    public static NoteSyncBase from(Notes note) {
+        NoteSyncBase base = new NoteSyncBase();
+        base.noteId = note.getID();
+        base.title = note.getTitle();
+        base.notes = note.getNotes();
+        base.pinned = note.isPinned();
+        base.version = note.getVersion();
+        base.lastModified = note.getLastModified();
+        return base;
+    }
+
+    public int getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(int noteId) {
+        this.noteId = noteId;
+    }
+
+    public String getTitle() {
+        return title != null ? title : "";
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getNotes() {
+        return notes != null ? notes : "";
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+    public boolean isPinned() {
+        return pinned;
+    }
+
+    public void setPinned(boolean pinned) {
+        this.pinned = pinned;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Совпадает ли содержимое заметки с базой, то есть нет ли в ней
+     * локальных правок.
+     */
+    public boolean sameContent(Notes note) {
+        return getTitle().equals(note.getTitle())
+                && getNotes().equals(note.getNotes())
+                && pinned == note.isPinned();
+    }
+}
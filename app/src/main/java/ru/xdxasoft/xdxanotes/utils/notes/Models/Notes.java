@@ -31,6 +31,13 @@ public class Notes implements Serializable {
     @ColumnInfo(name = "userId")
     String userId = "";
 
+    @ColumnInfo(name = "lastModified", defaultValue = "0")
+    long lastModified = 0;
+
+    // Номер ревизии, растет с каждой правкой; по нему отличаются версии при слиянии
+    @ColumnInfo(name = "version", defaultValue = "0")
+    int version = 0;
+
     public Notes() {
     }
 
@@ -81,4 +88,20 @@ public class Notes implements Serializable {
     public void setUserId(String userId) {
         this.userId = userId;
     }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,37 @@
+package ru.xdxasoft.xdxanotes.utils.notes.Models;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * Полнотекстовый индекс по заголовку и тексту заметок. Данные хранятся только
+ * в таблице notes, индекс обновляется триггерами, которые создает Room.
+ */
+@Fts4(contentEntity = Notes.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "notes_fts")
+public class NotesFts {
+
+    @ColumnInfo(name = "title")
+    String title;
+
+    @ColumnInfo(name = "notes")
+    String notes;
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.xdxasoft.xdxanotes.utils.notes.Models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Отложенная запись в Firebase. На один путь хранится не больше одной записи:
+ * новая правка того же объекта заменяет предыдущую.
+ */
+@Entity(tableName = "sync_outbox", indices = {@Index(value = "path", unique = true)})
+public class OutboxEntry {
+
+    @PrimaryKey(autoGenerate = true)
+    long id = 0;
+
+    // Путь от корня базы, например Users/{uid}/notes/{ID}
+    @NonNull
+    @ColumnInfo(name = "path")
+    String path = "";
+
+    // JSON значения для setValue, null означает removeValue
+    @ColumnInfo(name = "payload")
+    String payload;
+
+    @ColumnInfo(name = "createdAt")
+    long createdAt;
+
+    @ColumnInfo(name = "attempts")
+    int attempts;
+
+    public OutboxEntry() {
+    }
+
+    public OutboxEntry(@NonNull String path, String payload) {
+        this.path = path;
+        this.payload = payload;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(@NonNull String path) {
+        this.path = path;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public boolean isRemove() {
+        return payload == null;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+}
@@ -2,13 +2,13 @@ package ru.xdxasoft.xdxanotes.utils.notes;
 
 import androidx.cardview.widget.CardView;
 
-import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSummary;
 
 public interface NotesClickListener {
 
-    void onClick(Notes notes);
+    void onClick(NoteSummary notes);
 
-    void onLongCLick(Notes notes, CardView cardView);
+    void onLongCLick(NoteSummary notes, CardView cardView);
 
-    void onLongClick(Notes notes, CardView cardView);
+    void onLongClick(NoteSummary notes, CardView cardView);
 }
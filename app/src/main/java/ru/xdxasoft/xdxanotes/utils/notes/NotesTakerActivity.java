@@ -18,10 +18,13 @@ import java.util.Date;
 import java.util.Locale;
 import java.util.Random;
 
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
 import ru.xdxasoft.xdxanotes.R;
 import ru.xdxasoft.xdxanotes.utils.LocaleHelper;
 import ru.xdxasoft.xdxanotes.utils.ToastManager;
-import ru.xdxasoft.xdxanotes.utils.firebase.FirebaseManager;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.NotesRepository;
 import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
 
 public class NotesTakerActivity extends AppCompatActivity {
@@ -51,18 +54,26 @@ public class NotesTakerActivity extends AppCompatActivity {
 
             TextView toolbarTitle = findViewById(R.id.toolbar_title);
 
-            notes = new Notes();
-            try {
-                notes = (Notes) getIntent().getSerializableExtra("old_note");
-                if (notes != null) {
-                    editText_title.setText(notes.getTitle());
-                    editText_notes.setText(notes.getNotes());
-                    isOldNote = true;
-
-                    toolbarTitle.setText(R.string.edit_note);
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error getting old note", e);
+            int noteId = getIntent().getIntExtra("note_id", 0);
+            if (noteId > 0) {
+                // Список хранит только краткую версию, полную заметку читаем из БД
+                isOldNote = true;
+                toolbarTitle.setText(R.string.edit_note);
+                imageView_save.setEnabled(false);
+                NotesRepository.getInstance(this).getById(noteId, loadedNote -> {
+                    if (isFinishing() || isDestroyed()) {
+                        return;
+                    }
+                    if (loadedNote != null) {
+                        notes = loadedNote;
+                        editText_title.setText(notes.getTitle());
+                        editText_notes.setText(notes.getNotes());
+                    } else {
+                        Log.e(TAG, "Note not found: " + noteId);
+                        isOldNote = false;
+                    }
+                    imageView_save.setEnabled(true);
+                });
             }
 
             imageView_save.setOnClickListener(new View.OnClickListener() {
@@ -89,14 +100,15 @@ public class NotesTakerActivity extends AppCompatActivity {
                             notes = new Notes();
                             notes.setID(new Random().nextInt(1000000) + 1);
                             notes.setDate(formatter.format(date));
-                            FirebaseManager firebaseManager = FirebaseManager.getInstance(NotesTakerActivity.this);
-                            if (firebaseManager.isUserLoggedIn()) {
-                                notes.setUserId(firebaseManager.getUserId());
+                            FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+                            if (currentUser != null) {
+                                notes.setUserId(currentUser.getUid());
                             }
                         }
 
                         notes.setTitle(title);
                         notes.setNotes(description);
+                        notes.setLastModified(date.getTime());
 
                         Log.d(TAG, "Saving note: ID=" + notes.getID() + ", Title=" + notes.getTitle());
 
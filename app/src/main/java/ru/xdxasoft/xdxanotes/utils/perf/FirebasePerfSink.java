@@ -0,0 +1,46 @@
+package ru.xdxasoft.xdxanotes.utils.perf;
+
+import com.google.firebase.perf.FirebasePerformance;
+import com.google.firebase.perf.metrics.Trace;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отправляет замеры в Firebase Performance как пользовательские трассы.
+ * Трасса Firebase идет в реальном времени, поэтому она открывается вместе с
+ * замером, а счетчики и атрибуты переносятся в нее при закрытии.
+ */
+public class FirebasePerfSink implements PerfTracer.Sink {
+
+    private final Map<PerfTracer.Span, Trace> traces = new ConcurrentHashMap<>();
+
+    @Override
+    public void onStart(PerfTracer.Span span) {
+        Trace trace = FirebasePerformance.getInstance().newTrace(span.getName());
+        trace.start();
+        traces.put(span, trace);
+    }
+
+    @Override
+    public void onStop(PerfTracer.Span span) {
+        Trace trace = traces.remove(span);
+        if (trace == null) {
+            // Приемник подключен, когда замер уже шел
+            return;
+        }
+        for (Map.Entry<String, Long> metric : span.getMetrics().entrySet()) {
+            trace.putMetric(metric.getKey(), metric.getValue());
+        }
+        for (Map.Entry<String, String> attribute : span.getAttributes().entrySet()) {
+            trace.putAttribute(attribute.getKey(), attribute.getValue());
+        }
+        trace.stop();
+    }
+
+    // Незакрытая трасса Firebase никуда не отправляется, достаточно ее забыть
+    @Override
+    public void onCancel(PerfTracer.Span span) {
+        traces.remove(span);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.xdxasoft.xdxanotes.utils.perf;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Гистограмма длительностей в памяти по имени замера. Хранит последние
+ * {@code capacity} значений каждого замера, этого хватает для перцентилей за
+ * сессию и не растет со временем работы приложения.
+ */
+public class HistogramSink implements PerfTracer.Sink {
+
+    private static final int DEFAULT_CAPACITY = 512;
+
+    private final int capacity;
+    private final Map<String, Samples> samples = new HashMap<>();
+
+    public HistogramSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public HistogramSink(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void onStop(PerfTracer.Span span) {
+        Samples values = samples.get(span.getName());
+        if (values == null) {
+            values = new Samples(capacity);
+            samples.put(span.getName(), values);
+        }
+        values.add(span.getDurationNanos() / 1000);
+    }
+
+    public synchronized Set<String> names() {
+        return new TreeSet<>(samples.keySet());
+    }
+
+    /**
+     * @return статистика замера или null, если он еще не встречался
+     */
+    public synchronized Stats stats(String name) {
+        Samples values = samples.get(name);
+        return values != null ? values.stats() : null;
+    }
+
+    public synchronized void reset() {
+        samples.clear();
+    }
+
+    /**
+     * Перцентили в микросекундах по сохраненным значениям, count - все
+     * замеры с момента сброса.
+     */
+    public static final class Stats {
+
+        public final long count;
+        public final long p50Micros;
+        public final long p95Micros;
+        public final long maxMicros;
+
+        Stats(long count, long p50Micros, long p95Micros, long maxMicros) {
+            this.count = count;
+            this.p50Micros = p50Micros;
+            this.p95Micros = p95Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", p50=" + p50Micros + "us, p95=" + p95Micros + "us, max=" + maxMicros + "us";
+        }
+    }
+
+    // Кольцевой буфер: новые значения вытесняют самые старые
+    private static final class Samples {
+
+        private final long[] values;
+        private int next;
+        private int size;
+        private long count;
+
+        Samples(int capacity) {
+            values = new long[capacity];
+        }
+
+        void add(long value) {
+            values[next] = value;
+            next = (next + 1) % values.length;
+            size = Math.min(size + 1, values.length);
+            count++;
+        }
+
+        Stats stats() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return new Stats(count, percentile(sorted, 50), percentile(sorted, 95), sorted[size - 1]);
+        }
+
+        private static long percentile(long[] sorted, int percent) {
+            int index = (int) Math.ceil(sorted.length * percent / 100.0) - 1;
+            return sorted[Math.max(0, index)];
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.xdxasoft.xdxanotes.utils.perf;
+
+import android.util.Log;
+
+/**
+ * Пишет каждый закрытый замер в logcat с тегом PerfTracer.
+ */
+public class LogcatSink implements PerfTracer.Sink {
+
+    private static final String TAG = "PerfTracer";
+
+    @Override
+    public void onStop(PerfTracer.Span span) {
+        Log.d(TAG, span.toString());
+    }
+}
@@ -0,0 +1,38 @@
+package ru.xdxasoft.xdxanotes.utils.perf;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+
+/**
+ * Подключение приемников замеров для работающего приложения. Вызывается из
+ * точек входа процесса: заставки, FirebaseManager (фоновые воркеры) и
+ * планировщика напоминаний (будильник, перезагрузка). Повторные вызовы
+ * ничего не делают.
+ */
+public final class PerfSinks {
+
+    private static final HistogramSink histogram = new HistogramSink();
+    private static boolean installed;
+
+    private PerfSinks() {
+    }
+
+    public static synchronized void installDefaults(Context context) {
+        if (installed) {
+            return;
+        }
+        installed = true;
+        PerfTracer.addSink(new FirebasePerfSink());
+        PerfTracer.addSink(histogram);
+        if ((context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            PerfTracer.addSink(new LogcatSink());
+        }
+    }
+
+    /**
+     * Гистограмма замеров текущего процесса.
+     */
+    public static HistogramSink histogram() {
+        return histogram;
+    }
+}
@@ -0,0 +1,160 @@
+package ru.xdxasoft.xdxanotes.utils.perf;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Трассировка горячих путей приложения. Замер открывается {@link #start(String)}
+ * и закрывается {@link Span#stop()} или отменяется {@link Span#cancel()}, по пути к нему добавляются счетчики (число
+ * строк, размер окна) и атрибуты. Готовые замеры получают подключенные приемники:
+ * Firebase Performance, logcat, гистограмма в памяти. Без приемников замер
+ * сводится к чтению часов, поэтому в тестах трассировка ничего не делает.
+ */
+public final class PerfTracer {
+
+    private static final List<Sink> sinks = new CopyOnWriteArrayList<>();
+
+    private PerfTracer() {
+    }
+
+    public static void addSink(Sink sink) {
+        if (!sinks.contains(sink)) {
+            sinks.add(sink);
+        }
+    }
+
+    public static void removeSink(Sink sink) {
+        sinks.remove(sink);
+    }
+
+    public static void clearSinks() {
+        sinks.clear();
+    }
+
+    public static Span start(String name) {
+        Span span = new Span(name, System.nanoTime());
+        for (Sink sink : sinks) {
+            sink.onStart(span);
+        }
+        return span;
+    }
+
+    /**
+     * Приемник замеров. Вызывается в том потоке, где замер открыт или закрыт.
+     */
+    public interface Sink {
+
+        default void onStart(Span span) {
+        }
+
+        void onStop(Span span);
+
+        // Замер брошен и не должен попасть в статистику
+        default void onCancel(Span span) {
+        }
+    }
+
+    /**
+     * Один замер. Счетчики и атрибуты можно добавлять из любого потока до
+     * вызова {@link #stop()}, повторный stop ничего не делает.
+     */
+    public static final class Span implements AutoCloseable {
+
+        private final String name;
+        private final long startNanos;
+        private final Map<String, Long> metrics = new LinkedHashMap<>();
+        private final Map<String, String> attributes = new LinkedHashMap<>();
+        private long durationNanos = -1;
+        private boolean canceled;
+
+        private Span(String name, long startNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public synchronized Span putMetric(String key, long value) {
+            metrics.put(key, value);
+            return this;
+        }
+
+        public synchronized Span incrementMetric(String key, long delta) {
+            Long current = metrics.get(key);
+            metrics.put(key, current == null ? delta : current + delta);
+            return this;
+        }
+
+        public synchronized Span putAttribute(String key, String value) {
+            attributes.put(key, value);
+            return this;
+        }
+
+        public synchronized Map<String, Long> getMetrics() {
+            return new LinkedHashMap<>(metrics);
+        }
+
+        public synchronized Map<String, String> getAttributes() {
+            return new LinkedHashMap<>(attributes);
+        }
+
+        public synchronized boolean isStopped() {
+            return durationNanos >= 0;
+        }
+
+        public synchronized boolean isCanceled() {
+            return canceled;
+        }
+
+        /**
+         * @return длительность закрытого замера или -1, если он еще идет
+         */
+        public synchronized long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public void stop() {
+            synchronized (this) {
+                if (durationNanos >= 0 || canceled) {
+                    return;
+                }
+                durationNanos = System.nanoTime() - startNanos;
+            }
+            for (Sink sink : sinks) {
+                sink.onStop(this);
+            }
+        }
+
+        /**
+         * Бросает незакрытый замер: приемники освобождают связанные с ним
+         * ресурсы, но не учитывают его. После отмены stop ничего не делает.
+         */
+        public void cancel() {
+            synchronized (this) {
+                if (durationNanos >= 0 || canceled) {
+                    return;
+                }
+                canceled = true;
+            }
+            for (Sink sink : sinks) {
+                sink.onCancel(this);
+            }
+        }
+
+        @Override
+        public void close() {
+            stop();
+        }
+
+        @Override
+        public synchronized String toString() {
+            long millis = durationNanos >= 0 ? durationNanos / 1_000_000 : -1;
+            return name + " " + millis + " ms" + (metrics.isEmpty() ? "" : " " + metrics)
+                    + (attributes.isEmpty() ? "" : " " + attributes);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.xdxasoft.xdxanotes.utils.vault;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Шифрование отдельных строковых полей AES-GCM. Результат хранится как
+ * "v1:" + Base64(iv || шифротекст || тег), у каждого значения свой случайный
+ * IV. Строки без префикса считаются незашифрованными и возвращаются как есть,
+ * так читаются записи, сохраненные до появления шифрования.
+ */
+public final class FieldCipher {
+
+    static final String PREFIX = "v1:";
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+
+    // Cipher.getInstance дорогой, экземпляр переиспользуется в пределах потока
+    private final ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
+
+    public FieldCipher(SecretKey key) {
+        this.key = key;
+    }
+
+    public static boolean isEncrypted(String value) {
+        return value != null && value.startsWith(PREFIX);
+    }
+
+    public String encrypt(String plain) throws GeneralSecurityException {
+        if (plain == null) {
+            return null;
+        }
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+
+        Cipher cipher = cipher();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        byte[] encrypted = cipher.doFinal(plain.getBytes(StandardCharsets.UTF_8));
+
+        byte[] out = ByteBuffer.allocate(IV_LENGTH + encrypted.length).put(iv).put(encrypted).array();
+        return PREFIX + Base64.getEncoder().encodeToString(out);
+    }
+
+    /**
+     * @throws GeneralSecurityException если значение повреждено или
+     *                                  зашифровано другим ключом
+     */
+    public String decrypt(String stored) throws GeneralSecurityException {
+        if (!isEncrypted(stored)) {
+            return stored;
+        }
+        byte[] data;
+        try {
+            data = Base64.getDecoder().decode(stored.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException("Malformed encrypted value", e);
+        }
+        if (data.length < IV_LENGTH + TAG_LENGTH_BITS / 8) {
+            throw new GeneralSecurityException("Encrypted value is too short");
+        }
+
+        Cipher cipher = cipher();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, data, 0, IV_LENGTH));
+        byte[] plain = cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+        return new String(plain, StandardCharsets.UTF_8);
+    }
+
+    private Cipher cipher() throws GeneralSecurityException {
+        Cipher cipher = ciphers.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(TRANSFORMATION);
+            ciphers.set(cipher);
+        }
+        return cipher;
+    }
+}
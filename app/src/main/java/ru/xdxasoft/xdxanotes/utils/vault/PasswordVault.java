@@ -0,0 +1,165 @@
+package ru.xdxasoft.xdxanotes.utils.vault;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.security.GeneralSecurityException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ru.xdxasoft.xdxanotes.models.Password;
+
+/**
+ * Шифрование поля password в локальной БД. В таблице passwords значение
+ * хранится зашифрованным {@link FieldCipher}, расшифровывается лениво: только
+ * когда пользователь показывает или копирует пароль. Показ возможен после
+ * разблокировки хранилища ({@link VaultUnlocker}), разблокировка действует
+ * SESSION_TTL_MS. Расшифрованные значения на это же время кешируются, чтобы
+ * повторный показ не расшифровывал заново.
+ *
+ * Синхронизация шифрует и расшифровывает записи без разблокировки: она идет
+ * в фоне, когда показать запрос некому.
+ */
+public class PasswordVault {
+
+    private static final String TAG = "PasswordVault";
+
+    static final long SESSION_TTL_MS = 5 * 60 * 1000;
+    private static final int CACHE_SIZE = 128;
+
+    private static PasswordVault instance;
+
+    private final VaultKeyStore keyStore;
+    private FieldCipher cipher;
+
+    private long unlockedUntil;
+
+    // Шифротекст -> открытое значение; у каждого шифротекста свой IV, поэтому ключ однозначен
+    private final Map<String, CachedValue> cache = new LinkedHashMap<String, CachedValue>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedValue> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private PasswordVault(Context context) {
+        keyStore = new VaultKeyStore(context);
+    }
+
+    public static synchronized PasswordVault getInstance(Context context) {
+        if (instance == null) {
+            instance = new PasswordVault(context);
+        }
+        return instance;
+    }
+
+    // Ключ разворачивается через Keystore один раз за процесс; после ошибки следующий вызов пробует снова
+    private synchronized FieldCipher cipher() throws GeneralSecurityException {
+        if (cipher == null) {
+            cipher = new FieldCipher(keyStore.loadDataKey());
+        }
+        return cipher;
+    }
+
+    public String encrypt(String plain) {
+        try {
+            return cipher().encrypt(plain);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error encrypting vault value", e);
+        }
+    }
+
+    /**
+     * Расшифровка для отправки на сервер, разблокировка не нужна.
+     */
+    public String decrypt(String stored) throws GeneralSecurityException {
+        return cipher().decrypt(stored);
+    }
+
+    /**
+     * Копия записи с зашифрованным паролем, для записи в БД.
+     */
+    public Password encrypted(Password password) {
+        return new Password(password.getId(), password.getTitle(), password.getUsername(),
+                encrypt(password.getPassword()), password.getUserId());
+    }
+
+    /**
+     * Копия записи с открытым паролем, для сравнения с сервером. Значение,
+     * которое не расшифровывается, становится пустым и будет перезаписано
+     * серверным.
+     */
+    public Password decrypted(Password password) {
+        String plain;
+        try {
+            plain = cipher().decrypt(password.getPassword());
+        } catch (GeneralSecurityException e) {
+            Log.w(TAG, "Stored password " + password.getId() + " cannot be decrypted");
+            plain = "";
+        }
+        return new Password(password.getId(), password.getTitle(), password.getUsername(),
+                plain, password.getUserId());
+    }
+
+    public synchronized boolean isUnlocked() {
+        return SystemClock.elapsedRealtime() < unlockedUntil;
+    }
+
+    public synchronized void unlock() {
+        unlockedUntil = SystemClock.elapsedRealtime() + SESSION_TTL_MS;
+    }
+
+    public synchronized void lock() {
+        unlockedUntil = 0;
+        cache.clear();
+    }
+
+    /**
+     * Открытое значение пароля для показа пользователю.
+     *
+     * @return null, если хранилище заблокировано или значение не расшифровывается
+     */
+    public synchronized String reveal(String stored) {
+        if (!isUnlocked()) {
+            cache.clear();
+            return null;
+        }
+        long now = SystemClock.elapsedRealtime();
+        evictExpired(now);
+
+        CachedValue cached = cache.get(stored);
+        if (cached != null) {
+            return cached.plain;
+        }
+        try {
+            String plain = cipher().decrypt(stored);
+            cache.put(stored, new CachedValue(plain, now + SESSION_TTL_MS));
+            return plain;
+        } catch (GeneralSecurityException | IllegalStateException e) {
+            Log.e(TAG, "Error decrypting vault value", e);
+            return null;
+        }
+    }
+
+    private void evictExpired(long now) {
+        Iterator<CachedValue> iterator = cache.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAt <= now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class CachedValue {
+
+        final String plain;
+        final long expiresAt;
+
+        CachedValue(String plain, long expiresAt) {
+            this.plain = plain;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
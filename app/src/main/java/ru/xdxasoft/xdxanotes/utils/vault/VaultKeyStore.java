@@ -0,0 +1,119 @@
+package ru.xdxasoft.xdxanotes.utils.vault;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Base64;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Ключ данных хранилища паролей. Сам ключ данных программный, поля шифруются
+ * им без обращений к Keystore. На диске он лежит только зашифрованным
+ * мастер-ключом из AndroidKeyStore, который нельзя извлечь с устройства.
+ */
+class VaultKeyStore {
+
+    private static final String TAG = "VaultKeyStore";
+
+    private static final String ANDROID_KEYSTORE = "AndroidKeyStore";
+    private static final String MASTER_KEY_ALIAS = "password_vault_master";
+    private static final String PREFS_NAME = "password_vault";
+    private static final String KEY_WRAPPED_DATA_KEY = "wrapped_data_key";
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final int DATA_KEY_BITS = 256;
+
+    private final SharedPreferences prefs;
+
+    VaultKeyStore(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Разворачивает сохраненный ключ данных или создает новый. Новый ключ
+     * заменяет сохраненный, только если мастер-ключа в Keystore нет (данные
+     * приложения восстановлены на другом устройстве): тогда старый ключ не
+     * развернуть никогда, а старые значения перезапишет синхронизация. Любая
+     * другая ошибка разворачивания пробрасывается, и сохраненный ключ остается:
+     * им зашифрованы неотправленные пароли в очереди, вызывающий повторит позже.
+     */
+    SecretKey loadDataKey() throws GeneralSecurityException {
+        KeyStore keyStore = androidKeyStore();
+        String wrapped = prefs.getString(KEY_WRAPPED_DATA_KEY, null);
+        if (wrapped != null && keyStore.containsAlias(MASTER_KEY_ALIAS)) {
+            try {
+                return unwrap(masterKey(keyStore), wrapped);
+            } catch (IllegalArgumentException e) {
+                throw new GeneralSecurityException("Stored vault key is corrupted", e);
+            }
+        }
+        if (wrapped != null) {
+            Log.e(TAG, "Vault master key is missing, the stored data key is lost; generating a new one");
+        }
+        SecretKey masterKey = masterKey(keyStore);
+
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES);
+        generator.init(DATA_KEY_BITS);
+        SecretKey dataKey = generator.generateKey();
+        prefs.edit().putString(KEY_WRAPPED_DATA_KEY, wrap(masterKey, dataKey)).commit();
+        return dataKey;
+    }
+
+    private static KeyStore androidKeyStore() throws GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(ANDROID_KEYSTORE);
+        try {
+            keyStore.load(null);
+        } catch (IOException e) {
+            throw new GeneralSecurityException("AndroidKeyStore is unavailable", e);
+        }
+        return keyStore;
+    }
+
+    private static SecretKey masterKey(KeyStore keyStore) throws GeneralSecurityException {
+        KeyStore.Entry entry = keyStore.getEntry(MASTER_KEY_ALIAS, null);
+        if (entry instanceof KeyStore.SecretKeyEntry) {
+            return ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+        }
+
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, ANDROID_KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(MASTER_KEY_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(DATA_KEY_BITS)
+                .build());
+        return generator.generateKey();
+    }
+
+    // IV для ключей Keystore генерирует сам Keystore
+    private static String wrap(SecretKey masterKey, SecretKey dataKey) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, masterKey);
+        byte[] iv = cipher.getIV();
+        byte[] wrapped = cipher.doFinal(dataKey.getEncoded());
+        return Base64.getEncoder().encodeToString(
+                ByteBuffer.allocate(iv.length + wrapped.length).put(iv).put(wrapped).array());
+    }
+
+    private static SecretKey unwrap(SecretKey masterKey, String stored) throws GeneralSecurityException {
+        byte[] data = Base64.getDecoder().decode(stored);
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, masterKey, new GCMParameterSpec(TAG_LENGTH_BITS, data, 0, IV_LENGTH));
+        byte[] raw = cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+        return new SecretKeySpec(raw, KeyProperties.KEY_ALGORITHM_AES);
+    }
+}
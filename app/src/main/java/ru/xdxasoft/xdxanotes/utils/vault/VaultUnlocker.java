@@ -0,0 +1,78 @@
+package ru.xdxasoft.xdxanotes.utils.vault;
+
+import android.app.KeyguardManager;
+import android.content.Context;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.biometric.BiometricManager;
+import androidx.biometric.BiometricPrompt;
+import androidx.core.content.ContextCompat;
+import androidx.fragment.app.Fragment;
+
+import ru.xdxasoft.xdxanotes.R;
+
+import static androidx.biometric.BiometricManager.Authenticators.BIOMETRIC_WEAK;
+import static androidx.biometric.BiometricManager.Authenticators.DEVICE_CREDENTIAL;
+
+/**
+ * Разблокировка {@link PasswordVault} биометрией или блокировкой экрана. Запрос
+ * показывается не чаще раза за сессию хранилища. Без запроса хранилище
+ * открывается только на устройстве без блокировки экрана: защищать там нечем.
+ * Если блокировка есть, но запрос показать нельзя (датчик недоступен, статус
+ * неизвестен), хранилище остается закрытым.
+ */
+public final class VaultUnlocker {
+
+    private static final String TAG = "VaultUnlocker";
+
+    // BIOMETRIC_STRONG вместе с DEVICE_CREDENTIAL не поддерживается на Android 10
+    private static final int AUTHENTICATORS = BIOMETRIC_WEAK | DEVICE_CREDENTIAL;
+
+    private VaultUnlocker() {
+    }
+
+    /**
+     * Выполняет onUnlocked в главном потоке, когда хранилище разблокировано.
+     * Если пользователь отменил запрос, onUnlocked не вызывается.
+     */
+    public static void runUnlocked(Fragment fragment, Runnable onUnlocked) {
+        PasswordVault vault = PasswordVault.getInstance(fragment.requireContext());
+        if (vault.isUnlocked()) {
+            onUnlocked.run();
+            return;
+        }
+
+        Context context = fragment.requireContext();
+        int status = BiometricManager.from(context).canAuthenticate(AUTHENTICATORS);
+        if (status != BiometricManager.BIOMETRIC_SUCCESS) {
+            KeyguardManager keyguard = context.getSystemService(KeyguardManager.class);
+            if (keyguard != null && !keyguard.isDeviceSecure()) {
+                vault.unlock();
+                onUnlocked.run();
+                return;
+            }
+            Log.w(TAG, "Cannot authenticate to unlock vault, status " + status);
+            Toast.makeText(context, R.string.vault_unlock_unavailable, Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        BiometricPrompt prompt = new BiometricPrompt(fragment,
+                ContextCompat.getMainExecutor(context),
+                new BiometricPrompt.AuthenticationCallback() {
+                    @Override
+                    public void onAuthenticationSucceeded(@NonNull BiometricPrompt.AuthenticationResult result) {
+                        vault.unlock();
+                        if (fragment.isAdded()) {
+                            onUnlocked.run();
+                        }
+                    }
+                });
+        prompt.authenticate(new BiometricPrompt.PromptInfo.Builder()
+                .setTitle(fragment.getString(R.string.vault_unlock_title))
+                .setSubtitle(fragment.getString(R.string.vault_unlock_subtitle))
+                .setAllowedAuthenticators(AUTHENTICATORS)
+                .build());
+    }
+}
@@ -0,0 +1,103 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FirebaseBatchWriterTest {
+
+    private ScheduledExecutorService scheduler;
+    private FakeSink sink;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        sink = new FakeSink();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void pushOf250Events_takesThreeRoundTripsInsteadOf250() {
+        FirebaseBatchWriter writer = new FirebaseBatchWriter(sink, scheduler, 100, 60_000);
+        AtomicInteger confirmed = new AtomicInteger();
+
+        for (int i = 0; i < 250; i++) {
+            writer.set("Users/u/calendar_events/e" + i, "value" + i, success -> confirmed.incrementAndGet());
+        }
+        writer.flush();
+
+        assertEquals(3, sink.roundTrips());
+        assertEquals(100, sink.batches.get(0).size());
+        assertEquals(50, sink.batches.get(2).size());
+        assertEquals(250, confirmed.get());
+    }
+
+    @Test
+    public void repeatedWritesToSamePath_collapseToLatest() {
+        FirebaseBatchWriter writer = new FirebaseBatchWriter(sink, scheduler, 100, 60_000);
+
+        writer.set("Users/u/notes/1", "old", null);
+        writer.set("Users/u/notes/1", "new", null);
+        writer.remove("Users/u/notes/2", null);
+        writer.flush();
+
+        assertEquals(1, sink.roundTrips());
+        Map<String, Object> batch = sink.batches.get(0);
+        assertEquals(2, batch.size());
+        assertEquals("new", batch.get("Users/u/notes/1"));
+        assertTrue(batch.containsKey("Users/u/notes/2"));
+        assertNull(batch.get("Users/u/notes/2"));
+    }
+
+    @Test
+    public void pendingChanges_areFlushedAfterDelay() throws InterruptedException {
+        CountDownLatch written = new CountDownLatch(1);
+        FirebaseBatchWriter writer = new FirebaseBatchWriter(sink, scheduler, 100, 50);
+
+        writer.set("Users/u/notes/1", "a", success -> written.countDown());
+        writer.set("Users/u/notes/2", "b", null);
+
+        assertTrue(written.await(2, TimeUnit.SECONDS));
+        assertEquals(1, sink.roundTrips());
+        assertEquals(0, writer.pendingCount());
+    }
+
+    @Test
+    public void flushWithoutChanges_doesNotWrite() {
+        FirebaseBatchWriter writer = new FirebaseBatchWriter(sink, scheduler, 100, 60_000);
+
+        writer.flush();
+
+        assertEquals(0, sink.roundTrips());
+    }
+
+    private static class FakeSink implements FirebaseBatchWriter.Sink {
+
+        final List<Map<String, Object>> batches = new ArrayList<>();
+
+        @Override
+        public synchronized void write(Map<String, Object> updates, FirebaseBatchWriter.WriteCallback callback) {
+            batches.add(updates);
+            callback.onComplete(true);
+        }
+
+        synchronized int roundTrips() {
+            return batches.size();
+        }
+    }
+}
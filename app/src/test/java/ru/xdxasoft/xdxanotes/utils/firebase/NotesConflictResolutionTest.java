@@ -0,0 +1,375 @@
+package ru.xdxasoft.xdxanotes.utils.firebase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSyncBase;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+import static org.junit.Assert.*;
+
+/**
+ * Параллельные правки одной заметки на двух устройствах. Сервер заменен
+ * картой со своими часами, синхронизация устройства повторяет порядок
+ * SyncWorker: сначала загрузка со слиянием от сохраненной метки, затем
+ * отправка очереди.
+ */
+public class NotesConflictResolutionTest {
+
+    private static final String USER = "user";
+    private static final int NOTE_ID = 7;
+    private static final int OTHER_NOTE_ID = 8;
+
+    private final ConflictResolver resolver = new FieldMergeConflictResolver();
+
+    private FakeRemote remote;
+    private Device phone;
+    private Device tablet;
+    private long clock;
+
+    @Before
+    public void setUp() {
+        remote = new FakeRemote();
+        phone = new Device();
+        tablet = new Device();
+        clock = 1000;
+
+        phone.create(NOTE_ID, "Покупки", "молоко", tick());
+        phone.sync();
+        tablet.sync();
+    }
+
+    @Test
+    public void editsOfDifferentFields_areBothKept() {
+        phone.edit(NOTE_ID, "Покупки на неделю", null, tick());
+        tablet.edit(NOTE_ID, null, "молоко, хлеб", tick());
+
+        phone.sync();
+        tablet.sync();
+        phone.sync();
+
+        assertConverged("Покупки на неделю", "молоко, хлеб");
+    }
+
+    @Test
+    public void sameFieldEditedOnBoth_laterEditWins() {
+        phone.edit(NOTE_ID, null, "молоко, сыр", tick());
+        tablet.edit(NOTE_ID, null, "молоко, кефир", tick());
+
+        tablet.sync();
+        phone.sync();
+        tablet.sync();
+
+        assertConverged("Покупки", "молоко, кефир");
+    }
+
+    @Test
+    public void sameFieldEditedOnBoth_resultDoesNotDependOnSyncOrder() {
+        phone.edit(NOTE_ID, null, "молоко, сыр", tick());
+        tablet.edit(NOTE_ID, null, "молоко, кефир", tick());
+
+        phone.sync();
+        tablet.sync();
+        phone.sync();
+
+        assertConverged("Покупки", "молоко, кефир");
+    }
+
+    @Test
+    public void tieOnTimestampAndVersion_isResolvedDeterministically() {
+        long sameTime = tick();
+        Notes base = note(NOTE_ID, "T", "B", 1, 1000);
+        Notes a = note(NOTE_ID, "T", "body A", 2, sameTime);
+        Notes b = note(NOTE_ID, "T", "body B", 2, sameTime);
+
+        Notes mergedOnA = resolver.resolve(NoteSyncBase.from(base), a, b);
+        Notes mergedOnB = resolver.resolve(NoteSyncBase.from(base), b, a);
+
+        assertEquals(mergedOnA.getNotes(), mergedOnB.getNotes());
+        assertEquals("body B", mergedOnA.getNotes());
+    }
+
+    @Test
+    public void fieldChangedOnlyRemotely_isTakenEvenIfLocalIsNewer() {
+        Notes base = note(NOTE_ID, "T", "B", 1, 1000);
+        Notes local = note(NOTE_ID, "T", "B local", 2, 3000);
+        Notes older = note(NOTE_ID, "T remote", "B", 2, 2000);
+
+        Notes merged = resolver.resolve(NoteSyncBase.from(base), local, older);
+
+        assertEquals("T remote", merged.getTitle());
+        assertEquals("B local", merged.getNotes());
+    }
+
+    @Test
+    public void withoutBase_newerNoteWinsPerField() {
+        Notes local = note(NOTE_ID, "T", "B local", 1, 3000);
+        Notes remoteNote = note(NOTE_ID, "T remote", "B", 1, 2000);
+
+        Notes merged = resolver.resolve(null, local, remoteNote);
+
+        assertEquals("T", merged.getTitle());
+        assertEquals("B local", merged.getNotes());
+    }
+
+    @Test
+    public void cleanLocalNote_isReplacedWithoutPublishing() {
+        tablet.edit(NOTE_ID, "Новое", null, tick());
+        tablet.sync();
+
+        int pushesBefore = remote.writes;
+        phone.sync();
+
+        assertEquals("Новое", phone.local.get(NOTE_ID).getTitle());
+        assertEquals(pushesBefore, remote.writes);
+    }
+
+    @Test
+    public void editAfterRemoteDeletion_restoresNote() {
+        tablet.delete(NOTE_ID, tick());
+        tablet.sync();
+        phone.edit(NOTE_ID, null, "молоко, яйца", tick());
+
+        phone.sync();
+        tablet.sync();
+
+        assertConverged("Покупки", "молоко, яйца");
+    }
+
+    @Test
+    public void deletionAfterRemoteEdit_removesNoteEverywhere() {
+        phone.edit(NOTE_ID, null, "молоко, чай", tick());
+        phone.sync();
+        tablet.delete(NOTE_ID, tick());
+
+        tablet.sync();
+        phone.sync();
+
+        assertFalse(phone.local.containsKey(NOTE_ID));
+        assertFalse(tablet.local.containsKey(NOTE_ID));
+        assertTrue(remote.notes.get(NOTE_ID).deleted);
+    }
+
+    @Test
+    public void offlineWriteWithOldTimestamp_arrivesAfterMarkMoved() {
+        // Планшет создает заметку офлайн, его часы отстают от телефона
+        long staleTime = clock - 5000;
+        tablet.create(OTHER_NOTE_ID, "С планшета", "офлайн", staleTime);
+
+        long phoneEditTime = tick();
+        phone.edit(NOTE_ID, null, "молоко, хлеб", phoneEditTime);
+        phone.sync();
+        phone.sync();
+
+        // Запись планшета доходит до сервера уже после того, как метка телефона ушла вперед
+        tablet.sync();
+        phone.sync();
+
+        Notes arrived = phone.local.get(OTHER_NOTE_ID);
+        assertNotNull(arrived);
+        assertEquals("С планшета", arrived.getTitle());
+        assertTrue(arrived.getLastModified() < phoneEditTime);
+    }
+
+    @Test
+    public void collectionWithoutServerTimes_isDownloadedInFullOnlyOnce() {
+        // Заметки записаны до появления serverUpdatedAt
+        FakeRemote legacy = new FakeRemote();
+        legacy.notes.put(NOTE_ID, new RemoteNote(note(NOTE_ID, "Старая", "без метки", 1, 1000), false));
+        remote = legacy;
+        Device laptop = new Device();
+        Device desktop = new Device();
+
+        laptop.sync();
+        desktop.sync();
+        laptop.sync();
+
+        assertEquals(1, laptop.fullSyncs);
+        assertEquals("Старая", laptop.local.get(NOTE_ID).getTitle());
+
+        // Правка старой заметки получает серверное время и доходит по метке
+        desktop.edit(NOTE_ID, "Исправленная", null, tick());
+        desktop.sync();
+        laptop.sync();
+
+        assertEquals(1, laptop.fullSyncs);
+        assertEquals("Исправленная", laptop.local.get(NOTE_ID).getTitle());
+    }
+
+    @Test
+    public void noteDeletedLocally_isNotResurrectedByRemoteEdit() {
+        tablet.edit(NOTE_ID, null, "молоко, мед", tick());
+        tablet.sync();
+        phone.delete(NOTE_ID, tick());
+
+        NotesSyncEngine.Reconciled result = NotesSyncEngine.reconcile(phone.base.get(NOTE_ID), null, true,
+                new NotesSyncEngine.NoteChange(copy(remote.notes.get(NOTE_ID).note), false), resolver, tick());
+
+        assertNull(result.upsert);
+        assertNull(result.publish);
+    }
+
+    private void assertConverged(String title, String body) {
+        for (Device device : new Device[]{phone, tablet}) {
+            Notes note = device.local.get(NOTE_ID);
+            assertNotNull(note);
+            assertEquals(title, note.getTitle());
+            assertEquals(body, note.getNotes());
+        }
+        assertEquals(title, remote.notes.get(NOTE_ID).note.getTitle());
+        assertEquals(body, remote.notes.get(NOTE_ID).note.getNotes());
+        assertTrue(phone.outbox.isEmpty());
+        assertTrue(tablet.outbox.isEmpty());
+    }
+
+    private long tick() {
+        return clock += 1000;
+    }
+
+    private static Notes note(int id, String title, String body, int version, long lastModified) {
+        Notes note = new Notes();
+        note.setID(id);
+        note.setTitle(title);
+        note.setNotes(body);
+        note.setUserId(USER);
+        note.setVersion(version);
+        note.setLastModified(lastModified);
+        return note;
+    }
+
+    private static Notes copy(Notes source) {
+        Notes note = note(source.getID(), source.getTitle(), source.getNotes(),
+                source.getVersion(), source.getLastModified());
+        note.setPinned(source.isPinned());
+        note.setDate(source.getDate());
+        return note;
+    }
+
+    private static class RemoteNote {
+
+        final Notes note;
+        final boolean deleted;
+        // Время записи по часам сервера, как ServerValue.TIMESTAMP
+        final long serverUpdatedAt;
+
+        RemoteNote(Notes note, boolean deleted) {
+            this(note, deleted, 0);
+        }
+
+        RemoteNote(Notes note, boolean deleted, long serverUpdatedAt) {
+            this.note = note;
+            this.deleted = deleted;
+            this.serverUpdatedAt = serverUpdatedAt;
+        }
+    }
+
+    private static class FakeRemote {
+
+        final Map<Integer, RemoteNote> notes = new LinkedHashMap<>();
+        int writes;
+        // Часы сервера идут независимо от часов устройств
+        long serverClock = 1_000_000;
+
+        void write(RemoteNote value) {
+            notes.put(value.note.getID(), new RemoteNote(copy(value.note), value.deleted, ++serverClock));
+            writes++;
+        }
+
+        // Аналог orderByChild("serverUpdatedAt").startAt(mark), без метки - вся коллекция
+        List<NotesSyncEngine.NoteChange> changesSince(long mark) {
+            List<NotesSyncEngine.NoteChange> changes = new ArrayList<>();
+            for (RemoteNote remoteNote : notes.values()) {
+                if (mark == 0 || remoteNote.serverUpdatedAt >= mark) {
+                    changes.add(new NotesSyncEngine.NoteChange(copy(remoteNote.note), remoteNote.deleted,
+                            remoteNote.serverUpdatedAt));
+                }
+            }
+            return changes;
+        }
+    }
+
+    private class Device {
+
+        final Map<Integer, Notes> local = new HashMap<>();
+        final Map<Integer, NoteSyncBase> base = new HashMap<>();
+        // Аналог sync_outbox: одна запись на заметку, новая заменяет старую
+        final Map<Integer, RemoteNote> outbox = new LinkedHashMap<>();
+        long mark;
+        int fullSyncs;
+
+        void create(int id, String title, String body, long time) {
+            Notes note = note(id, title, body, 1, time);
+            local.put(id, note);
+            outbox.put(id, new RemoteNote(copy(note), false));
+        }
+
+        void edit(int id, String title, String body, long time) {
+            Notes note = copy(local.get(id));
+            if (title != null) {
+                note.setTitle(title);
+            }
+            if (body != null) {
+                note.setNotes(body);
+            }
+            note.setVersion(note.getVersion() + 1);
+            note.setLastModified(time);
+            local.put(id, note);
+            outbox.put(id, new RemoteNote(copy(note), false));
+        }
+
+        void delete(int id, long time) {
+            Notes tombstone = note(id, "", "", 0, time);
+            local.remove(id);
+            outbox.put(id, new RemoteNote(tombstone, true));
+        }
+
+        void sync() {
+            pull();
+            for (RemoteNote pending : outbox.values()) {
+                remote.write(pending);
+            }
+            outbox.clear();
+        }
+
+        private void pull() {
+            if (mark == 0) {
+                fullSyncs++;
+            }
+            long serverTime = remote.serverClock;
+            List<NotesSyncEngine.NoteChange> changes = remote.changesSince(mark);
+            for (NotesSyncEngine.NoteChange change : changes) {
+                int id = change.getNote().getID();
+                RemoteNote pending = outbox.get(id);
+                boolean deletionPending = pending != null && pending.deleted;
+                NotesSyncEngine.Reconciled result = NotesSyncEngine.reconcile(base.get(id), copyOrNull(local.get(id)),
+                        deletionPending, change, resolver, tick());
+
+                if (result.delete) {
+                    local.remove(id);
+                }
+                if (result.upsert != null) {
+                    local.put(id, copy(result.upsert));
+                }
+                if (result.base != null) {
+                    base.put(id, result.base);
+                } else if (result.dropBase) {
+                    base.remove(id);
+                }
+                if (result.publish != null) {
+                    outbox.put(id, new RemoteNote(copy(result.publish), false));
+                }
+            }
+            mark = NotesSyncEngine.advanceMark(mark, changes, serverTime);
+        }
+
+        private Notes copyOrNull(Notes note) {
+            return note != null ? copy(note) : null;
+        }
+    }
+}
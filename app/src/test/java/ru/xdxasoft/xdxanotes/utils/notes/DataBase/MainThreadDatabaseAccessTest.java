@@ -0,0 +1,119 @@
+package ru.xdxasoft.xdxanotes.utils.notes.DataBase;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Room в приложении открыт без allowMainThreadQueries, поэтому любой вызов
+ * DAO в главном потоке бросает исключение. Тест работает в главном потоке
+ * Robolectric, как фрагменты: вызывает репозитории и подписывается на их
+ * LiveData. Если бы что-то из этого обратилось к Room синхронно, тест упал бы
+ * на вызове или при прокрутке главного looper.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MainThreadDatabaseAccessTest {
+
+    private static final long TIMEOUT_MS = 5000;
+    private static final String USER = "user";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void daoCallOnMainLooper_isRejected() {
+        assertSame(Looper.getMainLooper().getThread(), Thread.currentThread());
+
+        RoomDB.getInstance(context).mainDao().count();
+    }
+
+    @Test
+    public void notesRepository_doesNotTouchRoomOnMainLooper() {
+        NotesRepository repository = NotesRepository.getInstance(context);
+        Notes note = new Notes();
+        note.setID(101);
+        note.setTitle("Заметка");
+        note.setNotes("текст");
+        note.setUserId(USER);
+
+        repository.insert(note);
+        Notes stored = awaitNote(repository, 101, "Заметка");
+        assertEquals("текст", stored.getNotes());
+
+        note.setTitle("Правка");
+        repository.update(note);
+        awaitNote(repository, 101, "Правка");
+
+        AtomicReference<Notes> pinned = new AtomicReference<>();
+        repository.pin(101, true, pinned::set);
+        awaitMain(() -> pinned.get() != null);
+        assertTrue(pinned.get().isPinned());
+
+        repository.delete(101);
+        AtomicReference<Boolean> deleted = new AtomicReference<>(false);
+        awaitMain(() -> {
+            repository.getById(101, loaded -> deleted.set(loaded == null));
+            return deleted.get();
+        });
+    }
+
+    @Test
+    public void calendarRepository_liveDataIsLoadedOffMainLooper() {
+        CalendarRepository repository = CalendarRepository.getInstance(context);
+        LiveData<List<CalendarEvent>> events = repository.observeEventsByDate("2026-10-16");
+        AtomicReference<List<CalendarEvent>> observed = new AtomicReference<>();
+        events.observeForever(observed::set);
+
+        repository.insert(new CalendarEvent("Встреча", "", "2026-10-16", "10:00", USER));
+
+        awaitMain(() -> observed.get() != null && observed.get().size() == 1);
+        assertEquals("Встреча", observed.get().get(0).getTitle());
+    }
+
+    private Notes awaitNote(NotesRepository repository, int id, String title) {
+        AtomicReference<Notes> loaded = new AtomicReference<>();
+        awaitMain(() -> {
+            repository.getById(id, loaded::set);
+            return loaded.get() != null && title.equals(loaded.get().getTitle());
+        });
+        return loaded.get();
+    }
+
+    // Запросы идут в пуле DatabaseExecutor, результаты приходят через главный looper
+    private static void awaitMain(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (true) {
+            shadowOf(Looper.getMainLooper()).idle();
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            assertTrue("Timed out waiting for the database", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
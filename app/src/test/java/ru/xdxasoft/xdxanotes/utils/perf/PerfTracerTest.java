@@ -0,0 +1,142 @@
+package ru.xdxasoft.xdxanotes.utils.perf;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PerfTracerTest {
+
+    private final List<PerfTracer.Span> stopped = new ArrayList<>();
+    private final List<PerfTracer.Span> canceled = new ArrayList<>();
+    private final PerfTracer.Sink recordingSink = new PerfTracer.Sink() {
+        @Override
+        public void onStop(PerfTracer.Span span) {
+            stopped.add(span);
+        }
+
+        @Override
+        public void onCancel(PerfTracer.Span span) {
+            canceled.add(span);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        PerfTracer.clearSinks();
+        PerfTracer.addSink(recordingSink);
+    }
+
+    @After
+    public void tearDown() {
+        PerfTracer.clearSinks();
+    }
+
+    @Test
+    public void stoppedSpan_reachesSinksOnceWithMetrics() {
+        PerfTracer.Span span = PerfTracer.start("sync_notes")
+                .putMetric("remote_rows", 10)
+                .putAttribute("full", "true");
+        span.incrementMetric("remote_rows", 5);
+
+        span.stop();
+        span.stop();
+
+        assertEquals(1, stopped.size());
+        assertTrue(span.isStopped());
+        assertTrue(span.getDurationNanos() >= 0);
+        assertEquals(Long.valueOf(15), span.getMetrics().get("remote_rows"));
+        assertEquals("true", span.getAttributes().get("full"));
+    }
+
+    @Test
+    public void runningSpan_hasNoDuration() {
+        PerfTracer.Span span = PerfTracer.start("notes_filter");
+
+        assertFalse(span.isStopped());
+        assertEquals(-1, span.getDurationNanos());
+        assertTrue(stopped.isEmpty());
+    }
+
+    @Test
+    public void canceledSpan_isNotReportedAsStopped() {
+        PerfTracer.Span span = PerfTracer.start("notes_filter");
+
+        span.cancel();
+        span.cancel();
+        span.stop();
+
+        assertEquals(1, canceled.size());
+        assertTrue(stopped.isEmpty());
+        assertTrue(span.isCanceled());
+        assertFalse(span.isStopped());
+    }
+
+    @Test
+    public void stoppedSpan_cannotBeCanceled() {
+        PerfTracer.Span span = PerfTracer.start("notes_filter");
+
+        span.stop();
+        span.cancel();
+
+        assertEquals(1, stopped.size());
+        assertTrue(canceled.isEmpty());
+        assertFalse(span.isCanceled());
+    }
+
+    @Test
+    public void tryWithResources_stopsSpan() {
+        try (PerfTracer.Span ignored = PerfTracer.start("calendar_generate_days")) {
+            assertTrue(stopped.isEmpty());
+        }
+
+        assertEquals(1, stopped.size());
+    }
+
+    @Test
+    public void withoutSinks_spansAreNoOp() {
+        PerfTracer.clearSinks();
+
+        PerfTracer.start("app_start").putMetric("splash_done_ms", 12).stop();
+
+        assertTrue(stopped.isEmpty());
+    }
+
+    @Test
+    public void histogram_reportsPercentilesPerName() {
+        HistogramSink histogram = new HistogramSink();
+        PerfTracer.addSink(histogram);
+
+        for (int i = 0; i < 20; i++) {
+            PerfTracer.start("reminders_check").stop();
+        }
+        PerfTracer.start("sync_calendar").stop();
+
+        HistogramSink.Stats stats = histogram.stats("reminders_check");
+        assertEquals(20, stats.count);
+        assertTrue(stats.p50Micros <= stats.p95Micros);
+        assertTrue(stats.p95Micros <= stats.maxMicros);
+        assertEquals(1, histogram.stats("sync_calendar").count);
+        assertNull(histogram.stats("notes_filter"));
+        assertEquals(2, histogram.names().size());
+    }
+
+    @Test
+    public void histogram_keepsOnlyLatestSamples() {
+        HistogramSink histogram = new HistogramSink(4);
+        PerfTracer.addSink(histogram);
+
+        for (int i = 0; i < 10; i++) {
+            PerfTracer.start("notes_load_local").stop();
+        }
+
+        // Счетчик учитывает все замеры, перцентили - последние 4
+        assertEquals(10, histogram.stats("notes_load_local").count);
+        histogram.reset();
+        assertTrue(histogram.names().isEmpty());
+    }
+}
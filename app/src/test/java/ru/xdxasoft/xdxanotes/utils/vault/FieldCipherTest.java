@@ -0,0 +1,66 @@
+package ru.xdxasoft.xdxanotes.utils.vault;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.*;
+
+public class FieldCipherTest {
+
+    private FieldCipher cipher;
+
+    @Before
+    public void setUp() throws Exception {
+        cipher = new FieldCipher(newKey());
+    }
+
+    @Test
+    public void encryptedValue_decryptsToOriginal() throws Exception {
+        String encrypted = cipher.encrypt("p@ssw0rd-пароль");
+
+        assertTrue(FieldCipher.isEncrypted(encrypted));
+        assertFalse(encrypted.contains("p@ssw0rd"));
+        assertEquals("p@ssw0rd-пароль", cipher.decrypt(encrypted));
+    }
+
+    @Test
+    public void sameValue_isEncryptedDifferentlyEachTime() throws Exception {
+        assertNotEquals(cipher.encrypt("secret"), cipher.encrypt("secret"));
+    }
+
+    @Test
+    public void valueWithoutPrefix_isReturnedAsIs() throws Exception {
+        assertEquals("legacy plain", cipher.decrypt("legacy plain"));
+        assertEquals("", cipher.decrypt(""));
+        assertNull(cipher.decrypt(null));
+    }
+
+    @Test(expected = GeneralSecurityException.class)
+    public void tamperedValue_isRejected() throws Exception {
+        String encrypted = cipher.encrypt("secret");
+        byte[] data = Base64.getDecoder().decode(encrypted.substring(FieldCipher.PREFIX.length()));
+        data[data.length / 2] ^= 1;
+        String tampered = FieldCipher.PREFIX + Base64.getEncoder().encodeToString(data);
+
+        cipher.decrypt(tampered);
+    }
+
+    @Test(expected = GeneralSecurityException.class)
+    public void valueEncryptedWithAnotherKey_isRejected() throws Exception {
+        String encrypted = new FieldCipher(newKey()).encrypt("secret");
+
+        cipher.decrypt(encrypted);
+    }
+
+    private static SecretKey newKey() throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        return generator.generateKey();
+    }
+}
@@ -0,0 +1,51 @@
+// Микробенчмарки androidx.benchmark для горячих путей данных и синхронизации.
+// Запуск: ./gradlew :benchmark:connectedBenchmarkAndroidTest
+// Результаты в JSON: build/outputs/connected_android_test_additional_output/
+// Чистая Java без устройства замеряется JMH в :benchmark:jmh
+plugins {
+    alias(libs.plugins.android.test)
+}
+
+android {
+    namespace = "ru.xdxasoft.xdxanotes.benchmark"
+    compileSdk = 35
+
+    defaultConfig {
+        minSdk = 29
+        targetSdk = 34
+
+        testInstrumentationRunner = "androidx.benchmark.junit4.AndroidBenchmarkRunner"
+        testInstrumentationRunnerArguments["androidx.benchmark.output.enable"] = "true"
+    }
+
+    buildTypes {
+        // Совпадает по имени со сборкой benchmark приложения
+        create("benchmark") {
+            isDebuggable = true
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+        }
+    }
+
+    targetProjectPath = ":app"
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_11
+        targetCompatibility = JavaVersion.VERSION_11
+    }
+}
+
+// Замеры против debuggable-сборки приложения не имеют смысла
+androidComponents {
+    beforeVariants(selector().withBuildType("debug")) { variant ->
+        variant.enable = false
+    }
+}
+
+dependencies {
+    implementation(libs.benchmark.junit4)
+    implementation(libs.ext.junit)
+    implementation("androidx.room:room-runtime:2.6.1")
+    implementation("androidx.paging:paging-runtime:3.2.1")
+    implementation("com.google.android.material:material:1.12.0")
+}
@@ -0,0 +1,45 @@
+// JMH-замеры чистой Java из :app, которой не нужен Android SDK.
+// Запуск: ./gradlew :benchmark:jmh:jmh, результаты в build/reports/jmh/results.json
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// Исходники приложения собираются вместе с замерами, список ограничен
+// классами без зависимостей от Android
+sourceSets {
+    named("jmh") {
+        java {
+            srcDir(rootProject.file("app/src/main/java"))
+            include(
+                "ru/xdxasoft/xdxanotes/benchmark/**",
+                "ru/xdxasoft/xdxanotes/utils/IdGenerator.java",
+                "ru/xdxasoft/xdxanotes/models/Password.java",
+                "ru/xdxasoft/xdxanotes/utils/firebase/PasswordReconciler.java",
+                "ru/xdxasoft/xdxanotes/utils/vault/FieldCipher.java",
+                "ru/xdxasoft/xdxanotes/utils/perf/PerfTracer.java",
+                "ru/xdxasoft/xdxanotes/utils/perf/HistogramSink.java"
+            )
+        }
+    }
+}
+
+dependencies {
+    // Аннотации Room и androidx в Password нужны только компилятору
+    jmhCompileOnly("androidx.room:room-common:2.6.1")
+    jmhCompileOnly("androidx.annotation:annotation:1.6.0")
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+}
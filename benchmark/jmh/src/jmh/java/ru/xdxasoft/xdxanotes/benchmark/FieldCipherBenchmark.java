@@ -0,0 +1,59 @@
+package ru.xdxasoft.xdxanotes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.KeyGenerator;
+
+import ru.xdxasoft.xdxanotes.utils.vault.FieldCipher;
+
+/**
+ * Шифрование поля пароля. На устройстве ключ лежит в Android Keystore, здесь
+ * используется программный AES-ключ, поэтому замер показывает стоимость
+ * самой обертки и формата, а не аппаратного хранилища.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FieldCipherBenchmark {
+
+    @Param({"16", "256"})
+    public int length;
+
+    private FieldCipher cipher;
+    private String plain;
+    private String stored;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        cipher = new FieldCipher(generator.generateKey());
+
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        plain = builder.toString();
+        stored = cipher.encrypt(plain);
+    }
+
+    @Benchmark
+    public String encrypt() throws GeneralSecurityException {
+        return cipher.encrypt(plain);
+    }
+
+    @Benchmark
+    public String decrypt() throws GeneralSecurityException {
+        return cipher.decrypt(stored);
+    }
+}
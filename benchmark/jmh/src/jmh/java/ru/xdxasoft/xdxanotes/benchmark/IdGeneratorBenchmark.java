@@ -0,0 +1,34 @@
+package ru.xdxasoft.xdxanotes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.concurrent.TimeUnit;
+
+import ru.xdxasoft.xdxanotes.utils.IdGenerator;
+
+/**
+ * Пропускная способность генераторов id, которые вызываются при создании
+ * каждой записи и при полной синхронизации паролей.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IdGeneratorBenchmark {
+
+    @Benchmark
+    public String randomId() {
+        return IdGenerator.generateRandomId();
+    }
+
+    @Benchmark
+    public String complexId() {
+        return IdGenerator.generateComplexId();
+    }
+
+    @Benchmark
+    public String uuid() {
+        return IdGenerator.generateUUID();
+    }
+}
@@ -0,0 +1,66 @@
+package ru.xdxasoft.xdxanotes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import ru.xdxasoft.xdxanotes.models.Password;
+import ru.xdxasoft.xdxanotes.utils.firebase.PasswordReconciler;
+
+/**
+ * Сверка локальных паролей со снимком сервера. В снимке 1% новых записей,
+ * 1% измененных, 1% локальных отсутствует на сервере и 1% ждет отправки.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PasswordReconcilerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private List<Password> local;
+    private List<Password> remote;
+    private Set<String> pendingIds;
+
+    @Setup
+    public void setUp() {
+        local = new ArrayList<>(rows);
+        remote = new ArrayList<>(rows);
+        pendingIds = new HashSet<>();
+        for (int i = 0; i < rows; i++) {
+            String id = "pwd-" + i;
+            int bucket = i % 100;
+            if (bucket != 0) {
+                local.add(password(id, "secret-" + i));
+            }
+            if (bucket == 1) {
+                continue;
+            }
+            remote.add(password(id, bucket == 2 ? "changed-" + i : "secret-" + i));
+            if (bucket == 3) {
+                pendingIds.add(id);
+            }
+        }
+    }
+
+    @Benchmark
+    public PasswordReconciler.Diff diff() {
+        return PasswordReconciler.diff(local, remote, pendingIds);
+    }
+
+    private static Password password(String id, String secret) {
+        return new Password(id, "title " + id, id + "@example.com", secret, "benchmark-user");
+    }
+}
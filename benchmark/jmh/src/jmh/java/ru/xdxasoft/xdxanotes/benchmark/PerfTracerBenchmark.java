@@ -0,0 +1,67 @@
+package ru.xdxasoft.xdxanotes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import ru.xdxasoft.xdxanotes.utils.perf.HistogramSink;
+import ru.xdxasoft.xdxanotes.utils.perf.PerfTracer;
+
+/**
+ * Накладные расходы одного замера PerfTracer: без приемников и с
+ * гистограммой, которая стоит в приложении по умолчанию.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PerfTracerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class NoSinks {
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            PerfTracer.clearSinks();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WithHistogram {
+
+        final HistogramSink histogram = new HistogramSink();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            PerfTracer.clearSinks();
+            PerfTracer.addSink(histogram);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            PerfTracer.clearSinks();
+        }
+    }
+
+    @Benchmark
+    public PerfTracer.Span spanWithoutSinks(NoSinks state) {
+        return span();
+    }
+
+    @Benchmark
+    public PerfTracer.Span spanWithHistogram(WithHistogram state) {
+        return span();
+    }
+
+    private static PerfTracer.Span span() {
+        PerfTracer.Span span = PerfTracer.start("benchmark").putMetric("rows", 1);
+        span.stop();
+        return span;
+    }
+}
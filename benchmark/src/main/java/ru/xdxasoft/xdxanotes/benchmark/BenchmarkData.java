@@ -0,0 +1,134 @@
+package ru.xdxasoft.xdxanotes.benchmark;
+
+import android.content.Context;
+
+import androidx.paging.PagingSource;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import kotlin.coroutines.EmptyCoroutineContext;
+import kotlinx.coroutines.BuildersKt;
+
+import ru.xdxasoft.xdxanotes.models.Password;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+/**
+ * Наборы данных для замеров. Генератор с фиксированным seed, чтобы прогоны
+ * разных версий приложения работали с одинаковыми строками.
+ */
+final class BenchmarkData {
+
+    static final String USER_ID = "benchmark-user";
+
+    private static final long SEED = 42;
+    private static final String[] WORDS = {
+            "список", "покупок", "встреча", "проект", "отчет", "идея", "звонок",
+            "книга", "рецепт", "поездка", "пароль", "задача", "план", "заметка"
+    };
+
+    private BenchmarkData() {
+    }
+
+    static Context context() {
+        return InstrumentationRegistry.getInstrumentation().getTargetContext();
+    }
+
+    /**
+     * Отдельный файл БД с настройками по умолчанию, рабочая база приложения не трогается.
+     */
+    static RoomDB openDatabase(String name) {
+        Context context = context();
+        context.deleteDatabase(name);
+        return RoomDB.builder(context, name, RoomDB.Options.DEFAULT).build();
+    }
+
+    static void closeDatabase(RoomDB database, String name) {
+        database.close();
+        context().deleteDatabase(name);
+    }
+
+    /**
+     * Синхронная загрузка страницы PagingSource, как ее делает Pager в фоне.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> PagingSource.LoadResult<Integer, T> load(PagingSource<Integer, T> source,
+            PagingSource.LoadParams<Integer> params) {
+        try {
+            return (PagingSource.LoadResult<Integer, T>) BuildersKt.runBlocking(
+                    EmptyCoroutineContext.INSTANCE,
+                    (scope, continuation) -> source.load(params, continuation));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static List<Notes> notes(int count, long lastModified) {
+        Random random = new Random(SEED);
+        List<Notes> notes = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Notes note = new Notes();
+            note.setID(i);
+            note.setTitle(words(random, 3));
+            note.setNotes(words(random, 60));
+            note.setDate("Fri, 16 Oct 2026 12:00 PM");
+            note.setPinned(i % 50 == 0);
+            note.setUserId(USER_ID);
+            note.setLastModified(lastModified + i);
+            note.setVersion(1);
+            notes.add(note);
+        }
+        return notes;
+    }
+
+    /**
+     * События равномерно распределены по году начиная с {@code firstDay}.
+     */
+    static List<CalendarEvent> events(int count, Calendar firstDay) {
+        Random random = new Random(SEED);
+        List<CalendarEvent> events = new ArrayList<>(count);
+        Calendar day = (Calendar) firstDay.clone();
+        for (int i = 0; i < count; i++) {
+            day.setTimeInMillis(firstDay.getTimeInMillis());
+            day.add(Calendar.DAY_OF_YEAR, random.nextInt(365));
+            CalendarEvent event = new CalendarEvent(words(random, 3), words(random, 12),
+                    date(day), String.format(Locale.US, "%02d:%02d", random.nextInt(24), random.nextInt(60)),
+                    USER_ID);
+            event.setNotificationType(random.nextInt(3));
+            events.add(event);
+        }
+        return events;
+    }
+
+    static List<Password> passwords(int count) {
+        Random random = new Random(SEED);
+        List<Password> passwords = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            passwords.add(new Password("pwd-" + i, words(random, 2), "user" + i + "@example.com",
+                    Long.toHexString(random.nextLong()), USER_ID));
+        }
+        return passwords;
+    }
+
+    static String date(Calendar day) {
+        return String.format(Locale.US, "%04d-%02d-%02d",
+                day.get(Calendar.YEAR), day.get(Calendar.MONTH) + 1, day.get(Calendar.DAY_OF_MONTH));
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+}
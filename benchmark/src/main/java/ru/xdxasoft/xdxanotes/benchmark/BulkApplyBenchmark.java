@@ -0,0 +1,172 @@
+package ru.xdxasoft.xdxanotes.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.CalendarDao;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.MainDAO;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.CalendarEvent;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+/**
+ * Применение пачки изменений с сервера: прежний построчный цикл, где каждая
+ * запись - отдельная транзакция, против пакетных applyChanges и upsertAll в
+ * одной транзакции. Пары perRow/batch замеряют одну и ту же работу, поэтому
+ * строки в секунду для каждой - rows / время итерации.
+ */
+@RunWith(Parameterized.class)
+public class BulkApplyBenchmark {
+
+    private static final String DB_NAME = "benchmark-bulk.db";
+
+    @Parameterized.Parameters(name = "rows={0}")
+    public static Collection<Object[]> rows() {
+        return Arrays.asList(new Object[][]{{1_000}, {10_000}});
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int rows;
+    private RoomDB database;
+    private MainDAO dao;
+    private CalendarDao calendarDao;
+    private List<Notes> notes;
+    // Изменения с сервера: каждая десятая заметка удалена, остальные изменены
+    private List<Notes> updated;
+    private List<Integer> deletedIds;
+
+    public BulkApplyBenchmark(int rows) {
+        this.rows = rows;
+    }
+
+    @Before
+    public void setUp() {
+        database = BenchmarkData.openDatabase(DB_NAME);
+        dao = database.mainDao();
+        calendarDao = database.calendarDao();
+        notes = BenchmarkData.notes(rows, 1_000L);
+
+        updated = new ArrayList<>(rows);
+        deletedIds = new ArrayList<>(rows / 10);
+        for (Notes note : BenchmarkData.notes(rows, 2_000_000L)) {
+            if (note.getID() % 10 == 0) {
+                deletedIds.add(note.getID());
+            } else {
+                note.setTitle(note.getTitle() + " (сервер)");
+                note.setVersion(2);
+                updated.add(note);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        BenchmarkData.closeDatabase(database, DB_NAME);
+    }
+
+    @Test
+    public void insertNotes_perRow() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            dao.deleteAll();
+            state.resumeTiming();
+
+            for (Notes note : notes) {
+                dao.insert(note);
+            }
+        }
+        assertEquals(rows, dao.count());
+    }
+
+    @Test
+    public void insertNotes_applyChanges() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            dao.deleteAll();
+            state.resumeTiming();
+
+            dao.applyChanges(notes, new ArrayList<>());
+        }
+        assertEquals(rows, dao.count());
+    }
+
+    @Test
+    public void updateAndDeleteNotes_perRow() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            dao.deleteAll();
+            dao.insertAll(notes);
+            state.resumeTiming();
+
+            for (Integer id : deletedIds) {
+                dao.deleteById(id);
+            }
+            for (Notes note : updated) {
+                dao.update(note.getID(), note.getTitle(), note.getNotes(), note.getLastModified(), note.getVersion());
+            }
+        }
+        assertEquals(updated.size(), dao.count());
+    }
+
+    @Test
+    public void updateAndDeleteNotes_applyChanges() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            dao.deleteAll();
+            dao.insertAll(notes);
+            state.resumeTiming();
+
+            dao.applyChanges(updated, deletedIds);
+        }
+        assertEquals(updated.size(), dao.count());
+    }
+
+    @Test
+    public void insertEvents_perRow() {
+        List<CalendarEvent> events = BenchmarkData.events(rows, Calendar.getInstance());
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            calendarDao.deleteAll();
+            state.resumeTiming();
+
+            for (CalendarEvent event : events) {
+                calendarDao.insert(event);
+            }
+        }
+    }
+
+    @Test
+    public void insertEvents_upsertAll() {
+        List<CalendarEvent> events = BenchmarkData.events(rows, Calendar.getInstance());
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            calendarDao.deleteAll();
+            state.resumeTiming();
+
+            calendarDao.upsertAll(events);
+        }
+    }
+}
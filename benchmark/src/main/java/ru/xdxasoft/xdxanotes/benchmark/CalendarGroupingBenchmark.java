@@ -0,0 +1,113 @@
+package ru.xdxasoft.xdxanotes.benchmark;
+
+import static org.junit.Assert.assertFalse;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import ru.xdxasoft.xdxanotes.utils.notes.Adapter.CalendarDaysAdapter;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.CalendarDao;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.DayEventCount;
+
+/**
+ * Группировка событий календаря по дням для окна из трех месяцев, как в
+ * CalendarFragment: запрос getEventCountsBetween, сборка множества дат и
+ * построение сетки месяца в CalendarDaysAdapter.
+ */
+@RunWith(Parameterized.class)
+public class CalendarGroupingBenchmark {
+
+    private static final String DB_NAME = "benchmark-calendar.db";
+
+    @Parameterized.Parameters(name = "rows={0}")
+    public static Collection<Object[]> rows() {
+        return Arrays.asList(new Object[][]{{1_000}, {10_000}, {100_000}});
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int rows;
+    private RoomDB database;
+    private CalendarDao dao;
+    private Calendar month;
+    private String windowStart;
+    private String windowEnd;
+
+    public CalendarGroupingBenchmark(int rows) {
+        this.rows = rows;
+    }
+
+    @Before
+    public void setUp() {
+        database = BenchmarkData.openDatabase(DB_NAME);
+        dao = database.calendarDao();
+
+        Calendar firstDay = Calendar.getInstance();
+        firstDay.clear();
+        firstDay.set(2026, Calendar.JANUARY, 1);
+        dao.insertAll(BenchmarkData.events(rows, firstDay));
+
+        month = (Calendar) firstDay.clone();
+        month.set(Calendar.MONTH, Calendar.JUNE);
+
+        // Окно CalendarFragment: предыдущий, текущий и следующий месяц
+        Calendar start = (Calendar) month.clone();
+        start.add(Calendar.MONTH, -1);
+        Calendar end = (Calendar) month.clone();
+        end.add(Calendar.MONTH, 2);
+        end.add(Calendar.DAY_OF_MONTH, -1);
+        windowStart = BenchmarkData.date(start);
+        windowEnd = BenchmarkData.date(end);
+    }
+
+    @After
+    public void tearDown() {
+        BenchmarkData.closeDatabase(database, DB_NAME);
+    }
+
+    @Test
+    public void eventCountsForWindow() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertFalse(dao.getEventCountsBetween(windowStart, windowEnd).isEmpty());
+        }
+    }
+
+    @Test
+    public void loadMonth() {
+        CalendarDaysAdapter adapter = new CalendarDaysAdapter(BenchmarkData.context(), date -> {
+        });
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            List<DayEventCount> counts = dao.getEventCountsBetween(windowStart, windowEnd);
+            Set<String> dates = new HashSet<>();
+            for (DayEventCount count : counts) {
+                if (count.getCount() > 0) {
+                    dates.add(count.getDate());
+                }
+            }
+            // Адаптер меняется только из главного потока
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+                adapter.setMonth(month);
+                adapter.setEventDates(dates);
+            });
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ru.xdxasoft.xdxanotes.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.paging.PagingSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.MainDAO;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSummary;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+/**
+ * Вставка, полное чтение и поиск по notes_fts. Поиск замеряется так же, как
+ * его видит NotesFragment: загрузка первой страницы PagingSource.
+ */
+@RunWith(Parameterized.class)
+public class MainDaoBenchmark {
+
+    private static final String DB_NAME = "benchmark-notes.db";
+    private static final int PAGE_SIZE = 20;
+
+    @Parameterized.Parameters(name = "rows={0}")
+    public static Collection<Object[]> rows() {
+        return Arrays.asList(new Object[][]{{1_000}, {10_000}, {100_000}});
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int rows;
+    private RoomDB database;
+    private MainDAO dao;
+    private List<Notes> notes;
+
+    public MainDaoBenchmark(int rows) {
+        this.rows = rows;
+    }
+
+    @Before
+    public void setUp() {
+        database = BenchmarkData.openDatabase(DB_NAME);
+        dao = database.mainDao();
+        notes = BenchmarkData.notes(rows, 1_000L);
+    }
+
+    @After
+    public void tearDown() {
+        BenchmarkData.closeDatabase(database, DB_NAME);
+    }
+
+    @Test
+    public void insertAll() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            dao.deleteAll();
+            state.resumeTiming();
+
+            dao.insertAll(notes);
+        }
+    }
+
+    @Test
+    public void getAll() {
+        dao.insertAll(notes);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertEquals(rows, dao.getAll().size());
+        }
+    }
+
+    @Test
+    public void searchFirstPage() {
+        dao.insertAll(notes);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            PagingSource.LoadResult<Integer, NoteSummary> result = BenchmarkData.load(dao.search("спис* покуп*"),
+                    new PagingSource.LoadParams.Refresh<>(null, PAGE_SIZE, false));
+            assertTrue(result instanceof PagingSource.LoadResult.Page);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package ru.xdxasoft.xdxanotes.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.paging.PagingSource;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.MainDAO;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.NoteSummary;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+/**
+ * Список из 50 000 заметок. Замеряются загрузки страниц MainDAO.pagingSource
+ * при открытии списка, прокрутке и переходе в середину, а отдельный тест
+ * сравнивает удерживаемую память: окно пейджинга против прежнего getAll().
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotesPagingBenchmark {
+
+    private static final String TAG = "NotesPagingBenchmark";
+    private static final String DB_NAME = "benchmark-paging.db";
+    private static final int ROWS = 50_000;
+    // Как в NotesRepository: страница 30, первая загрузка 60, в памяти не больше 150
+    private static final int PAGE_SIZE = 30;
+    private static final int INITIAL_LOAD_SIZE = PAGE_SIZE * 2;
+    private static final int MAX_SIZE = 150;
+    private static final int SCROLL_PAGES = 10;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private RoomDB database;
+    private MainDAO dao;
+
+    @Before
+    public void setUp() {
+        database = BenchmarkData.openDatabase(DB_NAME);
+        dao = database.mainDao();
+        dao.insertAll(BenchmarkData.notes(ROWS, 1_000L));
+    }
+
+    @After
+    public void tearDown() {
+        BenchmarkData.closeDatabase(database, DB_NAME);
+    }
+
+    @Test
+    public void firstPage() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            PagingSource.LoadResult.Page<Integer, NoteSummary> page = refresh(null);
+            assertEquals(INITIAL_LOAD_SIZE, page.getData().size());
+        }
+    }
+
+    @Test
+    public void scrollTenPages() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            PagingSource<Integer, NoteSummary> source = dao.pagingSource();
+            PagingSource.LoadResult.Page<Integer, NoteSummary> page = page(BenchmarkData.load(source,
+                    new PagingSource.LoadParams.Refresh<>(null, INITIAL_LOAD_SIZE, false)));
+            for (int i = 0; i < SCROLL_PAGES; i++) {
+                page = page(BenchmarkData.load(source,
+                        new PagingSource.LoadParams.Append<>(page.getNextKey(), PAGE_SIZE, false)));
+            }
+            assertEquals(PAGE_SIZE, page.getData().size());
+        }
+    }
+
+    // Быстрая прокрутка в середину: Pager перезагружает окно с позиции
+    @Test
+    public void jumpToMiddle() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            PagingSource.LoadResult.Page<Integer, NoteSummary> page = refresh(ROWS / 2);
+            assertEquals(INITIAL_LOAD_SIZE, page.getData().size());
+        }
+    }
+
+    @Test
+    public void retainedMemory_pagingWindowIsFarSmallerThanFullList() {
+        long before = usedHeap();
+        List<Notes> all = dao.getAll();
+        long fullListBytes = usedHeap() - before;
+        assertEquals(ROWS, all.size());
+        all = null;
+
+        before = usedHeap();
+        List<NoteSummary> window = loadWindow();
+        long windowBytes = usedHeap() - before;
+        assertEquals(MAX_SIZE, window.size());
+
+        Log.i(TAG, ROWS + " notes retained: getAll " + fullListBytes / 1024 + " KiB, "
+                + "paging window of " + MAX_SIZE + " " + windowBytes / 1024 + " KiB");
+        assertTrue(windowBytes * 20 < fullListBytes);
+    }
+
+    private PagingSource.LoadResult.Page<Integer, NoteSummary> refresh(Integer key) {
+        return page(BenchmarkData.load(dao.pagingSource(),
+                new PagingSource.LoadParams.Refresh<>(key, INITIAL_LOAD_SIZE, false)));
+    }
+
+    // Столько строк держит PagingDataAdapter при maxSize = MAX_SIZE
+    private List<NoteSummary> loadWindow() {
+        PagingSource<Integer, NoteSummary> source = dao.pagingSource();
+        PagingSource.LoadResult.Page<Integer, NoteSummary> page = page(BenchmarkData.load(source,
+                new PagingSource.LoadParams.Refresh<>(null, INITIAL_LOAD_SIZE, false)));
+        List<NoteSummary> window = new ArrayList<>(page.getData());
+        while (window.size() < MAX_SIZE) {
+            page = page(BenchmarkData.load(source,
+                    new PagingSource.LoadParams.Append<>(page.getNextKey(), PAGE_SIZE, false)));
+            window.addAll(page.getData());
+        }
+        return window;
+    }
+
+    private static PagingSource.LoadResult.Page<Integer, NoteSummary> page(
+            PagingSource.LoadResult<Integer, NoteSummary> result) {
+        assertTrue(result instanceof PagingSource.LoadResult.Page);
+        return (PagingSource.LoadResult.Page<Integer, NoteSummary>) result;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,136 @@
+package ru.xdxasoft.xdxanotes.benchmark;
+
+import static org.junit.Assert.assertTrue;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import ru.xdxasoft.xdxanotes.utils.firebase.FieldMergeConflictResolver;
+import ru.xdxasoft.xdxanotes.utils.firebase.NotesSyncEngine;
+import ru.xdxasoft.xdxanotes.utils.firebase.SyncStateStore;
+import ru.xdxasoft.xdxanotes.utils.notes.DataBase.RoomDB;
+import ru.xdxasoft.xdxanotes.utils.notes.Models.Notes;
+
+/**
+ * Применение удаленных изменений заметок к Room через NotesSyncEngine.
+ * Удаленный источник подменен списком в памяти, все потоки прямые, поэтому
+ * замер включает только сверку и транзакцию.
+ */
+@RunWith(Parameterized.class)
+public class NotesSyncBenchmark {
+
+    private static final String DB_NAME = "benchmark-sync.db";
+    private static final Executor DIRECT = Runnable::run;
+
+    @Parameterized.Parameters(name = "rows={0}")
+    public static Collection<Object[]> rows() {
+        return Arrays.asList(new Object[][]{{1_000}, {10_000}, {100_000}});
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int rows;
+    private RoomDB database;
+    private SyncStateStore syncState;
+    private NotesSyncEngine engine;
+    private List<NotesSyncEngine.NoteChange> remoteChanges = new ArrayList<>();
+
+    public NotesSyncBenchmark(int rows) {
+        this.rows = rows;
+    }
+
+    @Before
+    public void setUp() {
+        database = BenchmarkData.openDatabase(DB_NAME);
+        syncState = new SyncStateStore(BenchmarkData.context());
+        syncState.clear();
+        // Серверное время двигает метку, поэтому повторная синхронизация идет как инкрементальная
+        NotesSyncEngine.RemoteSource remote = (userId, sinceMark, callback) ->
+                callback.onFetched(remoteChanges, System.currentTimeMillis());
+        engine = new NotesSyncEngine(database, remote, syncState, new FieldMergeConflictResolver(),
+                note -> {
+                }, DIRECT, DIRECT);
+    }
+
+    @After
+    public void tearDown() {
+        syncState.clear();
+        BenchmarkData.closeDatabase(database, DB_NAME);
+    }
+
+    /**
+     * Первая синхронизация: коллекция загружается целиком в пустую БД.
+     */
+    @Test
+    public void fullSync() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            database.clearAllTables();
+            syncState.clear();
+            remoteChanges = changes(BenchmarkData.notes(rows, 1_000L));
+            state.resumeTiming();
+
+            syncOnce();
+        }
+    }
+
+    /**
+     * Повторная синхронизация: с сервера пришел 1% заметок, половина из них
+     * изменена и локально, и сливается трехсторонне.
+     */
+    @Test
+    public void incrementalSync() {
+        remoteChanges = changes(BenchmarkData.notes(rows, 1_000L));
+        syncOnce();
+
+        int changed = Math.max(10, rows / 100);
+        long lastModified = 1_000_000L;
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            lastModified += rows;
+            List<Notes> remote = BenchmarkData.notes(changed, lastModified);
+            for (int i = 0; i < remote.size(); i++) {
+                Notes note = remote.get(i);
+                note.setTitle(note.getTitle() + " (сервер)");
+                if (i % 2 == 0) {
+                    database.mainDao().update(note.getID(), note.getTitle(), note.getNotes() + " (локально)",
+                            lastModified, 2);
+                }
+            }
+            remoteChanges = changes(remote);
+            state.resumeTiming();
+
+            syncOnce();
+        }
+    }
+
+    private void syncOnce() {
+        boolean[] success = new boolean[1];
+        engine.sync(BenchmarkData.USER_ID, result -> success[0] = result);
+        assertTrue(success[0]);
+    }
+
+    private static List<NotesSyncEngine.NoteChange> changes(List<Notes> notes) {
+        List<NotesSyncEngine.NoteChange> changes = new ArrayList<>(notes.size());
+        for (Notes note : notes) {
+            changes.add(new NotesSyncEngine.NoteChange(note, false));
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.xdxasoft.xdxanotes.benchmark;
+
+import android.view.ContextThemeWrapper;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import ru.xdxasoft.xdxanotes.R;
+import ru.xdxasoft.xdxanotes.adapters.PasswordAdapter;
+
+/**
+ * Привязка строки списка паролей. Холдер создается один раз, как при
+ * прокрутке с переиспользованием, замеряется только onBindViewHolder.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PasswordAdapterBindingBenchmark {
+
+    private static final int ROWS = 1_000;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private PasswordAdapter adapter;
+    private RecyclerView parent;
+
+    @Before
+    public void setUp() {
+        adapter = new PasswordAdapter(text -> {
+        }, password -> {
+        }, id -> {
+        }, password -> {
+        }, (password, tvPassword) -> {
+        });
+        // Первый список в пустом адаптере применяется сразу, без фонового сравнения
+        adapter.submitList(BenchmarkData.passwords(ROWS));
+    }
+
+    @Test
+    @UiThreadTest
+    public void onCreateViewHolder() {
+        RecyclerView recyclerView = recyclerView();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            adapter.onCreateViewHolder(recyclerView, 0);
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void onBindViewHolder() {
+        PasswordAdapter.PasswordViewHolder holder = adapter.onCreateViewHolder(recyclerView(), 0);
+        int position = 0;
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            adapter.onBindViewHolder(holder, position);
+            position = (position + 1) % ROWS;
+        }
+    }
+
+    private RecyclerView recyclerView() {
+        if (parent == null) {
+            ContextThemeWrapper context = new ContextThemeWrapper(BenchmarkData.context(),
+                    R.style.Base_Theme_XDXANotes);
+            parent = new RecyclerView(context);
+            parent.setLayoutManager(new LinearLayoutManager(context));
+        }
+        return parent;
+    }
+}
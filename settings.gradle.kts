@@ -31,4 +31,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "XDXANotes"
 include(":app")
+include(":benchmark")
+include(":benchmark:jmh")
  
\ No newline at end of file